@@ -0,0 +1,112 @@
+package com.example.android.miwok;
+
+import android.os.Build;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.List;
+
+/**
+ * Shows the words of all categories, those of the installed packs included, in one list. Each
+ * category is a section sorted alphabetically under a pinned header in its theme color, and the
+ * A-Z index beside the list jumps within the section at the top.
+ */
+public class AllWordsActivity extends AppCompatActivity {
+
+    private WordAudioPlayer mWordAudioPlayer;
+
+    private RecyclerView mRecyclerView;
+    private LinearLayoutManager mLayoutManager;
+
+    //Null until the words have been laid out.
+    private WordSections mSections;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_all_words);
+
+        mRecyclerView = (RecyclerView) findViewById(R.id.list);
+        mRecyclerView.setHasFixedSize(true);
+        mLayoutManager = new LinearLayoutManager(this);
+        mRecyclerView.setLayoutManager(mLayoutManager);
+
+        LetterIndexView letterIndex = (LetterIndexView) findViewById(R.id.letter_index);
+        letterIndex.setOnLetterSelectedListener(new LetterIndexView.OnLetterSelectedListener() {
+            @Override
+            public void onLetterSelected(int letter) {
+                scrollToLetter(letter);
+            }
+        });
+
+        mWordAudioPlayer = new WordAudioPlayer(this);
+        WordRepository.getInstance(this).loadWordSections(
+                new WordRepository.OnWordSectionsReadyListener() {
+                    @Override
+                    public void onWordSectionsReady(WordSections sections,
+                                                    List<Category> categories) {
+                        if (!isFinishing()) {
+                            showWords(sections, categories);
+                        }
+                    }
+                });
+    }
+
+    private void showWords(WordSections sections, List<Category> categories) {
+        mSections = sections;
+        SectionedWordAdapter adapter = new SectionedWordAdapter(this, sections, categories);
+        adapter.setOnWordClickListener(new WordAdapter.OnWordClickListener() {
+            @Override
+            public void onWordClick(Word word, int position) {
+                mWordAudioPlayer.play(word);
+                WordRepository.getInstance(AllWordsActivity.this).getProgressStore()
+                        .recordPlayed(word.getId());
+            }
+        });
+        mRecyclerView.setAdapter(adapter);
+        mRecyclerView.addItemDecoration(new StickyHeaderDecoration(adapter));
+
+        //Measure dropped frames while the list scrolls.
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            new FrameMonitor().attach(mRecyclerView);
+        }
+    }
+
+    /**
+     * Jump to the first word starting with the letter in the section at the top of the list.
+     */
+    private void scrollToLetter(int letter) {
+        if (mSections == null || mSections.getRowCount() == 0) {
+            return;
+        }
+        int top = Math.max(0, mLayoutManager.findFirstVisibleItemPosition());
+        int position = Math.min(mSections.getRowCount() - 1,
+                mSections.getLetterPosition(mSections.getSection(top), letter));
+        //Keep the word below the pinned header.
+        mLayoutManager.scrollToPositionWithOffset(position, getResources()
+                .getDimensionPixelSize(R.dimen.section_header_height));
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        //Time spent on the words counts as a study session.
+        WordRepository.getInstance(this).getProgressStore().beginSession();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        //When the app is stopped, stop playback and give up audio focus.
+        mWordAudioPlayer.stop();
+        WordRepository.getInstance(this).getProgressStore().endSession();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mWordAudioPlayer.release();
+    }
+}
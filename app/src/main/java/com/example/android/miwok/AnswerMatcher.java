@@ -0,0 +1,251 @@
+package com.example.android.miwok;
+
+/**
+ * {@link AnswerMatcher} grades the French typed for a word of the {@link Lexicon}. Answers are
+ * compared in their {@link TextNormalizer normalized} form, so case, accents, apostrophes and
+ * hyphens do not matter, and a few typos are tolerated depending on the length of the answer:
+ * "comment tu t'appelles" is right for "Comment tu-t'appelles?".
+ *
+ * <p>The expected answers are normalized once, when the matcher is created. Typos are counted
+ * as the Levenshtein distance, with the bit-parallel algorithm of Myers for answers of up to 64
+ * characters, which covers every phrase of the lexicon, and with a dynamic program restricted
+ * to the diagonals within the allowed number of typos for longer ones. Both stop as soon as the
+ * distance is known to exceed it.
+ */
+public final class AnswerMatcher {
+
+    //The typed answer is the expected one.
+    public static final int CORRECT = 0;
+
+    //The typed answer is the expected one but for a few typos.
+    public static final int ALMOST = 1;
+
+    public static final int WRONG = 2;
+
+    //Most typos tolerated, however long the answer.
+    private static final int MAX_TYPOS = 4;
+
+    //Longest answer handled by the bit-parallel algorithm, the number of bits of a long.
+    private static final int MAX_BIT_PARALLEL_LENGTH = 64;
+
+    //Normalized French translations, indexed like the lexicon.
+    private final String[] mAnswers;
+
+    //Bit masks of the positions of each character in the answer being matched.
+    private final long[] mAsciiMasks = new long[128];
+    private final char[] mOtherChars = new char[MAX_BIT_PARALLEL_LENGTH];
+    private final long[] mOtherMasks = new long[MAX_BIT_PARALLEL_LENGTH];
+    private int mOtherCount;
+
+    //Rows of the dynamic program, grown to the longest answer matched.
+    private int[] mPreviousRow = new int[0];
+    private int[] mRow = new int[0];
+
+    /**
+     * Create a new {@link AnswerMatcher} object.
+     *
+     * @param answers are the expected French translations, indexed like the lexicon.
+     */
+    public AnswerMatcher(String[] answers) {
+        mAnswers = new String[answers.length];
+        for (int i = 0; i < answers.length; i++) {
+            mAnswers[i] = TextNormalizer.normalize(answers[i]);
+        }
+    }
+
+    /**
+     * Create the matcher of all the words of the {@link Lexicon}.
+     */
+    public static AnswerMatcher fromLexicon(Lexicon lexicon) {
+        String[] answers = new String[lexicon.getWordCount()];
+        for (int i = 0; i < answers.length; i++) {
+            answers[i] = lexicon.getFrenchTranslation(i);
+        }
+        return new AnswerMatcher(answers);
+    }
+
+    /**
+     * Return the number of typos tolerated in a normalized answer of the given length: none in
+     * short words, then one more every 8 characters.
+     */
+    public static int getAllowedTypos(int length) {
+        if (length <= 3) {
+            return 0;
+        }
+        return Math.min(MAX_TYPOS, 1 + length / 8);
+    }
+
+    /**
+     * Grade the answer typed for a word.
+     *
+     * @param word is the lexicon index of the word.
+     * @return {@link #CORRECT}, {@link #ALMOST} or {@link #WRONG}.
+     */
+    public synchronized int grade(int word, CharSequence typed) {
+        String answer = mAnswers[word];
+        String normalized = TextNormalizer.normalize(typed);
+        if (normalized.equals(answer)) {
+            return CORRECT;
+        }
+        int allowed = getAllowedTypos(answer.length());
+        if (allowed == 0) {
+            return WRONG;
+        }
+        return getDistance(answer, normalized, allowed) <= allowed ? ALMOST : WRONG;
+    }
+
+    /**
+     * Return the Levenshtein distance between two normalized texts, or max + 1 if it is more
+     * than max.
+     */
+    synchronized int getDistance(String answer, String typed, int max) {
+        if (Math.abs(answer.length() - typed.length()) > max) {
+            return max + 1;
+        }
+        if (answer.isEmpty() || typed.isEmpty()) {
+            return Math.max(answer.length(), typed.length());
+        }
+        if (answer.length() <= MAX_BIT_PARALLEL_LENGTH) {
+            return getBitParallelDistance(answer, typed, max);
+        }
+        return getBandedDistance(answer, typed, max);
+    }
+
+    /**
+     * Myers' algorithm: the column of the distances between the prefixes of the answer and the
+     * typed text read so far is kept as bit vectors of its vertical deltas, and updated in a few
+     * word operations per typed character.
+     */
+    private int getBitParallelDistance(String answer, String typed, int max) {
+        int length = answer.length();
+        for (int i = 0; i < length; i++) {
+            setMask(answer.charAt(i), i);
+        }
+        long lastBit = 1L << (length - 1);
+        long verticalPlus = length == 64 ? -1L : (1L << length) - 1;
+        long verticalMinus = 0;
+        int distance = length;
+        int remaining = typed.length();
+        for (int j = 0; j < typed.length(); j++) {
+            long matches = getMask(typed.charAt(j));
+            long x = matches | verticalMinus;
+            long diagonal = (((matches & verticalPlus) + verticalPlus) ^ verticalPlus) | matches;
+            long horizontalPlus = verticalMinus | ~(diagonal | verticalPlus);
+            long horizontalMinus = verticalPlus & diagonal;
+            if ((horizontalPlus & lastBit) != 0) {
+                distance++;
+            } else if ((horizontalMinus & lastBit) != 0) {
+                distance--;
+            }
+            //Row 0 grows by one with every character typed.
+            horizontalPlus = (horizontalPlus << 1) | 1;
+            horizontalMinus <<= 1;
+            verticalPlus = horizontalMinus | ~(x | horizontalPlus);
+            verticalMinus = horizontalPlus & x;
+
+            //Each character left can lower the distance by one at most.
+            remaining--;
+            if (distance - remaining > max) {
+                distance = max + 1;
+                break;
+            }
+        }
+        clearMasks(answer);
+        return Math.min(distance, max + 1);
+    }
+
+    /**
+     * Classic dynamic program, only computing the cells within max of the diagonal since the
+     * others exceed max anyway.
+     */
+    private int getBandedDistance(String answer, String typed, int max) {
+        int columns = typed.length() + 1;
+        if (mRow.length < columns) {
+            mPreviousRow = new int[columns];
+            mRow = new int[columns];
+        }
+        int[] previous = mPreviousRow;
+        int[] row = mRow;
+        int tooFar = max + 1;
+        for (int j = 0; j < columns; j++) {
+            previous[j] = Math.min(j, tooFar);
+        }
+        for (int i = 1; i <= answer.length(); i++) {
+            int from = Math.max(1, i - max);
+            int to = Math.min(typed.length(), i + max);
+            row[0] = Math.min(i, tooFar);
+            row[from - 1] = from == 1 ? row[0] : tooFar;
+            int best = row[from - 1];
+            char c = answer.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                int cost = c == typed.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(previous[j - 1] + cost,
+                        Math.min(previous[j], row[j - 1]) + 1);
+                row[j] = Math.min(value, tooFar);
+                best = Math.min(best, row[j]);
+            }
+            if (to < typed.length()) {
+                row[to + 1] = tooFar;
+            }
+            if (best > max) {
+                return tooFar;
+            }
+            int[] swap = previous;
+            previous = row;
+            row = swap;
+        }
+        return previous[typed.length()];
+    }
+
+    private void setMask(char c, int position) {
+        if (c < mAsciiMasks.length) {
+            mAsciiMasks[c] |= 1L << position;
+            return;
+        }
+        for (int i = 0; i < mOtherCount; i++) {
+            if (mOtherChars[i] == c) {
+                mOtherMasks[i] |= 1L << position;
+                return;
+            }
+        }
+        mOtherChars[mOtherCount] = c;
+        mOtherMasks[mOtherCount] = 1L << position;
+        mOtherCount++;
+    }
+
+    private long getMask(char c) {
+        if (c < mAsciiMasks.length) {
+            return mAsciiMasks[c];
+        }
+        for (int i = 0; i < mOtherCount; i++) {
+            if (mOtherChars[i] == c) {
+                return mOtherMasks[i];
+            }
+        }
+        return 0;
+    }
+
+    private void clearMasks(String answer) {
+        for (int i = 0; i < answer.length(); i++) {
+            char c = answer.charAt(i);
+            if (c < mAsciiMasks.length) {
+                mAsciiMasks[c] = 0;
+            }
+        }
+        mOtherCount = 0;
+    }
+
+    /**
+     * Return the normalized form of the answer expected for a word.
+     */
+    public String getAnswer(int word) {
+        return mAnswers[word];
+    }
+
+    /**
+     * Return the number of words of the matcher.
+     */
+    public int getWordCount() {
+        return mAnswers.length;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.android.miwok;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseBooleanArray;
+
+import java.util.List;
+
+/**
+ * {@link AudioPrefetcher} watches which rows of a word list are visible and keeps the
+ * pronunciation of those words, plus a lookahead window of rows around them, decoded in the
+ * {@link WordAudioPlayer}. Words which scroll out of the window are evicted again, so the first
+ * tap on any visible word plays instantly however long the list is.
+ */
+public class AudioPrefetcher extends RecyclerView.OnScrollListener {
+
+    //Default number of rows before and after the visible ones to prefetch.
+    public static final int DEFAULT_LOOKAHEAD = 4;
+
+    private final WordAudioPlayer mPlayer;
+    private final List<Word> mWords;
+    private final int mLookahead;
+
+    //Audio resource ids of the words in the current window, reused between updates.
+    private final SparseBooleanArray mWindow = new SparseBooleanArray();
+
+    //Visible rows of the last update.
+    private int mFirstVisible = RecyclerView.NO_POSITION;
+    private int mLastVisible = RecyclerView.NO_POSITION;
+
+    /**
+     * Create a new {@link AudioPrefetcher} object.
+     *
+     * @param player decodes the pronunciations.
+     * @param words are the {@link Word}s shown in the list.
+     * @param lookahead is the number of rows before and after the visible ones to prefetch.
+     */
+    public AudioPrefetcher(WordAudioPlayer player, List<Word> words, int lookahead) {
+        mPlayer = player;
+        mWords = words;
+        mLookahead = lookahead;
+    }
+
+    /**
+     * Start watching the given list, prefetching its first rows as soon as it is laid out.
+     */
+    public void attach(final RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(this);
+        recyclerView.post(new Runnable() {
+            @Override
+            public void run() {
+                update(recyclerView);
+            }
+        });
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        update(recyclerView);
+    }
+
+    private void update(RecyclerView recyclerView) {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int firstVisible = layoutManager.findFirstVisibleItemPosition();
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        if (firstVisible == RecyclerView.NO_POSITION
+                || (firstVisible == mFirstVisible && lastVisible == mLastVisible)) {
+            return;
+        }
+        mFirstVisible = firstVisible;
+        mLastVisible = lastVisible;
+
+        int start = Math.max(0, firstVisible - mLookahead);
+        int end = Math.min(mWords.size() - 1, lastVisible + mLookahead);
+
+        mWindow.clear();
+        for (int position = start; position <= end; position++) {
+            mWindow.put(mPlayer.getAudioId(mWords.get(position)), true);
+        }
+        mPlayer.retainOnly(mWindow);
+
+        //Prefetch the lookahead rows first so that the visible rows end up as the most recently
+        //used ones, which are the last to be evicted if the window exceeds the memory budget.
+        for (int position = start; position < firstVisible; position++) {
+            mPlayer.prefetch(mWords.get(position));
+        }
+        for (int position = end; position > lastVisible; position--) {
+            mPlayer.prefetch(mWords.get(position));
+        }
+        for (int position = firstVisible; position <= lastVisible; position++) {
+            mPlayer.prefetch(mWords.get(position));
+        }
+    }
+}
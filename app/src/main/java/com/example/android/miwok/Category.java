@@ -0,0 +1,110 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.support.v4.content.ContextCompat;
+
+/**
+ * {@link Category} represents a group of vocabulary words shown on its own screen,
+ * e.g. numbers or family members. Besides the built-in categories, each installed
+ * {@link VocabularyPack} brings its own.
+ */
+public final class Category {
+
+    public static final Category NUMBERS =
+            new Category("numbers", R.string.category_numbers, R.color.category_numbers);
+
+    public static final Category FAMILY =
+            new Category("family", R.string.category_family, R.color.category_family);
+
+    public static final Category COLORS =
+            new Category("colors", R.string.category_colors, R.color.category_colors);
+
+    public static final Category PHRASES =
+            new Category("phrases", R.string.category_phrases, R.color.category_phrases);
+
+    private static final Category[] CATEGORIES = {NUMBERS, FAMILY, COLORS, PHRASES};
+
+    //Unique key of the category, used to pass it between screens.
+    private final String mKey;
+
+    //String resource id of the category name, or 0 for the categories of a pack.
+    private final int mTitleResourceId;
+
+    //Color resource id of the category's theme color, or 0 for the categories of a pack.
+    private final int mColorResourceId;
+
+    //Name and theme color of the categories of a pack.
+    private final String mTitle;
+    private final int mColor;
+
+    private Category(String key, int titleResourceId, int colorResourceId) {
+        mKey = key;
+        mTitleResourceId = titleResourceId;
+        mColorResourceId = colorResourceId;
+        mTitle = null;
+        mColor = 0;
+    }
+
+    /**
+     * Create the {@link Category} of a {@link VocabularyPack}.
+     *
+     * @param key is unique among all categories.
+     * @param title is the name of the category.
+     * @param color is the theme color of the category, as a color int.
+     */
+    Category(String key, String title, int color) {
+        mKey = key;
+        mTitleResourceId = 0;
+        mColorResourceId = 0;
+        mTitle = title;
+        mColor = color;
+    }
+
+    /**
+     * Return the built-in {@link Category} with the given key, or null if there is none.
+     * See {@link WordRepository#getCategory(String)} for the categories of packs as well.
+     */
+    public static Category fromKey(String key) {
+        for (Category category : CATEGORIES) {
+            if (category.mKey.equals(key)) {
+                return category;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the unique key of the category.
+     */
+    public String getKey() {
+        return mKey;
+    }
+
+    /**
+     * Return the String resource id of the category name, or 0 for a category of a pack.
+     */
+    public int getTitleResourceId() {
+        return mTitleResourceId;
+    }
+
+    /**
+     * Return the Color resource id of the category's theme color, or 0 for a category of a pack.
+     */
+    public int getColorResourceId() {
+        return mColorResourceId;
+    }
+
+    /**
+     * Return the name of the category.
+     */
+    public CharSequence getTitle(Context context) {
+        return mTitle != null ? mTitle : context.getText(mTitleResourceId);
+    }
+
+    /**
+     * Return the theme color of the category, as a color int.
+     */
+    public int getColor(Context context) {
+        return mColorResourceId != 0 ? ContextCompat.getColor(context, mColorResourceId) : mColor;
+    }
+}
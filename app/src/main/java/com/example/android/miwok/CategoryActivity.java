@@ -0,0 +1,305 @@
+package com.example.android.miwok;
+
+import android.Manifest;
+import android.arch.lifecycle.ViewModelProvider;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Bundle;
+import android.support.v4.app.ActivityCompat;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.os.TraceCompat;
+import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.Toast;
+
+import java.util.List;
+
+/**
+ * Displays the vocabulary {@link Word}s of a single {@link Category} and plays their
+ * pronunciation when tapped. The category is passed in with {@link #EXTRA_CATEGORY}.
+ * The words and the audio player are only set up once the first frame has been drawn. They are
+ * kept by a {@link CategoryViewModel}, so that a rotated activity shows them at once and a word
+ * being played carries on. The learner can also say a word, which is recorded and scored against
+ * its pronunciation.
+ */
+public class CategoryActivity extends AppCompatActivity {
+
+    //Intent extra holding the key of the {@link Category} to display.
+    public static final String EXTRA_CATEGORY = "com.example.android.miwok.extra.CATEGORY";
+
+    //Silence between two words when listening to the whole category.
+    private static final int LISTEN_SPACING_MILLIS = 700;
+
+    private static final int REQUEST_RECORD_AUDIO = 1;
+
+    //Words, player and study session, kept across configuration changes.
+    private CategoryViewModel mViewModel;
+
+    //Plays the pronunciation of the words in this category, null until the first frame.
+    private WordAudioPlayer mWordAudioPlayer;
+
+    //Null until the first frame.
+    private List<Word> mWords;
+
+    private RecyclerView mRecyclerView;
+
+    //Records the learner saying a word.
+    private final PronunciationRecorder mRecorder = new PronunciationRecorder();
+
+    //Word to record once the microphone may be used, null while not asking for it.
+    private Word mPendingWord;
+
+    /**
+     * Scrolls to each word while the whole category is being listened to.
+     */
+    private final WordAudioPlayer.ListenListener mListenListener = new WordAudioPlayer.ListenListener() {
+        @Override
+        public void onListenWord(int position) {
+            mRecyclerView.smoothScrollToPosition(position);
+        }
+
+        @Override
+        public void onListenFinished() {
+            invalidateOptionsMenu();
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        long startNanos = System.nanoTime();
+        TraceCompat.beginSection("CategoryActivity.onCreate");
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.words_list);
+
+        final Category category = WordRepository.getInstance(this)
+                .getCategory(getIntent().getStringExtra(EXTRA_CATEGORY));
+        if (category == null) {
+            //Nothing to show without a category.
+            finish();
+            TraceCompat.endSection();
+            return;
+        }
+        setTitle(category.getTitle(this));
+        mViewModel = new ViewModelProvider(this, ViewModelProvider.AndroidViewModelFactory
+                .getInstance(getApplication())).get(CategoryViewModel.class);
+        mViewModel.setListenListener(mListenListener);
+
+        //Finding the RecyclerView.
+        mRecyclerView = (RecyclerView) findViewById(R.id.list);
+        mRecyclerView.setHasFixedSize(true);
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+
+        if (mViewModel.hasWords()) {
+            //Recreated after a configuration change, the words and the player are ready.
+            showWords(category);
+            TraceCompat.endSection();
+            return;
+        }
+
+        //Show the title and the empty list first, then fill it in.
+        FirstFrame.runAfter(this, startNanos, Metrics.CATEGORY_FIRST_FRAME, new Runnable() {
+            @Override
+            public void run() {
+                if (!isFinishing()) {
+                    showWords(category);
+                }
+            }
+        });
+        TraceCompat.endSection();
+    }
+
+    private void showWords(Category category) {
+        TraceCompat.beginSection("CategoryActivity.showWords");
+
+        mWords = mViewModel.getWords(category);
+        mWordAudioPlayer = mViewModel.getWordAudioPlayer();
+
+        //Create an {@link WordAdapter} whose data source is a list of {@link Word}s
+        WordAdapter adapter = new WordAdapter(this, mWords, category.getColor(this));
+
+        //Set a click listener to play an audio file when a word is tapped.
+        adapter.setOnWordClickListener(new WordAdapter.OnWordClickListener() {
+            @Override
+            public void onWordClick(Word word, int position) {
+                //Play the already decoded pronunciation of the word.
+                mWordAudioPlayer.play(word);
+                WordRepository.getInstance(CategoryActivity.this).getProgressStore()
+                        .recordPlayed(word.getId());
+            }
+        });
+
+        //Scoring needs the pronunciation decoded, which needs MediaCodec.
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            adapter.setOnSayItClickListener(new WordAdapter.OnWordClickListener() {
+                @Override
+                public void onWordClick(Word word, int position) {
+                    sayIt(word);
+                }
+            });
+        }
+
+        //Adding the adapter to the recycler view.
+        mRecyclerView.setAdapter(adapter);
+
+        //Keep the pronunciation of the visible words and those around them decoded.
+        new AudioPrefetcher(mWordAudioPlayer, mWords, AudioPrefetcher.DEFAULT_LOOKAHEAD)
+                .attach(mRecyclerView);
+
+        //Measure dropped frames while the list scrolls.
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            new FrameMonitor().attach(mRecyclerView);
+        }
+
+        //The listen action needs the player.
+        invalidateOptionsMenu();
+        TraceCompat.endSection();
+    }
+
+    /**
+     * Record the learner saying the word, asking for the microphone first, or end the recording
+     * in progress.
+     */
+    private void sayIt(Word word) {
+        if (mRecorder.isRecording()) {
+            mRecorder.stop();
+            return;
+        }
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO)
+                != PackageManager.PERMISSION_GRANTED) {
+            mPendingWord = word;
+            ActivityCompat.requestPermissions(this,
+                    new String[]{Manifest.permission.RECORD_AUDIO}, REQUEST_RECORD_AUDIO);
+            return;
+        }
+        //Do not record the word being played.
+        mWordAudioPlayer.stop();
+        final int audioId = mWordAudioPlayer.getAudioId(word);
+        Toast.makeText(this, getString(R.string.say_it_prompt, word.getFrenchTranslation()),
+                Toast.LENGTH_SHORT).show();
+        mRecorder.start(new PronunciationRecorder.Listener() {
+            @Override
+            public void onRecorded(short[] samples, int count, int sampleRate) {
+                ReferenceFeatures.getInstance(CategoryActivity.this).score(audioId, samples,
+                        count, sampleRate, new ReferenceFeatures.OnScoredListener() {
+                            @Override
+                            public void onScored(int score) {
+                                showScore(score);
+                            }
+                        });
+            }
+
+            @Override
+            public void onRecordingFailed() {
+                showScore(ReferenceFeatures.NO_REFERENCE);
+            }
+        });
+    }
+
+    private void showScore(int score) {
+        if (isFinishing()) {
+            return;
+        }
+        String message = score == ReferenceFeatures.NO_REFERENCE
+                ? getString(R.string.say_it_failed) : getString(R.string.say_it_score, score);
+        Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, String[] permissions,
+                                           int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode != REQUEST_RECORD_AUDIO || mPendingWord == null) {
+            return;
+        }
+        Word word = mPendingWord;
+        mPendingWord = null;
+        if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+            sayIt(word);
+        } else {
+            Toast.makeText(this, R.string.say_it_permission_denied, Toast.LENGTH_LONG).show();
+        }
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.category, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        boolean listening = mWordAudioPlayer != null && mWordAudioPlayer.isListening();
+        MenuItem listenItem = menu.findItem(R.id.action_listen);
+        listenItem.setTitle(listening ? R.string.action_stop_listening : R.string.action_listen);
+        listenItem.setEnabled(mWordAudioPlayer != null);
+        //The quiz and the practice only know the words of the built-in categories.
+        boolean builtIn = Category.fromKey(getIntent().getStringExtra(EXTRA_CATEGORY)) != null;
+        menu.findItem(R.id.action_quiz).setVisible(builtIn);
+        menu.findItem(R.id.action_practice).setVisible(builtIn);
+        return super.onPrepareOptionsMenu(menu);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_listen) {
+            if (mWordAudioPlayer.isListening()) {
+                mWordAudioPlayer.stop();
+            } else {
+                //Play every word of the category hands-free.
+                mViewModel.listen(LISTEN_SPACING_MILLIS);
+                invalidateOptionsMenu();
+            }
+            return true;
+        } else if (item.getItemId() == R.id.action_quiz) {
+            Intent intent = new Intent(this, QuizActivity.class);
+            intent.putExtra(QuizActivity.EXTRA_CATEGORY,
+                    getIntent().getStringExtra(EXTRA_CATEGORY));
+            startActivity(intent);
+            return true;
+        } else if (item.getItemId() == R.id.action_practice) {
+            Intent intent = new Intent(this, PracticeActivity.class);
+            intent.putExtra(PracticeActivity.EXTRA_CATEGORY,
+                    getIntent().getStringExtra(EXTRA_CATEGORY));
+            startActivity(intent);
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        //Time spent on the words counts as a study session, rotating does not end it.
+        mViewModel.beginSession();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        //An attempt is only scored while the words are shown.
+        mRecorder.cancel();
+        if (isChangingConfigurations()) {
+            //The word being played carries on in the recreated activity.
+            return;
+        }
+        //When the app is stopped, stop playback and give up audio focus.
+        if (mWordAudioPlayer != null) {
+            mWordAudioPlayer.stop();
+        }
+        mViewModel.endSession();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        //The decoded audio files are released by the view model once finished for good.
+        if (mViewModel != null) {
+            mViewModel.setListenListener(null);
+        }
+    }
+
+}
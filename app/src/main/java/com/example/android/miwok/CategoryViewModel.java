@@ -0,0 +1,133 @@
+package com.example.android.miwok;
+
+import android.app.Application;
+import android.arch.lifecycle.AndroidViewModel;
+
+import java.util.List;
+
+/**
+ * Holds what {@link CategoryActivity} shows and plays across configuration changes: the words of
+ * its {@link Category}, the {@link WordAudioPlayer} with its decoded sounds and any playback in
+ * progress, and the study session. A rotated activity only has to inflate its views again.
+ * Everything is released once the activity is finished for good.
+ */
+public class CategoryViewModel extends AndroidViewModel {
+
+    //Null until the words are first shown.
+    private List<Word> mWords;
+
+    //Null until the words are first shown.
+    private WordAudioPlayer mWordAudioPlayer;
+
+    //Synthesizes the words without a recorded clip, null until the words are first shown.
+    private SpeechCache.Batch mSpeechBatch;
+
+    //Listener of the activity currently shown, null while there is none.
+    private WordAudioPlayer.ListenListener mListenListener;
+
+    private boolean mInSession;
+
+    /**
+     * Passes listening progress on to whichever activity is shown by then, since the player
+     * keeps the listener it was started with.
+     */
+    private final WordAudioPlayer.ListenListener mForwardingListener =
+            new WordAudioPlayer.ListenListener() {
+                @Override
+                public void onListenWord(int position) {
+                    if (mListenListener != null) {
+                        mListenListener.onListenWord(position);
+                    }
+                }
+
+                @Override
+                public void onListenFinished() {
+                    if (mListenListener != null) {
+                        mListenListener.onListenFinished();
+                    }
+                }
+            };
+
+    public CategoryViewModel(Application application) {
+        super(application);
+    }
+
+    /**
+     * Return whether the words have been loaded, i.e. the activity was recreated and can show
+     * them at once.
+     */
+    public boolean hasWords() {
+        return mWords != null;
+    }
+
+    /**
+     * Return the words of the {@link Category}, loading them and creating the player on the
+     * first call.
+     */
+    public List<Word> getWords(Category category) {
+        if (mWords == null) {
+            //The repository keeps the list for the process and the list creates each Word once,
+            //so every visit of the category, recreated or not, shows the same Word objects.
+            mWords = WordRepository.getInstance(getApplication()).getWords(category);
+            //Plays the pronunciations, which are decoded ahead of time by the AudioPrefetcher.
+            mWordAudioPlayer = new WordAudioPlayer(getApplication());
+            //Have the words without a recording ready before they are tapped.
+            mSpeechBatch = SpeechCache.getInstance(getApplication()).presynthesize(mWords);
+            //Have the words ready to be said, once per install.
+            ReferenceFeatures.getInstance(getApplication()).extract(mWords);
+        }
+        return mWords;
+    }
+
+    /**
+     * Return the player of the words, null until {@link #getWords(Category)} is called.
+     */
+    public WordAudioPlayer getWordAudioPlayer() {
+        return mWordAudioPlayer;
+    }
+
+    /**
+     * Set the listener of the activity shown, or null once it is destroyed.
+     */
+    public void setListenListener(WordAudioPlayer.ListenListener listener) {
+        mListenListener = listener;
+    }
+
+    /**
+     * Play every word hands-free, reporting progress to the current listener.
+     */
+    public void listen(int spacingMillis) {
+        mWordAudioPlayer.listen(mWords, spacingMillis, mForwardingListener);
+    }
+
+    /**
+     * Begin the study session, unless it is still running from before a configuration change.
+     */
+    public void beginSession() {
+        if (!mInSession) {
+            mInSession = true;
+            WordRepository.getInstance(getApplication()).getProgressStore().beginSession();
+        }
+    }
+
+    /**
+     * End the study session.
+     */
+    public void endSession() {
+        if (mInSession) {
+            mInSession = false;
+            WordRepository.getInstance(getApplication()).getProgressStore().endSession();
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        endSession();
+        //Release the decoded audio files of this category.
+        if (mWordAudioPlayer != null) {
+            mWordAudioPlayer.release();
+            mSpeechBatch.cancel();
+        }
+        mListenListener = null;
+    }
+}
@@ -0,0 +1,341 @@
+package com.example.android.miwok;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * {@link DistractorIndex} holds, for every word of the {@link Lexicon} and both quiz directions,
+ * the wrong answers which look most like the right one: of a similar length, spelled alike and
+ * preferably from the same category. It is built once per version of the vocabulary and stored,
+ * so a {@link Quiz} question only has to read a few ints.
+ *
+ * <p>Answers are compared in their {@link TextNormalizer normalized} form. The candidates of a
+ * word are its neighbours in its category sorted by length and sorted alphabetically, so building
+ * the index takes n log n time rather than comparing every pair of words. Small categories are
+ * topped up with the words of any category closest in length.
+ */
+public final class DistractorIndex {
+
+    //The French word is shown and its English translation is the answer.
+    public static final int FRENCH_TO_ENGLISH = 0;
+
+    //The English word is shown and its French translation is the answer.
+    public static final int ENGLISH_TO_FRENCH = 1;
+
+    //Distractors stored per word and direction, a question picks some of them.
+    public static final int SLOTS = 6;
+
+    //Neighbours looked at on each side of a word in each sort order.
+    private static final int WINDOW = 8;
+
+    private static final int MAGIC = 0x4D445358; // "MDSX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 5 * 4 + 8;
+
+    private static final int NONE = -1;
+
+    //Checksum of the lexicon the index was built from.
+    private final long mChecksum;
+
+    private final int mWordCount;
+
+    //Distractor word indices at ((word * 2) + direction) * SLOTS, best first, NONE if missing.
+    private final int[] mDistractors;
+
+    private DistractorIndex(long checksum, int wordCount, int[] distractors) {
+        mChecksum = checksum;
+        mWordCount = wordCount;
+        mDistractors = distractors;
+    }
+
+    /**
+     * Build the index of all the words of the given lexicon.
+     */
+    public static DistractorIndex build(Lexicon lexicon) {
+        int wordCount = lexicon.getWordCount();
+        int[] distractors = new int[wordCount * 2 * SLOTS];
+        Arrays.fill(distractors, NONE);
+        String[] answers = new String[wordCount];
+        for (int direction = FRENCH_TO_ENGLISH; direction <= ENGLISH_TO_FRENCH; direction++) {
+            for (int i = 0; i < wordCount; i++) {
+                answers[i] = TextNormalizer.normalize(direction == FRENCH_TO_ENGLISH
+                        ? lexicon.getDefaultTranslation(i) : lexicon.getFrenchTranslation(i));
+            }
+            Builder builder = new Builder(answers, distractors, direction);
+            for (int category = 0; category < lexicon.getCategoryCount(); category++) {
+                builder.addCategory(lexicon.getFirstWord(category),
+                        lexicon.getCategoryWordCount(category));
+            }
+            builder.fillFromAllWords();
+        }
+        return new DistractorIndex(lexicon.computeChecksum(), wordCount, distractors);
+    }
+
+    /**
+     * Read the index of the given lexicon from the file, or build it and store it in the file
+     * if it is missing, damaged or was built from another lexicon.
+     */
+    public static DistractorIndex load(File file, Lexicon lexicon) {
+        try {
+            return read(file, lexicon.computeChecksum());
+        } catch (IOException e) {
+            //Not built yet, or built from another version of the vocabulary.
+            DistractorIndex distractorIndex = build(lexicon);
+            try {
+                distractorIndex.write(file);
+            } catch (IOException writeError) {
+                //It is built again next time.
+            }
+            return distractorIndex;
+        }
+    }
+
+    /**
+     * Read an index written by {@link #write(File)}.
+     *
+     * @param checksum is the {@link Lexicon#computeChecksum() checksum} of the current lexicon.
+     * @throws IOException if the file cannot be read or was built from another lexicon.
+     */
+    public static DistractorIndex read(File file, long checksum) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC
+                    || buffer.getInt(4) != VERSION || buffer.getInt(8) != SLOTS) {
+                throw new IOException("Not a distractor index");
+            }
+            if (buffer.getLong(12) != checksum) {
+                throw new IOException("Distractor index of another lexicon");
+            }
+            int wordCount = buffer.getInt(20);
+            int length = buffer.getInt(24);
+            if (length != wordCount * 2 * SLOTS || buffer.limit() != HEADER_BYTES + length * 4) {
+                throw new IOException("Truncated distractor index");
+            }
+            int[] distractors = new int[length];
+            buffer.position(HEADER_BYTES);
+            buffer.asIntBuffer().get(distractors);
+            return new DistractorIndex(checksum, wordCount, distractors);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Write the index to the given file, replacing it at once so that a reader never sees it
+     * half written.
+     */
+    public void write(File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + mDistractors.length * 4);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(SLOTS).putLong(mChecksum)
+                .putInt(mWordCount).putInt(mDistractors.length);
+        buffer.asIntBuffer().put(mDistractors);
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(buffer.array());
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Unable to write " + file);
+        }
+    }
+
+    /**
+     * Return the number of words in the index.
+     */
+    public int getWordCount() {
+        return mWordCount;
+    }
+
+    /**
+     * Copy the distractors of a word, best first, into the given array of {@link #SLOTS} ints.
+     *
+     * @param direction is {@link #FRENCH_TO_ENGLISH} or {@link #ENGLISH_TO_FRENCH}.
+     * @return the number of distractors copied, less than {@link #SLOTS} only for tiny lexicons.
+     */
+    public int getDistractors(int word, int direction, int[] distractors) {
+        int start = (word * 2 + direction) * SLOTS;
+        int count = 0;
+        while (count < SLOTS && mDistractors[start + count] != NONE) {
+            distractors[count] = mDistractors[start + count];
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Return how much alike two normalized answers look: a shared start counts most, then a
+     * shared ending, and each letter of difference in length counts against.
+     */
+    static int score(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int prefix = 0;
+        while (prefix < length && a.charAt(prefix) == b.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < length - prefix
+                && a.charAt(a.length() - 1 - suffix) == b.charAt(b.length() - 1 - suffix)) {
+            suffix++;
+        }
+        return 4 * prefix + 2 * suffix - 3 * Math.abs(a.length() - b.length());
+    }
+
+    /**
+     * Fills the distractors of one direction.
+     */
+    private static final class Builder {
+        private final String[] mAnswers;
+        private final int[] mDistractors;
+        private final int mDirection;
+
+        //Candidates of the word being filled and their scores, reused for every word.
+        private final int[] mCandidates = new int[4 * WINDOW];
+        private final int[] mScores = new int[4 * WINDOW];
+
+        Builder(String[] answers, int[] distractors, int direction) {
+            mAnswers = answers;
+            mDistractors = distractors;
+            mDirection = direction;
+        }
+
+        /**
+         * Pick the distractors of the words of a category among the category's words.
+         */
+        void addCategory(int firstWord, int wordCount) {
+            Integer[] byLength = sortedWords(firstWord, wordCount, true);
+            Integer[] byText = sortedWords(firstWord, wordCount, false);
+            int[] lengthPositions = new int[wordCount];
+            int[] textPositions = new int[wordCount];
+            for (int i = 0; i < wordCount; i++) {
+                lengthPositions[byLength[i] - firstWord] = i;
+                textPositions[byText[i] - firstWord] = i;
+            }
+
+            for (int word = firstWord; word < firstWord + wordCount; word++) {
+                int count = 0;
+                count = addNeighbours(byLength, lengthPositions[word - firstWord], count);
+                count = addNeighbours(byText, textPositions[word - firstWord], count);
+                String answer = mAnswers[word];
+                for (int i = 0; i < count; i++) {
+                    mScores[i] = score(answer, mAnswers[mCandidates[i]]);
+                }
+                //Best candidates first; there are only a few of them.
+                for (int i = 1; i < count; i++) {
+                    int candidate = mCandidates[i];
+                    int score = mScores[i];
+                    int j = i - 1;
+                    while (j >= 0 && mScores[j] < score) {
+                        mCandidates[j + 1] = mCandidates[j];
+                        mScores[j + 1] = mScores[j];
+                        j--;
+                    }
+                    mCandidates[j + 1] = candidate;
+                    mScores[j + 1] = score;
+                }
+                for (int i = 0; i < count; i++) {
+                    add(word, mCandidates[i]);
+                }
+            }
+        }
+
+        /**
+         * Top up the words which have too few distractors in their category with the words of
+         * any category closest in length.
+         */
+        void fillFromAllWords() {
+            Integer[] byLength = null;
+            int[] positions = null;
+            for (int word = 0; word < mAnswers.length; word++) {
+                if (mDistractors[slot(word, SLOTS - 1)] != NONE) {
+                    continue;
+                }
+                if (byLength == null) {
+                    byLength = sortedWords(0, mAnswers.length, true);
+                    positions = new int[mAnswers.length];
+                    for (int i = 0; i < byLength.length; i++) {
+                        positions[byLength[i]] = i;
+                    }
+                }
+                int position = positions[word];
+                for (int offset = 1; offset < byLength.length; offset++) {
+                    if (position - offset >= 0) {
+                        add(word, byLength[position - offset]);
+                    }
+                    if (position + offset < byLength.length) {
+                        add(word, byLength[position + offset]);
+                    }
+                    if (mDistractors[slot(word, SLOTS - 1)] != NONE
+                            || (position - offset < 0 && position + offset >= byLength.length)) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        private int addNeighbours(Integer[] sorted, int position, int count) {
+            int from = Math.max(0, position - WINDOW);
+            int to = Math.min(sorted.length, position + WINDOW + 1);
+            for (int i = from; i < to; i++) {
+                if (i != position) {
+                    mCandidates[count++] = sorted[i];
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Add a distractor to a word unless it is full, or the distractor reads like the answer
+         * or one of the distractors already added.
+         */
+        private void add(int word, int distractor) {
+            String text = mAnswers[distractor];
+            if (text.equals(mAnswers[word])) {
+                return;
+            }
+            for (int i = 0; i < SLOTS; i++) {
+                int slot = slot(word, i);
+                if (mDistractors[slot] == NONE) {
+                    mDistractors[slot] = distractor;
+                    return;
+                }
+                if (mAnswers[mDistractors[slot]].equals(text)) {
+                    return;
+                }
+            }
+        }
+
+        private int slot(int word, int index) {
+            return (word * 2 + mDirection) * SLOTS + index;
+        }
+
+        private Integer[] sortedWords(int firstWord, int wordCount, final boolean byLength) {
+            Integer[] words = new Integer[wordCount];
+            for (int i = 0; i < wordCount; i++) {
+                words[i] = firstWord + i;
+            }
+            Arrays.sort(words, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    String first = mAnswers[a];
+                    String second = mAnswers[b];
+                    if (byLength && first.length() != second.length()) {
+                        return first.length() - second.length();
+                    }
+                    return first.compareTo(second);
+                }
+            });
+            return words;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.android.miwok;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * {@link FirstFrame} defers work until an {@link Activity} has drawn its first frame, so that
+ * the screen appears before anything it does not need to show is initialized. It also records
+ * the time to first frame, measured from the start of {@code onCreate}.
+ */
+public final class FirstFrame {
+
+    private FirstFrame() {
+    }
+
+    /**
+     * Run the given work on the UI thread right after the first frame of the activity has been
+     * drawn, and record the time from startNanos to that frame.
+     *
+     * @param startNanos is the {@link System#nanoTime()} at which the activity was created.
+     * @param histogram receives the time to first frame.
+     * @param work is run once the frame has been drawn.
+     */
+    public static void runAfter(Activity activity, final long startNanos,
+                                final LatencyHistogram histogram, final Runnable work) {
+        final View decorView = activity.getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                        //Posted, the work runs once the frame being drawn has been drawn.
+                        decorView.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                histogram.recordSince(startNanos);
+                                work.run();
+                            }
+                        });
+                        return true;
+                    }
+                });
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.android.miwok;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.RecyclerView;
+import android.view.Choreographer;
+
+/**
+ * {@link FrameMonitor} records the interval between frames into
+ * {@link Metrics#FRAME_INTERVAL} while a list scrolls. Frames are only watched while scrolling,
+ * so an idle list does not keep the display busy.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+public class FrameMonitor extends RecyclerView.OnScrollListener
+        implements Choreographer.FrameCallback {
+
+    private RecyclerView mRecyclerView;
+
+    private boolean mRunning;
+
+    //Vsync time of the previous frame, or 0 before the first one.
+    private long mLastFrameNanos;
+
+    /**
+     * Start watching the frames while the given list scrolls. {@link Choreographer} only exists
+     * since Jelly Bean, so callers must check the version before creating the monitor.
+     */
+    public void attach(RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+        recyclerView.addOnScrollListener(this);
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (newState != RecyclerView.SCROLL_STATE_IDLE && !mRunning) {
+            mRunning = true;
+            mLastFrameNanos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        } else if (newState == RecyclerView.SCROLL_STATE_IDLE && mRunning) {
+            mRunning = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        if (!ViewCompat.isAttachedToWindow(mRecyclerView)) {
+            //The screen was closed while scrolling.
+            mRunning = false;
+            return;
+        }
+        if (mLastFrameNanos != 0) {
+            Metrics.FRAME_INTERVAL.record((frameTimeNanos - mLastFrameNanos) / 1000);
+        }
+        mLastFrameNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
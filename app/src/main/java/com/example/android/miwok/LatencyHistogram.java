@@ -0,0 +1,155 @@
+package com.example.android.miwok;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link LatencyHistogram} counts durations in microseconds into log-linear buckets, in the
+ * manner of HdrHistogram: every power of two range is split into 16 buckets, so reported
+ * values are within 6.25% of the recorded ones.
+ *
+ * <p>Recording is lock-free and does not allocate, so histograms can stay enabled in release
+ * builds and be recorded from any thread.
+ */
+public final class LatencyHistogram {
+
+    //Each power of two range is split into 2^SUB_BUCKET_BITS buckets.
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    //Longer durations, about 19 hours, are counted as this one.
+    private static final long MAX_MICROS = (1L << 36) - 1;
+
+    private static final int BUCKET_COUNT = getBucketIndex(MAX_MICROS) + 1;
+
+    private final String mName;
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mMaxMicros = new AtomicLong();
+
+    /**
+     * Create a new empty {@link LatencyHistogram}.
+     *
+     * @param name identifies the measured duration in reports.
+     */
+    public LatencyHistogram(String name) {
+        mName = name;
+    }
+
+    /**
+     * Return the name of the measured duration.
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Count a duration in microseconds.
+     */
+    public void record(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        } else if (micros > MAX_MICROS) {
+            micros = MAX_MICROS;
+        }
+        mCounts.incrementAndGet(getBucketIndex(micros));
+
+        long max = mMaxMicros.get();
+        while (micros > max && !mMaxMicros.compareAndSet(max, micros)) {
+            max = mMaxMicros.get();
+        }
+    }
+
+    /**
+     * Count the duration since the given {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record((System.nanoTime() - startNanos) / 1000);
+    }
+
+    /**
+     * Return the number of recorded durations.
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += mCounts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Return the number of recorded durations longer than the given one.
+     */
+    public long getCountAbove(long micros) {
+        long count = 0;
+        for (int i = getBucketIndex(Math.min(micros, MAX_MICROS)) + 1; i < BUCKET_COUNT; i++) {
+            count += mCounts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Return the duration in microseconds which the given percentage of the recorded ones do
+     * not exceed, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        //Read the buckets once, so that concurrent recording does not skew the result.
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = mCounts.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(getBucketEnd(i), getMaxMicros());
+            }
+        }
+        return getMaxMicros();
+    }
+
+    /**
+     * Return the longest recorded duration in microseconds.
+     */
+    public long getMaxMicros() {
+        return mMaxMicros.get();
+    }
+
+    /**
+     * Forget all recorded durations.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mCounts.set(i, 0);
+        }
+        mMaxMicros.set(0);
+    }
+
+    private static int getBucketIndex(long micros) {
+        if (micros < 2 * SUB_BUCKET_COUNT) {
+            return (int) micros;
+        }
+        //Split [2^k, 2^(k + 1)) in SUB_BUCKET_COUNT buckets of 2^(k - SUB_BUCKET_BITS).
+        int k = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = k - SUB_BUCKET_BITS;
+        return (k - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT
+                + (int) (micros >> shift) - SUB_BUCKET_COUNT;
+    }
+
+    //Return the largest duration counted in the given bucket.
+    private static long getBucketEnd(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long start = (long) (index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT) << shift;
+        return start + (1L << shift) - 1;
+    }
+}
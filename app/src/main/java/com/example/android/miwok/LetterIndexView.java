@@ -0,0 +1,81 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.support.v4.content.ContextCompat;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * Vertical A-Z index beside a list, preceded by '#'. Touching or dragging over it reports the
+ * letter under the finger, as numbered by {@link WordSections#getLetter(String)}.
+ */
+public class LetterIndexView extends View {
+
+    /**
+     * Interface definition for a callback invoked when a letter of the index is touched.
+     */
+    public interface OnLetterSelectedListener {
+        void onLetterSelected(int letter);
+    }
+
+    private static final String LETTERS = "#ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private OnLetterSelectedListener mOnLetterSelectedListener;
+
+    //Letter last reported during the current touch, -1 if none.
+    private int mSelectedLetter = -1;
+
+    public LetterIndexView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        mPaint.setColor(ContextCompat.getColor(context, R.color.primary_color));
+        mPaint.setTextAlign(Paint.Align.CENTER);
+        mPaint.setTextSize(getResources().getDimension(R.dimen.letter_index_text_size));
+        mPaint.setFakeBoldText(true);
+    }
+
+    /**
+     * Register a callback to be invoked when a letter is touched.
+     */
+    public void setOnLetterSelectedListener(OnLetterSelectedListener listener) {
+        mOnLetterSelectedListener = listener;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        float letterHeight = (float) getHeight() / LETTERS.length();
+        float x = getWidth() / 2f;
+        //Center each letter vertically in its slot.
+        float baseline = (letterHeight - mPaint.ascent() - mPaint.descent()) / 2f;
+        for (int i = 0; i < LETTERS.length(); i++) {
+            canvas.drawText(LETTERS, i, i + 1, x, i * letterHeight + baseline, mPaint);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_MOVE:
+                int letter = (int) (event.getY() * LETTERS.length() / getHeight());
+                letter = Math.max(0, Math.min(LETTERS.length() - 1, letter));
+                if (letter != mSelectedLetter) {
+                    mSelectedLetter = letter;
+                    if (mOnLetterSelectedListener != null) {
+                        mOnLetterSelectedListener.onLetterSelected(letter);
+                    }
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                mSelectedLetter = -1;
+                return true;
+            default:
+                return super.onTouchEvent(event);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+/**
+ * {@link Lexicon} reads the vocabulary compiled into the binary lexicon asset at build time.
+ * The asset is memory-mapped and entries are decoded lazily by index, so opening the lexicon
+ * or a category of it only costs reading the header, however many words it holds.
+ * See {@code LexiconCompiler} in buildSrc for the file layout.
+ */
+public final class Lexicon {
+
+    //Name of the lexicon in the assets. It must be stored uncompressed so it can be mapped.
+    public static final String ASSET_NAME = "lexicon.lex";
+
+    private static final int MAGIC = 0x4D4C4558;
+    private static final int VERSION = 1;
+
+    //Returned for words without an image or audio file.
+    private static final int NO_STRING = -1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer mBuffer;
+    private final int mCategoryCount;
+    private final int mWordCount;
+    private final int mStringCount;
+    private final int mCategoriesOffset;
+    private final int mIdsOffset;
+    private final int mEnglishOffset;
+    private final int mFrenchOffset;
+    private final int mImageOffset;
+    private final int mAudioOffset;
+    private final int mStringsOffset;
+    private final int mStringDataOffset;
+
+    /**
+     * Create a {@link Lexicon} reading from the given buffer, which holds a whole lexicon file.
+     *
+     * @throws IOException if the buffer does not hold a lexicon of a supported version.
+     */
+    public Lexicon(ByteBuffer buffer) throws IOException {
+        mBuffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a lexicon");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported lexicon version " + buffer.getInt(4));
+        }
+        mCategoryCount = buffer.getInt(8);
+        mWordCount = buffer.getInt(12);
+        mStringCount = buffer.getInt(16);
+        mCategoriesOffset = buffer.getInt(20);
+        mIdsOffset = buffer.getInt(24);
+        mEnglishOffset = buffer.getInt(28);
+        mFrenchOffset = buffer.getInt(32);
+        mImageOffset = buffer.getInt(36);
+        mAudioOffset = buffer.getInt(40);
+        mStringsOffset = buffer.getInt(44);
+        mStringDataOffset = buffer.getInt(48);
+    }
+
+    /**
+     * Memory-map the lexicon asset of the app.
+     */
+    public static Lexicon open(Context context) throws IOException {
+        AssetFileDescriptor afd = context.getAssets().openFd(ASSET_NAME);
+        FileInputStream in = afd.createInputStream();
+        try {
+            //The mapping stays valid after the file has been closed.
+            FileChannel channel = in.getChannel();
+            return new Lexicon(channel.map(FileChannel.MapMode.READ_ONLY,
+                    afd.getStartOffset(), afd.getDeclaredLength()));
+        } finally {
+            in.close();
+            afd.close();
+        }
+    }
+
+    /**
+     * Memory-map a lexicon file, e.g. the lexicon of an installed vocabulary pack.
+     */
+    public static Lexicon open(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            return new Lexicon(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Return the number of categories in the lexicon.
+     */
+    public int getCategoryCount() {
+        return mCategoryCount;
+    }
+
+    /**
+     * Return the total number of words in the lexicon.
+     */
+    public int getWordCount() {
+        return mWordCount;
+    }
+
+    /**
+     * Return the index of the category with the given key, or -1 if there is none.
+     */
+    public int findCategory(String key) {
+        for (int i = 0; i < mCategoryCount; i++) {
+            if (key.equals(getCategoryKey(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the key of the category at the given index.
+     */
+    public String getCategoryKey(int category) {
+        return getString(mBuffer.getInt(mCategoriesOffset + category * 12));
+    }
+
+    /**
+     * Return the index of the first word of the given category.
+     * The words of a category have consecutive indices.
+     */
+    public int getFirstWord(int category) {
+        return mBuffer.getInt(mCategoriesOffset + category * 12 + 4);
+    }
+
+    /**
+     * Return the number of words in the given category.
+     */
+    public int getCategoryWordCount(int category) {
+        return mBuffer.getInt(mCategoriesOffset + category * 12 + 8);
+    }
+
+    /**
+     * Return the stable id of the word at the given index.
+     */
+    public long getId(int word) {
+        return mBuffer.getLong(mIdsOffset + word * 8);
+    }
+
+    /**
+     * Return the English translation of the word at the given index.
+     */
+    public String getDefaultTranslation(int word) {
+        return getString(mBuffer.getInt(mEnglishOffset + word * 4));
+    }
+
+    /**
+     * Return the French translation of the word at the given index.
+     */
+    public String getFrenchTranslation(int word) {
+        return getString(mBuffer.getInt(mFrenchOffset + word * 4));
+    }
+
+    /**
+     * Return the resource name of the word's image, or null if it has none.
+     */
+    public String getImageName(int word) {
+        return getString(mBuffer.getInt(mImageOffset + word * 4));
+    }
+
+    /**
+     * Return the resource name of the word's pronunciation, or null if it has none.
+     */
+    public String getAudioName(int word) {
+        return getString(mBuffer.getInt(mAudioOffset + word * 4));
+    }
+
+    /**
+     * Bulk copy the word columns into the given arrays, which must hold a value per word.
+     * Strings are read as references into {@link #readStringOffsets()}, -1 meaning none.
+     */
+    public void readColumns(long[] ids, int[] defaultTranslations, int[] frenchTranslations,
+                            int[] imageNames, int[] audioNames) {
+        slice(mIdsOffset).asLongBuffer().get(ids, 0, mWordCount);
+        slice(mEnglishOffset).asIntBuffer().get(defaultTranslations, 0, mWordCount);
+        slice(mFrenchOffset).asIntBuffer().get(frenchTranslations, 0, mWordCount);
+        slice(mImageOffset).asIntBuffer().get(imageNames, 0, mWordCount);
+        slice(mAudioOffset).asIntBuffer().get(audioNames, 0, mWordCount);
+    }
+
+    /**
+     * Return the offsets of the strings into {@link #readStringData()}. String i ends where
+     * string i + 1 starts, so there is one more offset than strings.
+     */
+    public int[] readStringOffsets() {
+        int[] offsets = new int[mStringCount + 1];
+        slice(mStringsOffset).asIntBuffer().get(offsets);
+        return offsets;
+    }
+
+    /**
+     * Return a copy of the UTF-8 bytes of all strings.
+     */
+    public byte[] readStringData() {
+        byte[] data = new byte[mBuffer.getInt(mStringsOffset + mStringCount * 4)];
+        slice(mStringDataOffset).get(data);
+        return data;
+    }
+
+    /**
+     * Return a checksum of the whole lexicon, which changes whenever the vocabulary does. Data
+     * derived from the lexicon and stored across runs is keyed by it.
+     */
+    public long computeChecksum() {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = slice(0);
+        byte[] chunk = new byte[8192];
+        while (buffer.hasRemaining()) {
+            int length = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        return crc.getValue();
+    }
+
+    //Return a view of the buffer starting at the given offset, leaving its position untouched.
+    private ByteBuffer slice(int offset) {
+        ByteBuffer buffer = mBuffer.duplicate();
+        buffer.position(offset);
+        return buffer.slice();
+    }
+
+    private String getString(int index) {
+        if (index == NO_STRING) {
+            return null;
+        }
+        int start = mBuffer.getInt(mStringsOffset + index * 4);
+        int end = mBuffer.getInt(mStringsOffset + index * 4 + 4);
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = mBuffer.get(mStringDataOffset + start + i);
+        }
+        return new String(bytes, UTF_8);
+    }
+}
@@ -15,74 +15,202 @@
  */
 package com.example.android.miwok;
 
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.os.Bundle;
+import android.support.v4.os.TraceCompat;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
+import android.text.format.Formatter;
+import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewGroup;
+import android.widget.EditText;
 import android.widget.TextView;
+import android.widget.Toast;
 
-public class MainActivity extends AppCompatActivity {
+import java.io.IOException;
+import java.util.List;
+
+public class MainActivity extends AppCompatActivity implements View.OnClickListener {
+
+    //Holds the categories of the installed vocabulary packs.
+    private ViewGroup mPackCategories;
+
+    /**
+     * Shows the categories of the installed packs below the built-in ones.
+     */
+    private final WordRepository.OnPacksLoadedListener mOnPacksLoadedListener =
+            new WordRepository.OnPacksLoadedListener() {
+                @Override
+                public void onPacksLoaded(List<VocabularyPack> packs) {
+                    if (!isFinishing()) {
+                        showPacks(packs);
+                    }
+                }
+            };
+
+    /**
+     * Reports how the installation of a pack went, and shows its categories.
+     */
+    private final WordRepository.OnPackInstalledListener mOnPackInstalledListener =
+            new WordRepository.OnPackInstalledListener() {
+                @Override
+                public void onPackInstalled(PackInstaller.Report report) {
+                    Toast.makeText(MainActivity.this, getString(R.string.pack_installed,
+                            report.getPack().getId(),
+                            Formatter.formatShortFileSize(MainActivity.this, report.getBytes()),
+                            Formatter.formatShortFileSize(MainActivity.this,
+                                    report.getBytesPerSecond()),
+                            Formatter.formatShortFileSize(MainActivity.this,
+                                    report.getPeakHeapBytes())),
+                            Toast.LENGTH_LONG).show();
+                    WordRepository.getInstance(MainActivity.this)
+                            .loadPacks(mOnPacksLoadedListener);
+                }
+
+                @Override
+                public void onPackInstallFailed(IOException error) {
+                    Toast.makeText(MainActivity.this,
+                            getString(R.string.pack_install_failed, error.getMessage()),
+                            Toast.LENGTH_LONG).show();
+                }
+            };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long startNanos = System.nanoTime();
+        TraceCompat.beginSection("MainActivity.onCreate");
         super.onCreate(savedInstanceState);
 
         // Set the content of the activity to use the activity_main.xml layout file
         setContentView(R.layout.activity_main);
 
-        // Find the View that shows the numbers category
-        TextView numbers = (TextView) findViewById(R.id.numbers);
-
-        // Set a click listener on that View
-        numbers.setOnClickListener(new View.OnClickListener() {
-            // The code in this method will be executed when the numbers View is clicked on.
-            @Override
-            public void onClick(View view) {
-                Intent numbersIntent = new Intent(MainActivity.this, NumbersActivity.class);
-                startActivity(numbersIntent);
-            }
-        });
+        // One click listener opens every category, see onClick
+        findViewById(R.id.numbers).setOnClickListener(this);
+        findViewById(R.id.family).setOnClickListener(this);
+        findViewById(R.id.colors).setOnClickListener(this);
+        findViewById(R.id.phrases).setOnClickListener(this);
+        mPackCategories = (ViewGroup) findViewById(R.id.pack_categories);
 
-        // Find the View that shows the colors category
-        TextView colors = (TextView) findViewById(R.id.colors);
-
-        // Set a click listener on that View
-        colors.setOnClickListener(new View.OnClickListener() {
-            // The code in this method will be executed when the colors View is clicked on.
+        // Once the categories are shown, load the words and build the search index in the
+        // background, so that opening a category or searching is instant, then add the
+        // categories of the installed packs
+        FirstFrame.runAfter(this, startNanos, Metrics.MAIN_FIRST_FRAME, new Runnable() {
             @Override
-            public void onClick(View view) {
-                Intent colorsIntent = new Intent(MainActivity.this, ColorsActivity.class);
-                startActivity(colorsIntent);
+            public void run() {
+                WordRepository repository = WordRepository.getInstance(MainActivity.this);
+                repository.preload();
+                repository.loadPacks(mOnPacksLoadedListener);
             }
         });
+        TraceCompat.endSection();
+    }
 
-        // Find the View that shows the phrases category
-        TextView phrases = (TextView) findViewById(R.id.phrases);
+    // The code in this method will be executed when a category View is clicked on.
+    @Override
+    public void onClick(View view) {
+        String categoryKey;
+        switch (view.getId()) {
+            case R.id.numbers:
+                categoryKey = Category.NUMBERS.getKey();
+                break;
+            case R.id.family:
+                categoryKey = Category.FAMILY.getKey();
+                break;
+            case R.id.colors:
+                categoryKey = Category.COLORS.getKey();
+                break;
+            case R.id.phrases:
+                categoryKey = Category.PHRASES.getKey();
+                break;
+            default:
+                // The category of a pack, whose key is the tag of its View
+                categoryKey = (String) view.getTag();
+                break;
+        }
+        Intent categoryIntent = new Intent(this, CategoryActivity.class);
+        categoryIntent.putExtra(CategoryActivity.EXTRA_CATEGORY, categoryKey);
+        startActivity(categoryIntent);
+    }
 
-        // Set a click listener on that View
-        phrases.setOnClickListener(new View.OnClickListener() {
-            // The code in this method will be executed when the phrases View is clicked on.
-            @Override
-            public void onClick(View view) {
-                Intent phrasesIntent = new Intent(MainActivity.this, PhrasesActivity.class);
-                startActivity(phrasesIntent);
+    private void showPacks(List<VocabularyPack> packs) {
+        mPackCategories.removeAllViews();
+        LayoutInflater inflater = getLayoutInflater();
+        for (VocabularyPack pack : packs) {
+            for (Category category : pack.getCategories()) {
+                View item = inflater.inflate(R.layout.category_item, mPackCategories, false);
+                item.setBackgroundColor(category.getColor(this));
+                TextView title = (TextView) item.findViewById(R.id.category_title);
+                title.setText(category.getTitle(this));
+                title.setTag(category.getKey());
+                title.setOnClickListener(this);
+                mPackCategories.addView(item);
             }
-        });
+        }
+    }
 
-        // Find the View that shows the family category
-        TextView family = (TextView) findViewById(R.id.family);
+    /**
+     * Ask for the location of a pack and install it.
+     */
+    private void showInstallPackDialog() {
+        final EditText location = new EditText(this);
+        location.setHint(R.string.install_pack_hint);
+        location.setSingleLine(true);
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.action_install_pack)
+                .setView(location)
+                .setPositiveButton(R.string.install_pack, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        String text = location.getText().toString().trim();
+                        if (text.isEmpty()) {
+                            return;
+                        }
+                        Toast.makeText(MainActivity.this, R.string.installing_pack,
+                                Toast.LENGTH_SHORT).show();
+                        WordRepository.getInstance(MainActivity.this)
+                                .installPack(text, mOnPackInstalledListener);
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
 
-        // Set a click listener on that View
-        family.setOnClickListener(new View.OnClickListener() {
-            // The code in this method will be executed when the family View is clicked on.
-            @Override
-            public void onClick(View view) {
-                Intent familyIntent = new Intent(MainActivity.this, FamilyActivity.class);
-                startActivity(familyIntent);
-            }
-        });
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.main, menu);
+        menu.findItem(R.id.action_metrics).setVisible(BuildConfig.DEBUG);
+        return true;
+    }
 
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_search) {
+            startActivity(new Intent(this, SearchActivity.class));
+            return true;
+        } else if (item.getItemId() == R.id.action_all_words) {
+            startActivity(new Intent(this, AllWordsActivity.class));
+            return true;
+        } else if (item.getItemId() == R.id.action_review) {
+            startActivity(new Intent(this, ReviewActivity.class));
+            return true;
+        } else if (item.getItemId() == R.id.action_quiz) {
+            startActivity(new Intent(this, QuizActivity.class));
+            return true;
+        } else if (item.getItemId() == R.id.action_practice) {
+            startActivity(new Intent(this, PracticeActivity.class));
+            return true;
+        } else if (item.getItemId() == R.id.action_install_pack) {
+            showInstallPackDialog();
+            return true;
+        } else if (item.getItemId() == R.id.action_metrics) {
+            startActivity(new Intent(this, MetricsActivity.class));
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
     }
 
 }
-
@@ -0,0 +1,73 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.content.res.Resources;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link MediaFiles} gives image and audio files of installed vocabulary packs an int id, so
+ * that they are passed around, cached and played like the image and audio resources of the app.
+ * File ids are negative, below -1, and do not clash with resource ids or
+ * {@link Word}'s marker for words without an image.
+ */
+public final class MediaFiles {
+
+    private static final int FIRST_ID = Integer.MIN_VALUE;
+
+    private static final List<File> sFiles = new ArrayList<>();
+    private static final Map<String, Integer> sIds = new HashMap<>();
+
+    private MediaFiles() {
+    }
+
+    /**
+     * Return the id of the given file, giving it one if it has none yet.
+     */
+    public static synchronized int getId(File file) {
+        String path = file.getPath();
+        Integer id = sIds.get(path);
+        if (id == null) {
+            id = FIRST_ID + sFiles.size();
+            sFiles.add(file);
+            sIds.put(path, id);
+        }
+        return id;
+    }
+
+    /**
+     * Return whether the given image or audio id is the id of a file rather than a resource.
+     */
+    public static boolean isFile(int id) {
+        return id < -1;
+    }
+
+    /**
+     * Return the file with the given id.
+     */
+    public static synchronized File getFile(int id) {
+        return sFiles.get(id - FIRST_ID);
+    }
+
+    /**
+     * Return a name of the given image or audio which, unlike its id, is stable across builds
+     * and processes, or null if it has none. Resources are named after their entry name, and
+     * files after their path and modification time, so that a replaced file gets a new name.
+     */
+    public static String getStableName(Context context, int id) {
+        if (isFile(id)) {
+            File file = getFile(id);
+            return "f_" + Integer.toHexString(file.getPath().hashCode()) + "_"
+                    + Long.toHexString(file.lastModified());
+        }
+        try {
+            return "r_" + context.getResources().getResourceEntryName(id);
+        } catch (Resources.NotFoundException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.android.miwok;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * {@link Metrics} holds the process wide {@link LatencyHistogram}s of the startup, playback,
+ * scoring and list scrolling paths. They are always recorded; the debug screen
+ * {@link MetricsActivity} shows them, along with the counters of the {@link PcmCache}, and dumps
+ * them to a file.
+ */
+public final class Metrics {
+
+    //From the tap on a word to its sound being started, including any wait for decoding.
+    public static final LatencyHistogram TAP_TO_SOUND = new LatencyHistogram("tap_to_sound");
+
+    //Requesting audio focus before playing a word.
+    public static final LatencyHistogram AUDIO_FOCUS = new LatencyHistogram("audio_focus");
+
+    //Waiting for a tapped word to be decoded, only for words which were not prefetched.
+    public static final LatencyHistogram DECODE_WAIT = new LatencyHistogram("decode_wait");
+
+    //Starting an already decoded sound.
+    public static final LatencyHistogram SOUND_START = new LatencyHistogram("sound_start");
+
+    //Binding a row of a word list.
+    public static final LatencyHistogram ROW_BIND = new LatencyHistogram("row_bind");
+
+    //From the creation of the main screen to its first frame.
+    public static final LatencyHistogram MAIN_FIRST_FRAME =
+            new LatencyHistogram("main_first_frame");
+
+    //From the creation of a category screen to its first frame.
+    public static final LatencyHistogram CATEGORY_FIRST_FRAME =
+            new LatencyHistogram("category_first_frame");
+
+    //Generating a quiz question.
+    public static final LatencyHistogram QUIZ_QUESTION = new LatencyHistogram("quiz_question");
+
+    //Grading an answer typed in the practice.
+    public static final LatencyHistogram PRACTICE_GRADE = new LatencyHistogram("practice_grade");
+
+    //Scoring a spoken word against its reference clip, the features of the attempt included.
+    public static final LatencyHistogram PRONUNCIATION_SCORE =
+            new LatencyHistogram("pronunciation_score");
+
+    //Interval between two frames while a word list scrolls.
+    public static final LatencyHistogram FRAME_INTERVAL = new LatencyHistogram("frame_interval");
+
+    //Frames longer than this are counted as janky, about two frames at 60Hz.
+    public static final long JANK_FRAME_MICROS = 2 * 16667;
+
+    private static final LatencyHistogram[] HISTOGRAMS = {MAIN_FIRST_FRAME,
+            CATEGORY_FIRST_FRAME, TAP_TO_SOUND, AUDIO_FOCUS, DECODE_WAIT, SOUND_START, ROW_BIND,
+            QUIZ_QUESTION, PRACTICE_GRADE, PRONUNCIATION_SCORE, FRAME_INTERVAL};
+
+    private Metrics() {
+    }
+
+    /**
+     * Forget everything recorded so far.
+     */
+    public static void reset() {
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+        PcmCache pcmCache = PcmCache.peekInstance();
+        if (pcmCache != null) {
+            pcmCache.resetCounters();
+        }
+        SpeechCache speechCache = SpeechCache.peekInstance();
+        if (speechCache != null) {
+            speechCache.resetCounters();
+        }
+    }
+
+    /**
+     * Write a table of the count and percentiles in microseconds of every histogram.
+     */
+    public static void writeReport(Writer writer) throws IOException {
+        writer.write(String.format(Locale.ROOT, "%-20s %8s %8s %8s %8s %8s%n",
+                "us", "count", "p50", "p95", "p99", "max"));
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            writer.write(String.format(Locale.ROOT, "%-20s %8d %8d %8d %8d %8d%n",
+                    histogram.getName(), histogram.getCount(), histogram.getPercentile(50),
+                    histogram.getPercentile(95), histogram.getPercentile(99),
+                    histogram.getMaxMicros()));
+        }
+        writer.write(String.format(Locale.ROOT, "janky frames (> %d us): %d%n",
+                JANK_FRAME_MICROS, FRAME_INTERVAL.getCountAbove(JANK_FRAME_MICROS)));
+        PcmCache pcmCache = PcmCache.peekInstance();
+        if (pcmCache != null) {
+            writer.write(String.format(Locale.ROOT,
+                    "pcm cache: %d hits, %d misses, %d ms decoding saved, %d KB%n",
+                    pcmCache.getHitCount(), pcmCache.getMissCount(),
+                    pcmCache.getSavedDecodeMillis(), pcmCache.getSizeBytes() / 1024));
+        }
+        SpeechCache speechCache = SpeechCache.peekInstance();
+        if (speechCache != null) {
+            long lookups = speechCache.getHitCount() + speechCache.getMissCount();
+            writer.write(String.format(Locale.ROOT,
+                    "speech cache: %d hits, %d misses, %d%% hit rate, %d synthesized in %d ms,"
+                            + " %d KB%n",
+                    speechCache.getHitCount(), speechCache.getMissCount(),
+                    lookups == 0 ? 0 : speechCache.getHitCount() * 100 / lookups,
+                    speechCache.getSynthesizedCount(), speechCache.getSynthesisMillis(),
+                    speechCache.getSizeBytes() / 1024));
+        }
+    }
+
+    /**
+     * Write the report to a new file in the given directory and return the file.
+     */
+    public static File dump(File directory) throws IOException {
+        File file = new File(directory, "metrics-" + System.currentTimeMillis() + ".txt");
+        Writer writer = new FileWriter(file);
+        try {
+            writeReport(writer);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.android.miwok;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Debug screen showing the p50, p95 and p99 of the {@link Metrics} histograms. The report can
+ * be written to a file from the menu or, in debug builds, which export the screen, from the
+ * command line with
+ * {@code adb shell am start -n com.example.android.miwok/.MetricsActivity --ez dump true}.
+ * The file is written to the app's external files directory, from where adb can pull it.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    //Boolean extra asking to write the report to a file when the screen opens.
+    public static final String EXTRA_DUMP = "dump";
+
+    private TextView mReportView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+        mReportView = (TextView) findViewById(R.id.report);
+
+        if (savedInstanceState == null && getIntent().getBooleanExtra(EXTRA_DUMP, false)) {
+            dump();
+        }
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showReport();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.metrics, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_dump_metrics) {
+            dump();
+            return true;
+        } else if (item.getItemId() == R.id.action_reset_metrics) {
+            Metrics.reset();
+            showReport();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    private void showReport() {
+        StringWriter report = new StringWriter();
+        try {
+            Metrics.writeReport(report);
+        } catch (IOException e) {
+            //A StringWriter does not fail.
+        }
+        mReportView.setText(report.toString());
+    }
+
+    private void dump() {
+        //The external files directory can be pulled with adb without root.
+        File directory = getExternalFilesDir(null);
+        if (directory == null) {
+            directory = getFilesDir();
+        }
+        try {
+            File file = Metrics.dump(directory);
+            Toast.makeText(this, getString(R.string.metrics_dumped, file.getPath()),
+                    Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            Toast.makeText(this, R.string.metrics_dump_failed, Toast.LENGTH_SHORT).show();
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.android.miwok;
+
+/**
+ * {@link Mfcc} turns a recording of a word into mel-frequency cepstral coefficients, the
+ * features by which {@link PronunciationScorer} compares the learner's attempt with the
+ * reference clip. Plain Java, so that it runs the same on the JVM.
+ *
+ * <ul>
+ * <li>The samples are resampled to {@link #SAMPLE_RATE} and pre-emphasized.</li>
+ * <li>Each 25 ms frame, every 10 ms, is Hamming windowed and its power spectrum is summed into
+ * {@link #FILTER_COUNT} triangular mel filters, whose logs are turned into cepstral coefficients
+ * by a DCT. The first coefficient, the loudness, is dropped.</li>
+ * <li>Frames more than {@link #SILENCE_DB} quieter than the loudest one are trimmed from both
+ * ends, so that silence before and after the word does not count.</li>
+ * <li>Each coefficient is normalized to zero mean and unit variance over the word, which
+ * removes the coloring of the microphone and the room.</li>
+ * </ul>
+ * The features of a word are a float array of {@link #COEFFICIENT_COUNT} values per frame.
+ * All tables are computed once, so extracting is thread-safe and allocates only its result
+ * and a few frame buffers.
+ */
+public final class Mfcc {
+
+    public static final int SAMPLE_RATE = 16000;
+
+    //Coefficients kept per frame, c1 to c12.
+    public static final int COEFFICIENT_COUNT = 12;
+
+    //25 ms frames every 10 ms.
+    private static final int FRAME_SIZE = 400;
+    private static final int HOP_SIZE = 160;
+    private static final int FFT_SIZE = 512;
+
+    private static final int FILTER_COUNT = 26;
+    private static final double MIN_FREQUENCY = 60;
+    private static final double MAX_FREQUENCY = 7600;
+
+    private static final float PRE_EMPHASIS = 0.97f;
+
+    private static final double SILENCE_DB = 35;
+
+    //Keeps the log of silent filters finite.
+    private static final double ENERGY_FLOOR = 1e-8;
+
+    //Coefficients which hardly vary over a word are not amplified beyond this.
+    private static final double MIN_DEVIATION = 1e-3;
+
+    private static final float[] WINDOW = new float[FRAME_SIZE];
+    private static final float[] COS = new float[FFT_SIZE / 2];
+    private static final float[] SIN = new float[FFT_SIZE / 2];
+    private static final int[] BIT_REVERSED = new int[FFT_SIZE];
+
+    //First spectrum bin and weights of each mel filter.
+    private static final int[] FILTER_START = new int[FILTER_COUNT];
+    private static final float[][] FILTER_WEIGHTS = new float[FILTER_COUNT][];
+
+    //DCT-II rows of c1 to c12.
+    private static final float[][] DCT = new float[COEFFICIENT_COUNT][FILTER_COUNT];
+
+    static {
+        for (int i = 0; i < FRAME_SIZE; i++) {
+            WINDOW[i] = (float) (0.54 - 0.46 * Math.cos(2 * Math.PI * i / (FRAME_SIZE - 1)));
+        }
+        for (int i = 0; i < FFT_SIZE / 2; i++) {
+            COS[i] = (float) Math.cos(-2 * Math.PI * i / FFT_SIZE);
+            SIN[i] = (float) Math.sin(-2 * Math.PI * i / FFT_SIZE);
+        }
+        int bits = Integer.numberOfTrailingZeros(FFT_SIZE);
+        for (int i = 0; i < FFT_SIZE; i++) {
+            BIT_REVERSED[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+
+        //Filter edges evenly spaced on the mel scale, as fractional spectrum bins.
+        double minMel = toMel(MIN_FREQUENCY);
+        double maxMel = toMel(MAX_FREQUENCY);
+        double[] edges = new double[FILTER_COUNT + 2];
+        for (int i = 0; i < edges.length; i++) {
+            double frequency = fromMel(minMel + (maxMel - minMel) * i / (FILTER_COUNT + 1));
+            edges[i] = frequency * FFT_SIZE / SAMPLE_RATE;
+        }
+        for (int filter = 0; filter < FILTER_COUNT; filter++) {
+            double left = edges[filter];
+            double center = edges[filter + 1];
+            double right = edges[filter + 2];
+            int start = (int) Math.ceil(left);
+            int end = (int) Math.floor(right);
+            float[] weights = new float[Math.max(0, end - start + 1)];
+            for (int bin = start; bin <= end; bin++) {
+                weights[bin - start] = (float) (bin <= center
+                        ? (bin - left) / (center - left) : (right - bin) / (right - center));
+            }
+            FILTER_START[filter] = start;
+            FILTER_WEIGHTS[filter] = weights;
+        }
+
+        for (int k = 0; k < COEFFICIENT_COUNT; k++) {
+            for (int n = 0; n < FILTER_COUNT; n++) {
+                DCT[k][n] = (float) Math.cos(Math.PI * (k + 1) * (n + 0.5) / FILTER_COUNT);
+            }
+        }
+    }
+
+    private Mfcc() {
+    }
+
+    /**
+     * Return the features of the first count mono samples, recorded at the given rate.
+     * Returns an empty array if there is less than a frame of sound.
+     */
+    public static float[] extract(short[] samples, int count, int sampleRate) {
+        float[] signal = resample(samples, count, sampleRate);
+        for (int i = signal.length - 1; i > 0; i--) {
+            signal[i] -= PRE_EMPHASIS * signal[i - 1];
+        }
+        if (signal.length < FRAME_SIZE) {
+            return new float[0];
+        }
+
+        int frameCount = 1 + (signal.length - FRAME_SIZE) / HOP_SIZE;
+        float[] features = new float[frameCount * COEFFICIENT_COUNT];
+        double[] energies = new double[frameCount];
+        float[] real = new float[FFT_SIZE];
+        float[] imaginary = new float[FFT_SIZE];
+        double[] filterLogs = new double[FILTER_COUNT];
+        for (int frame = 0; frame < frameCount; frame++) {
+            int offset = frame * HOP_SIZE;
+            double energy = 0;
+            for (int i = 0; i < FRAME_SIZE; i++) {
+                float sample = signal[offset + i];
+                energy += sample * sample;
+                real[i] = sample * WINDOW[i];
+            }
+            energies[frame] = energy;
+            for (int i = FRAME_SIZE; i < FFT_SIZE; i++) {
+                real[i] = 0;
+            }
+            for (int i = 0; i < FFT_SIZE; i++) {
+                imaginary[i] = 0;
+            }
+            fft(real, imaginary);
+
+            for (int filter = 0; filter < FILTER_COUNT; filter++) {
+                float[] weights = FILTER_WEIGHTS[filter];
+                int start = FILTER_START[filter];
+                double sum = 0;
+                for (int i = 0; i < weights.length; i++) {
+                    int bin = start + i;
+                    sum += weights[i] * (real[bin] * real[bin] + imaginary[bin] * imaginary[bin]);
+                }
+                filterLogs[filter] = Math.log(sum + ENERGY_FLOOR);
+            }
+            int base = frame * COEFFICIENT_COUNT;
+            for (int k = 0; k < COEFFICIENT_COUNT; k++) {
+                float[] row = DCT[k];
+                double sum = 0;
+                for (int n = 0; n < FILTER_COUNT; n++) {
+                    sum += row[n] * filterLogs[n];
+                }
+                features[base + k] = (float) sum;
+            }
+        }
+
+        //Trim the silent frames at both ends.
+        double maxEnergy = 0;
+        for (double energy : energies) {
+            maxEnergy = Math.max(maxEnergy, energy);
+        }
+        double threshold = maxEnergy * Math.pow(10, -SILENCE_DB / 10);
+        int first = 0;
+        while (first < frameCount && energies[first] < threshold) {
+            first++;
+        }
+        int last = frameCount - 1;
+        while (last > first && energies[last] < threshold) {
+            last--;
+        }
+        if (first > last || maxEnergy == 0) {
+            return new float[0];
+        }
+        float[] trimmed = new float[(last - first + 1) * COEFFICIENT_COUNT];
+        System.arraycopy(features, first * COEFFICIENT_COUNT, trimmed, 0, trimmed.length);
+        normalize(trimmed);
+        return trimmed;
+    }
+
+    /**
+     * Return the number of frames of the given features.
+     */
+    public static int getFrameCount(float[] features) {
+        return features.length / COEFFICIENT_COUNT;
+    }
+
+    /**
+     * Bring each coefficient to zero mean and unit variance over the frames.
+     */
+    private static void normalize(float[] features) {
+        int frameCount = getFrameCount(features);
+        for (int k = 0; k < COEFFICIENT_COUNT; k++) {
+            double sum = 0;
+            double squares = 0;
+            for (int i = k; i < features.length; i += COEFFICIENT_COUNT) {
+                sum += features[i];
+                squares += features[i] * features[i];
+            }
+            double mean = sum / frameCount;
+            double deviation = Math.sqrt(Math.max(0, squares / frameCount - mean * mean));
+            float scale = (float) (1 / Math.max(deviation, MIN_DEVIATION));
+            for (int i = k; i < features.length; i += COEFFICIENT_COUNT) {
+                features[i] = (float) ((features[i] - mean) * scale);
+            }
+        }
+    }
+
+    /**
+     * Convert the samples to floats at {@link #SAMPLE_RATE}, averaging the samples under each
+     * output sample when downsampling and interpolating when upsampling.
+     */
+    static float[] resample(short[] samples, int count, int sampleRate) {
+        if (sampleRate == SAMPLE_RATE) {
+            float[] signal = new float[count];
+            for (int i = 0; i < count; i++) {
+                signal[i] = samples[i] / 32768f;
+            }
+            return signal;
+        }
+        int length = (int) ((long) count * SAMPLE_RATE / sampleRate);
+        float[] signal = new float[length];
+        double step = (double) sampleRate / SAMPLE_RATE;
+        for (int i = 0; i < length; i++) {
+            double position = i * step;
+            if (step > 1) {
+                int start = (int) position;
+                int end = Math.min(count, (int) (position + step));
+                float sum = 0;
+                for (int j = start; j < end; j++) {
+                    sum += samples[j];
+                }
+                signal[i] = sum / Math.max(1, end - start) / 32768f;
+            } else {
+                int index = (int) position;
+                float fraction = (float) (position - index);
+                float next = index + 1 < count ? samples[index + 1] : samples[index];
+                signal[i] = (samples[index] + (next - samples[index]) * fraction) / 32768f;
+            }
+        }
+        return signal;
+    }
+
+    /**
+     * In-place radix-2 FFT of {@link #FFT_SIZE} points.
+     */
+    private static void fft(float[] real, float[] imaginary) {
+        for (int i = 0; i < FFT_SIZE; i++) {
+            int j = BIT_REVERSED[i];
+            if (j > i) {
+                float swap = real[i];
+                real[i] = real[j];
+                real[j] = swap;
+                swap = imaginary[i];
+                imaginary[i] = imaginary[j];
+                imaginary[j] = swap;
+            }
+        }
+        for (int size = 2; size <= FFT_SIZE; size <<= 1) {
+            int half = size >> 1;
+            int stride = FFT_SIZE / size;
+            for (int start = 0; start < FFT_SIZE; start += size) {
+                for (int i = 0; i < half; i++) {
+                    float cos = COS[i * stride];
+                    float sin = SIN[i * stride];
+                    int even = start + i;
+                    int odd = even + half;
+                    float oddReal = real[odd] * cos - imaginary[odd] * sin;
+                    float oddImaginary = real[odd] * sin + imaginary[odd] * cos;
+                    real[odd] = real[even] - oddReal;
+                    imaginary[odd] = imaginary[even] - oddImaginary;
+                    real[even] += oddReal;
+                    imaginary[even] += oddImaginary;
+                }
+            }
+        }
+    }
+
+    private static double toMel(double frequency) {
+        return 2595 * Math.log10(1 + frequency / 700);
+    }
+
+    private static double fromMel(double mel) {
+        return 700 * (Math.pow(10, mel / 2595) - 1);
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.android.miwok;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * {@link PackInstaller} installs a {@link VocabularyPack} from a pack file, streaming it from
+ * local storage or a server. A pack file is, in big-endian order:
+ *
+ * <pre>
+ * magic "MPAK", version     2 ints
+ * manifest length           int
+ * manifest                  UTF-8 JSON, see {@link PackManifest}
+ * files                     the bytes of each file of the manifest, in manifest order
+ * </pre>
+ *
+ * <p>Files are read one chunk at a time into a single buffer, and each chunk is checked against
+ * its SHA-256 in the manifest before it is written. Memory use thus does not depend on the size
+ * of the pack. The pack only replaces an installed pack of the same id once all of it has been
+ * verified.
+ */
+public final class PackInstaller {
+
+    private static final int MAGIC = 0x4D50414B;
+    private static final int VERSION = 1;
+
+    //Name of the manifest in the directory of an installed pack.
+    public static final String MANIFEST_FILE = "manifest.json";
+
+    //Largest manifest accepted.
+    private static final int MAX_MANIFEST_BYTES = 4 * 1024 * 1024;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 15000;
+    private static final int READ_TIMEOUT_MILLIS = 30000;
+
+    private final File mPacksDirectory;
+
+    /**
+     * Create a new {@link PackInstaller} object.
+     *
+     * @param packsDirectory holds a directory per installed pack, named after its id.
+     */
+    public PackInstaller(File packsDirectory) {
+        mPacksDirectory = packsDirectory;
+    }
+
+    /**
+     * Open a pack file to install.
+     *
+     * @param location is an http(s) URL, e.g. of a local stand-in server, or a file path. A
+     *                 relative path is looked up in the given inbox directory.
+     */
+    public static InputStream open(String location, File inboxDirectory) throws IOException {
+        if (location.startsWith("http://") || location.startsWith("https://")) {
+            HttpURLConnection connection = (HttpURLConnection) new URL(location).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                connection.disconnect();
+                throw new IOException("HTTP " + connection.getResponseCode() + " for " + location);
+            }
+            return connection.getInputStream();
+        }
+        File file = new File(location);
+        if (!file.isAbsolute()) {
+            file = new File(inboxDirectory, location);
+        }
+        return new FileInputStream(file);
+    }
+
+    /**
+     * Install the pack read from the stream, which is closed afterwards.
+     *
+     * @return statistics of the installation.
+     * @throws IOException if the pack could not be read or does not match its manifest, in
+     *                     which case nothing is installed.
+     */
+    public Report install(InputStream stream) throws IOException {
+        long startNanos = System.nanoTime();
+        Runtime runtime = Runtime.getRuntime();
+        long startHeap = runtime.totalMemory() - runtime.freeMemory();
+        long peakHeap = startHeap;
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        File directory = null;
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a vocabulary pack");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported pack version " + version);
+            }
+            int manifestLength = in.readInt();
+            if (manifestLength <= 0 || manifestLength > MAX_MANIFEST_BYTES) {
+                throw new IOException("Invalid manifest length " + manifestLength);
+            }
+            byte[] manifestBytes = new byte[manifestLength];
+            in.readFully(manifestBytes);
+            String json = new String(manifestBytes, "UTF-8");
+            PackManifest manifest = PackManifest.parse(json);
+
+            //Written next to the installed pack, then swapped in at once.
+            directory = new File(mPacksDirectory, "." + manifest.getId() + ".tmp");
+            deleteRecursively(directory);
+            if (!directory.mkdirs()) {
+                throw new IOException("Unable to create " + directory);
+            }
+            writeManifest(new File(directory, MANIFEST_FILE), manifestBytes);
+
+            MessageDigest digest = newDigest();
+            byte[] buffer = new byte[manifest.getChunkSize()];
+            long bytes = manifestLength;
+            for (PackManifest.FileEntry file : manifest.getFiles()) {
+                OutputStream out = new FileOutputStream(new File(directory, file.getName()));
+                try {
+                    long remaining = file.getSize();
+                    for (int chunk = 0; remaining > 0; chunk++) {
+                        int length = (int) Math.min(buffer.length, remaining);
+                        in.readFully(buffer, 0, length);
+                        digest.update(buffer, 0, length);
+                        if (!toHex(digest.digest()).equals(file.getChunkHash(chunk))) {
+                            throw new IOException("Chunk " + chunk + " of " + file.getName()
+                                    + " is corrupted");
+                        }
+                        out.write(buffer, 0, length);
+                        remaining -= length;
+                        bytes += length;
+                        peakHeap = Math.max(peakHeap, runtime.totalMemory() - runtime.freeMemory());
+                    }
+                } finally {
+                    out.close();
+                }
+            }
+
+            File installed = new File(mPacksDirectory, manifest.getId());
+            deleteRecursively(installed);
+            if (!directory.renameTo(installed)) {
+                throw new IOException("Unable to install " + installed);
+            }
+            directory = null;
+
+            long millis = (System.nanoTime() - startNanos) / 1000000;
+            return new Report(VocabularyPack.load(installed), bytes, millis,
+                    peakHeap - startHeap);
+        } finally {
+            in.close();
+            if (directory != null) {
+                //The pack is incomplete or corrupted.
+                deleteRecursively(directory);
+            }
+        }
+    }
+
+    private static void writeManifest(File file, byte[] manifest) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(manifest);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+            hex[2 * i + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Delete a file, or a directory and everything in it.
+     */
+    static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Statistics of the installation of a pack.
+     */
+    public static final class Report {
+        private final VocabularyPack mPack;
+        private final long mBytes;
+        private final long mMillis;
+        private final long mPeakHeapBytes;
+
+        Report(VocabularyPack pack, long bytes, long millis, long peakHeapBytes) {
+            mPack = pack;
+            mBytes = bytes;
+            mMillis = millis;
+            mPeakHeapBytes = peakHeapBytes;
+        }
+
+        /**
+         * Return the installed pack.
+         */
+        public VocabularyPack getPack() {
+            return mPack;
+        }
+
+        /**
+         * Return the number of bytes read and verified.
+         */
+        public long getBytes() {
+            return mBytes;
+        }
+
+        /**
+         * Return how long the installation took, including reading the stream.
+         */
+        public long getMillis() {
+            return mMillis;
+        }
+
+        /**
+         * Return the install throughput in bytes per second.
+         */
+        public long getBytesPerSecond() {
+            return mBytes * 1000 / Math.max(1, mMillis);
+        }
+
+        /**
+         * Return the largest growth of the used heap seen while installing, in bytes.
+         */
+        public long getPeakHeapBytes() {
+            return mPeakHeapBytes;
+        }
+    }
+}
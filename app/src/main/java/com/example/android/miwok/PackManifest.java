@@ -0,0 +1,220 @@
+package com.example.android.miwok;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * {@link PackManifest} describes a {@link VocabularyPack}: its categories and the files it is
+ * made of, each split in chunks with the SHA-256 of every chunk so that a pack can be verified
+ * while it streams in. See {@link PackInstaller} for the pack file layout and {@code PackWriter}
+ * in buildSrc, which writes packs.
+ */
+public final class PackManifest {
+
+    //Name of the lexicon of the pack's words, which every pack holds.
+    public static final String LEXICON_FILE = "lexicon.lex";
+
+    //Largest chunk accepted, which bounds the memory used while installing.
+    private static final int MAX_CHUNK_SIZE = 1024 * 1024;
+
+    //Pack ids and file names may not walk out of the pack directory.
+    private static final Pattern ID = Pattern.compile("[a-z0-9_-]+");
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9_.-]+");
+
+    private final String mId;
+    private final int mVersion;
+    private final int mChunkSize;
+    private final List<CategoryEntry> mCategories;
+    private final List<FileEntry> mFiles;
+
+    private PackManifest(String id, int version, int chunkSize, List<CategoryEntry> categories,
+                         List<FileEntry> files) {
+        mId = id;
+        mVersion = version;
+        mChunkSize = chunkSize;
+        mCategories = Collections.unmodifiableList(categories);
+        mFiles = Collections.unmodifiableList(files);
+    }
+
+    /**
+     * Parse and validate a manifest.
+     *
+     * @throws IOException if the manifest is malformed.
+     */
+    public static PackManifest parse(String json) throws IOException {
+        try {
+            JSONObject manifest = new JSONObject(json);
+            String id = manifest.getString("id");
+            if (!ID.matcher(id).matches()) {
+                throw new IOException("Invalid pack id " + id);
+            }
+            int chunkSize = manifest.getInt("chunkSize");
+            if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+                throw new IOException("Invalid chunk size " + chunkSize);
+            }
+
+            JSONArray categoryArray = manifest.getJSONArray("categories");
+            List<CategoryEntry> categories = new ArrayList<>(categoryArray.length());
+            for (int i = 0; i < categoryArray.length(); i++) {
+                JSONObject category = categoryArray.getJSONObject(i);
+                categories.add(new CategoryEntry(category.getString("key"),
+                        category.getString("title"), parseColor(category.getString("color"))));
+            }
+
+            JSONArray fileArray = manifest.getJSONArray("files");
+            List<FileEntry> files = new ArrayList<>(fileArray.length());
+            boolean hasLexicon = false;
+            for (int i = 0; i < fileArray.length(); i++) {
+                JSONObject file = fileArray.getJSONObject(i);
+                String name = file.getString("name");
+                if (!FILE_NAME.matcher(name).matches() || name.startsWith(".")) {
+                    throw new IOException("Invalid file name " + name);
+                }
+                long size = file.getLong("size");
+                JSONArray chunkArray = file.getJSONArray("chunks");
+                if (size < 0 || chunkArray.length() != (size + chunkSize - 1) / chunkSize) {
+                    throw new IOException("Chunks do not match the size of " + name);
+                }
+                String[] chunks = new String[chunkArray.length()];
+                for (int j = 0; j < chunks.length; j++) {
+                    chunks[j] = chunkArray.getString(j);
+                }
+                files.add(new FileEntry(name, size, chunks));
+                hasLexicon |= name.equals(LEXICON_FILE);
+            }
+            if (!hasLexicon) {
+                throw new IOException("Pack " + id + " has no " + LEXICON_FILE);
+            }
+            return new PackManifest(id, manifest.optInt("version", 1), chunkSize, categories,
+                    files);
+        } catch (JSONException e) {
+            throw new IOException("Malformed pack manifest", e);
+        }
+    }
+
+    //Parse a #RRGGBB color, which is always opaque.
+    private static int parseColor(String color) throws IOException {
+        if (color.length() != 7 || color.charAt(0) != '#') {
+            throw new IOException("Invalid color " + color);
+        }
+        try {
+            return 0xFF000000 | Integer.parseInt(color.substring(1), 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid color " + color, e);
+        }
+    }
+
+    /**
+     * Return the unique id of the pack, also the name of its directory.
+     */
+    public String getId() {
+        return mId;
+    }
+
+    /**
+     * Return the version of the pack's content.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Return the size in bytes of the chunks the files are split in.
+     */
+    public int getChunkSize() {
+        return mChunkSize;
+    }
+
+    /**
+     * Return the categories of the pack, whose keys are the category keys of its lexicon.
+     */
+    public List<CategoryEntry> getCategories() {
+        return mCategories;
+    }
+
+    /**
+     * Return the files of the pack, in the order they are stored in the pack file.
+     */
+    public List<FileEntry> getFiles() {
+        return mFiles;
+    }
+
+    /**
+     * A category of the pack as listed in the manifest.
+     */
+    public static final class CategoryEntry {
+        private final String mKey;
+        private final String mTitle;
+        private final int mColor;
+
+        CategoryEntry(String key, String title, int color) {
+            mKey = key;
+            mTitle = title;
+            mColor = color;
+        }
+
+        /**
+         * Return the key of the category in the pack's lexicon.
+         */
+        public String getKey() {
+            return mKey;
+        }
+
+        /**
+         * Return the name of the category.
+         */
+        public String getTitle() {
+            return mTitle;
+        }
+
+        /**
+         * Return the theme color of the category, as a color int.
+         */
+        public int getColor() {
+            return mColor;
+        }
+    }
+
+    /**
+     * A file of the pack with the lowercase hex SHA-256 of each of its chunks.
+     */
+    public static final class FileEntry {
+        private final String mName;
+        private final long mSize;
+        private final String[] mChunkHashes;
+
+        FileEntry(String name, long size, String[] chunkHashes) {
+            mName = name;
+            mSize = size;
+            mChunkHashes = chunkHashes;
+        }
+
+        /**
+         * Return the name of the file in the pack directory.
+         */
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * Return the size of the file in bytes.
+         */
+        public long getSize() {
+            return mSize;
+        }
+
+        /**
+         * Return the expected SHA-256 of the chunk at the given index, in lowercase hex.
+         */
+        String getChunkHash(int chunk) {
+            return mChunkHashes[chunk];
+        }
+    }
+}
@@ -0,0 +1,525 @@
+package com.example.android.miwok;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.AssetFileDescriptor;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.Build;
+import android.util.SparseIntArray;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link PcmCache} keeps the decoded PCM of the most played pronunciations in a size-bounded
+ * directory of the app's cache, so that they play without starting a decoder, even after the
+ * process restarts. A cached clip is memory-mapped and streamed to an AudioTrack by the
+ * {@link WordAudioPlayer}. The least recently played clips are evicted first.
+ *
+ * <p>A cached clip is a file laid out as, in big-endian order:
+ * <pre>
+ * magic "MPCM", version     2 ints
+ * sample rate, channels     2 ints
+ * decode time in millis     int
+ * data length               int
+ * data                      16 bit native order PCM samples
+ * </pre>
+ * Decoding needs MediaCodec, so nothing is cached before Jelly Bean.
+ */
+public final class PcmCache {
+
+    private static final int MAGIC = 0x4D50434D; // "MPCM"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 6 * 4;
+
+    //Directory in the app's cache directory holding the clips.
+    private static final String DIRECTORY = "pcm";
+
+    //Records the app version the clips were decoded for, resource names may change with it.
+    private static final String STAMP_FILE = "stamp";
+
+    private static final String SUFFIX = ".pcm";
+
+    //Default size bound of the cached clips, about 90 seconds of mono 44.1kHz audio.
+    public static final long DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+
+    //Number of taps on a word after which its pronunciation is cached.
+    private static final int HOT_PLAY_COUNT = 2;
+
+    private static final long CODEC_TIMEOUT_MICROS = 10000;
+
+    private static PcmCache sInstance;
+
+    private final Context mContext;
+    private final File mDirectory;
+    private final long mMaxBytes;
+
+    //Cached clips keyed by file name, least recently played first. Read when first needed.
+    private LinkedHashMap<String, Long> mSizes;
+
+    //Total size of the cached clips.
+    private long mBytes;
+
+    //Clips mapped so far, keyed by file name.
+    private final Map<String, Entry> mEntries = new HashMap<>();
+
+    //Taps on the words which are not cached yet, keyed by audio id.
+    private final SparseIntArray mPlayCounts = new SparseIntArray();
+
+    private long mHitCount;
+    private long mMissCount;
+    private long mSavedDecodeMillis;
+
+    private PcmCache(Context context, File directory, long maxBytes) {
+        mContext = context.getApplicationContext();
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Return the process wide {@link PcmCache}.
+     */
+    public static synchronized PcmCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new PcmCache(context, new File(context.getCacheDir(), DIRECTORY),
+                    DEFAULT_MAX_BYTES);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Return the process wide {@link PcmCache} if it has been created, or null.
+     */
+    static synchronized PcmCache peekInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Return the cached PCM of the given audio file, or null if it is not cached. Maps the file
+     * and reads the index of the cache on first use, so it should not be called on the UI thread.
+     */
+    public synchronized Entry get(int audioResourceId) {
+        String name = getFileName(audioResourceId);
+        if (name == null || getSizes().get(name) == null) {
+            return null;
+        }
+        Entry entry = mEntries.get(name);
+        if (entry == null) {
+            try {
+                entry = map(new File(mDirectory, name));
+            } catch (IOException e) {
+                remove(name);
+                return null;
+            }
+            mEntries.put(name, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Count a tap on a word and mark its clip as the most recently played one.
+     *
+     * @param entry is the cached clip which was played, or null if it was not cached.
+     * @return whether the clip is not cached but has been played often enough to be decoded
+     * into the cache with {@link #put(int)}.
+     */
+    public synchronized boolean recordPlay(int audioResourceId, Entry entry) {
+        if (entry != null) {
+            mHitCount++;
+            mSavedDecodeMillis += entry.getDecodeMillis();
+            //Keep the order of the least recently played clips across restarts.
+            entry.mFile.setLastModified(System.currentTimeMillis());
+            //Reading it moves it to the end of the access ordered index.
+            if (mSizes != null) {
+                mSizes.get(entry.mFile.getName());
+            }
+            return false;
+        }
+        mMissCount++;
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return false;
+        }
+        int count = mPlayCounts.get(audioResourceId) + 1;
+        mPlayCounts.put(audioResourceId, count);
+        return count == HOT_PLAY_COUNT;
+    }
+
+    /**
+     * Decode the given audio file into the cache, evicting the least recently played clips
+     * beyond the size bound. Blocks while decoding, so it must not be called on the UI thread.
+     *
+     * @return the cached clip, or null if it could not be decoded.
+     */
+    public Entry put(int audioResourceId) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return null;
+        }
+        String name;
+        synchronized (this) {
+            name = getFileName(audioResourceId);
+            if (name == null) {
+                return null;
+            }
+            getSizes();
+            if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+                return null;
+            }
+        }
+        //Decode without holding the lock so that cached clips can be played meanwhile.
+        File temp = new File(mDirectory, name + ".tmp");
+        File file = new File(mDirectory, name);
+        try {
+            decode(audioResourceId, temp);
+        } catch (IOException | RuntimeException e) {
+            //Not a format MediaCodec can decode, or the decoder failed.
+            temp.delete();
+            return null;
+        }
+        synchronized (this) {
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                return null;
+            }
+            Long previous = mSizes.put(name, file.length());
+            mBytes += file.length() - (previous != null ? previous : 0);
+            mEntries.remove(name);
+            mPlayCounts.delete(audioResourceId);
+            trimToSize(name);
+            return get(audioResourceId);
+        }
+    }
+
+    /**
+     * Return the number of taps on words whose clip was cached.
+     */
+    public synchronized long getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * Return the number of taps on words whose clip was not cached.
+     */
+    public synchronized long getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Return the decode time saved by the hits, in milliseconds.
+     */
+    public synchronized long getSavedDecodeMillis() {
+        return mSavedDecodeMillis;
+    }
+
+    /**
+     * Return the total size of the cached clips, or 0 if the cache has not been read yet.
+     */
+    public synchronized long getSizeBytes() {
+        return mBytes;
+    }
+
+    /**
+     * Forget the hit and miss counters. The cached clips are kept.
+     */
+    public synchronized void resetCounters() {
+        mHitCount = 0;
+        mMissCount = 0;
+        mSavedDecodeMillis = 0;
+    }
+
+    /**
+     * Return the name of the cache file of the given audio file, or null if it has none.
+     */
+    private String getFileName(int audioResourceId) {
+        String name = MediaFiles.getStableName(mContext, audioResourceId);
+        return name != null ? name + SUFFIX : null;
+    }
+
+    /**
+     * Return the sizes of the cached clips, listing the directory on first use.
+     */
+    private LinkedHashMap<String, Long> getSizes() {
+        if (mSizes != null) {
+            return mSizes;
+        }
+        mSizes = new LinkedHashMap<>(16, 0.75f, true);
+        if (!isStampCurrent()) {
+            //The clips were decoded for another version of the app.
+            PackInstaller.deleteRecursively(mDirectory);
+            writeStamp();
+            return mSizes;
+        }
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return mSizes;
+        }
+        //Least recently played first.
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long difference = a.lastModified() - b.lastModified();
+                return difference < 0 ? -1 : difference > 0 ? 1 : 0;
+            }
+        });
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(SUFFIX)) {
+                mSizes.put(name, file.length());
+                mBytes += file.length();
+            } else if (!name.equals(STAMP_FILE)) {
+                //Left over by a decode which did not complete.
+                file.delete();
+            }
+        }
+        trimToSize(null);
+        return mSizes;
+    }
+
+    private void trimToSize(String keep) {
+        Iterator<Map.Entry<String, Long>> iterator = mSizes.entrySet().iterator();
+        while (mBytes > mMaxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            if (!eldest.getKey().equals(keep)) {
+                iterator.remove();
+                mBytes -= eldest.getValue();
+                mEntries.remove(eldest.getKey());
+                //A clip being played keeps its mapping until it is garbage collected.
+                new File(mDirectory, eldest.getKey()).delete();
+            }
+        }
+    }
+
+    private void remove(String name) {
+        Long size = mSizes.remove(name);
+        if (size != null) {
+            mBytes -= size;
+        }
+        mEntries.remove(name);
+        new File(mDirectory, name).delete();
+    }
+
+    private long getAppVersionStamp() {
+        try {
+            return mContext.getPackageManager()
+                    .getPackageInfo(mContext.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return 0;
+        }
+    }
+
+    private boolean isStampCurrent() {
+        try {
+            RandomAccessFile stamp = new RandomAccessFile(new File(mDirectory, STAMP_FILE), "r");
+            try {
+                return stamp.readLong() == getAppVersionStamp();
+            } finally {
+                stamp.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void writeStamp() {
+        if (!mDirectory.mkdirs()) {
+            return;
+        }
+        try {
+            RandomAccessFile stamp = new RandomAccessFile(new File(mDirectory, STAMP_FILE), "rw");
+            try {
+                stamp.writeLong(getAppVersionStamp());
+            } finally {
+                stamp.close();
+            }
+        } catch (IOException e) {
+            //The clips will be decoded again next time.
+        }
+    }
+
+    private static Entry map(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getInt(20) != buffer.capacity() - HEADER_BYTES) {
+                throw new IOException("Invalid cached clip " + file);
+            }
+            buffer.position(HEADER_BYTES);
+            ByteBuffer data = buffer.slice().order(ByteOrder.nativeOrder());
+            return new Entry(file, buffer.getInt(8), buffer.getInt(12), buffer.getInt(16), data);
+        } finally {
+            //The mapping stays valid once the file is closed.
+            in.close();
+        }
+    }
+
+    /**
+     * Decode the audio file into a cache file, writing the decoder's output buffers straight
+     * to the file.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    @SuppressWarnings("deprecation")
+    private void decode(int audioResourceId, File output) throws IOException {
+        long startNanos = System.nanoTime();
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        RandomAccessFile file = new RandomAccessFile(output, "rw");
+        try {
+            if (MediaFiles.isFile(audioResourceId)) {
+                extractor.setDataSource(MediaFiles.getFile(audioResourceId).getPath());
+            } else {
+                AssetFileDescriptor afd =
+                        mContext.getResources().openRawResourceFd(audioResourceId);
+                try {
+                    extractor.setDataSource(afd.getFileDescriptor(), afd.getStartOffset(),
+                            afd.getLength());
+                } finally {
+                    afd.close();
+                }
+            }
+            MediaFormat format = null;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                String mime = extractor.getTrackFormat(i).getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("audio/")) {
+                    format = extractor.getTrackFormat(i);
+                    extractor.selectTrack(i);
+                    break;
+                }
+            }
+            if (format == null) {
+                throw new IOException("No audio track");
+            }
+            int sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            int channelCount = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+            ByteBuffer[] inputs = codec.getInputBuffers();
+            ByteBuffer[] outputs = codec.getOutputBuffers();
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+
+            FileChannel channel = file.getChannel();
+            channel.position(HEADER_BYTES);
+            boolean inputDone = false;
+            boolean outputDone = false;
+            while (!outputDone) {
+                if (!inputDone) {
+                    int index = codec.dequeueInputBuffer(CODEC_TIMEOUT_MICROS);
+                    if (index >= 0) {
+                        int size = extractor.readSampleData(inputs[index], 0);
+                        if (size < 0) {
+                            codec.queueInputBuffer(index, 0, 0, 0,
+                                    MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(index, 0, size, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+                int index = codec.dequeueOutputBuffer(info, CODEC_TIMEOUT_MICROS);
+                if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    //The decoder knows better, e.g. for HE-AAC.
+                    MediaFormat outputFormat = codec.getOutputFormat();
+                    sampleRate = outputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                    channelCount = outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+                } else if (index == MediaCodec.INFO_OUTPUT_BUFFERS_CHANGED) {
+                    outputs = codec.getOutputBuffers();
+                } else if (index >= 0) {
+                    ByteBuffer buffer = outputs[index];
+                    buffer.limit(info.offset + info.size);
+                    buffer.position(info.offset);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    codec.releaseOutputBuffer(index, false);
+                    outputDone = (info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+                }
+            }
+
+            long dataLength = channel.position() - HEADER_BYTES;
+            if (dataLength > Integer.MAX_VALUE) {
+                throw new IOException("Clip too long");
+            }
+            file.seek(0);
+            file.writeInt(MAGIC);
+            file.writeInt(VERSION);
+            file.writeInt(sampleRate);
+            file.writeInt(channelCount);
+            file.writeInt((int) ((System.nanoTime() - startNanos) / 1000000));
+            file.writeInt((int) dataLength);
+        } finally {
+            if (codec != null) {
+                codec.release();
+            }
+            extractor.release();
+            file.close();
+        }
+    }
+
+    /**
+     * A cached clip, memory-mapped.
+     */
+    public static final class Entry {
+        private final File mFile;
+        private final int mSampleRate;
+        private final int mChannelCount;
+        private final int mDecodeMillis;
+        private final ByteBuffer mData;
+
+        Entry(File file, int sampleRate, int channelCount, int decodeMillis, ByteBuffer data) {
+            mFile = file;
+            mSampleRate = sampleRate;
+            mChannelCount = channelCount;
+            mDecodeMillis = decodeMillis;
+            mData = data;
+        }
+
+        public int getSampleRate() {
+            return mSampleRate;
+        }
+
+        public int getChannelCount() {
+            return mChannelCount;
+        }
+
+        /**
+         * Return how long decoding the clip took when it was cached.
+         */
+        public int getDecodeMillis() {
+            return mDecodeMillis;
+        }
+
+        /**
+         * Return the duration of the clip.
+         */
+        public int getDurationMillis() {
+            long frames = mData.capacity() / (2 * mChannelCount);
+            return (int) (frames * 1000 / mSampleRate);
+        }
+
+        /**
+         * Return a new read-only view of the PCM samples, so that several readers do not share
+         * a position.
+         */
+        public ByteBuffer getData() {
+            return mData.asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.android.miwok;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.os.Build;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link PcmTrack} plays a clip of the {@link PcmCache}, streaming its memory-mapped samples to
+ * an AudioTrack from a background thread. Nothing has to be decoded, and the samples are only
+ * copied into a small buffer before Lollipop.
+ */
+final class PcmTrack {
+
+    //Writes the samples of all tracks, one track after the other.
+    private static final ExecutorService sWriteExecutor = Executors.newSingleThreadExecutor();
+
+    private final AudioTrack mTrack;
+    private final ByteBuffer mData;
+
+    //Bytes written at once, no more than half of the track's buffer.
+    private final int mChunkBytes;
+
+    //Guards starting the track against stopping it.
+    private final Object mLock = new Object();
+
+    private volatile boolean mStopped;
+
+    private PcmTrack(AudioTrack track, ByteBuffer data, int chunkBytes) {
+        mTrack = track;
+        mData = data;
+        mChunkBytes = chunkBytes;
+    }
+
+    /**
+     * Start playing the given clip.
+     *
+     * @return the track playing it, or null if no AudioTrack could be created for it.
+     */
+    @SuppressWarnings("deprecation")
+    static PcmTrack start(PcmCache.Entry entry) {
+        int channelMask;
+        if (entry.getChannelCount() == 1) {
+            channelMask = AudioFormat.CHANNEL_OUT_MONO;
+        } else if (entry.getChannelCount() == 2) {
+            channelMask = AudioFormat.CHANNEL_OUT_STEREO;
+        } else {
+            return null;
+        }
+        int minBufferBytes = AudioTrack.getMinBufferSize(entry.getSampleRate(), channelMask,
+                AudioFormat.ENCODING_PCM_16BIT);
+        if (minBufferBytes <= 0) {
+            return null;
+        }
+        int bufferBytes = 2 * minBufferBytes;
+
+        AudioTrack track;
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                AudioAttributes attributes = new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_MEDIA)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                        .build();
+                AudioFormat format = new AudioFormat.Builder()
+                        .setSampleRate(entry.getSampleRate())
+                        .setChannelMask(channelMask)
+                        .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                        .build();
+                track = new AudioTrack(attributes, format, bufferBytes, AudioTrack.MODE_STREAM,
+                        AudioManager.AUDIO_SESSION_ID_GENERATE);
+            } else {
+                track = new AudioTrack(AudioManager.STREAM_MUSIC, entry.getSampleRate(),
+                        channelMask, AudioFormat.ENCODING_PCM_16BIT, bufferBytes,
+                        AudioTrack.MODE_STREAM);
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (track.getState() != AudioTrack.STATE_INITIALIZED) {
+            track.release();
+            return null;
+        }
+
+        final PcmTrack pcmTrack = new PcmTrack(track, entry.getData(), minBufferBytes);
+        sWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                pcmTrack.write();
+            }
+        });
+        return pcmTrack;
+    }
+
+    /**
+     * Stop playing at once. The track is released once its samples are no longer written.
+     */
+    void stop() {
+        synchronized (mLock) {
+            mStopped = true;
+            //Flushing the paused track unblocks a pending write.
+            mTrack.pause();
+            mTrack.flush();
+        }
+        sWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mTrack.release();
+            }
+        });
+    }
+
+    private void write() {
+        byte[] chunk = null;
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            chunk = new byte[mChunkBytes];
+        }
+        boolean playing = false;
+        while (!mStopped && mData.hasRemaining()) {
+            int length = Math.min(mChunkBytes, mData.remaining());
+            int written;
+            if (chunk == null) {
+                written = mTrack.write(mData, length, AudioTrack.WRITE_BLOCKING);
+            } else {
+                mData.get(chunk, 0, length);
+                written = mTrack.write(chunk, 0, length);
+            }
+            if (written < 0) {
+                break;
+            }
+            if (!playing) {
+                //Start once the first chunk is buffered, so that playback does not underrun.
+                synchronized (mLock) {
+                    if (mStopped) {
+                        break;
+                    }
+                    mTrack.play();
+                }
+                playing = true;
+            }
+        }
+        synchronized (mLock) {
+            if (!mStopped && playing) {
+                //Let the buffered samples play out.
+                mTrack.stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.android.miwok;
+
+import android.os.Bundle;
+import android.support.v4.content.ContextCompat;
+import android.support.v7.app.AppCompatActivity;
+import android.view.KeyEvent;
+import android.view.View;
+import android.view.inputmethod.EditorInfo;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.TextView;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Practice where the learner types the French of a word shown in English, for the words of a
+ * {@link Category} passed in with {@link #EXTRA_CATEGORY} or of all categories. Answers are
+ * graded by the {@link AnswerMatcher}, which tolerates accents, punctuation and a few typos.
+ */
+public class PracticeActivity extends AppCompatActivity implements View.OnClickListener {
+
+    //Optional intent extra holding the key of the {@link Category} to practice.
+    public static final String EXTRA_CATEGORY = "com.example.android.miwok.extra.CATEGORY";
+
+    private WordAudioPlayer mWordAudioPlayer;
+
+    //Words of all categories, indexed like the lexicon.
+    private List<Word> mAllWords;
+
+    //Null until the answers have been normalized.
+    private AnswerMatcher mAnswerMatcher;
+
+    //Lexicon indices of the words which may be asked.
+    private int mFirstWord;
+    private int mWordCount;
+
+    private final Random mRandom = new Random();
+
+    //Word being asked, answered once mAnswered is set.
+    private int mWord = -1;
+    private boolean mAnswered;
+
+    private int mAskedCount;
+    private int mRightCount;
+
+    private TextView mScoreView;
+    private TextView mPromptView;
+    private EditText mAnswerBox;
+    private TextView mResultView;
+    private Button mCheckButton;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_practice);
+
+        mScoreView = (TextView) findViewById(R.id.score);
+        mPromptView = (TextView) findViewById(R.id.prompt);
+        mAnswerBox = (EditText) findViewById(R.id.answer);
+        mResultView = (TextView) findViewById(R.id.result);
+        mCheckButton = (Button) findViewById(R.id.check);
+        mCheckButton.setOnClickListener(this);
+        mCheckButton.setEnabled(false);
+
+        //Check the answer from the keyboard as well.
+        mAnswerBox.setOnEditorActionListener(new TextView.OnEditorActionListener() {
+            @Override
+            public boolean onEditorAction(TextView view, int actionId, KeyEvent event) {
+                if (actionId == EditorInfo.IME_ACTION_DONE && mCheckButton.isEnabled()) {
+                    onClick(mCheckButton);
+                    return true;
+                }
+                return false;
+            }
+        });
+
+        final WordRepository repository = WordRepository.getInstance(this);
+        final String categoryKey = getIntent().getStringExtra(EXTRA_CATEGORY);
+        if (categoryKey != null) {
+            Category category = repository.getCategory(categoryKey);
+            if (category != null) {
+                setTitle(category.getTitle(this));
+            }
+        }
+
+        mWordAudioPlayer = new WordAudioPlayer(this);
+        mAllWords = repository.getAllWords();
+        repository.loadAnswerMatcher(new WordRepository.OnAnswerMatcherReadyListener() {
+            @Override
+            public void onAnswerMatcherReady(AnswerMatcher answerMatcher) {
+                if (isFinishing()) {
+                    return;
+                }
+                Lexicon lexicon = repository.getLexicon();
+                mFirstWord = 0;
+                mWordCount = lexicon.getWordCount();
+                if (categoryKey != null) {
+                    //Only the words of the built-in lexicon are matched.
+                    int category = lexicon.findCategory(categoryKey);
+                    if (category < 0) {
+                        finish();
+                        return;
+                    }
+                    mFirstWord = lexicon.getFirstWord(category);
+                    mWordCount = lexicon.getCategoryWordCount(category);
+                }
+                mAnswerMatcher = answerMatcher;
+                mCheckButton.setEnabled(true);
+                showNextWord();
+            }
+        });
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        //Time spent on the words counts as a study session.
+        WordRepository.getInstance(this).getProgressStore().beginSession();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        //When the app is stopped, stop playback and give up audio focus.
+        mWordAudioPlayer.stop();
+        WordRepository.getInstance(this).getProgressStore().endSession();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mWordAudioPlayer.release();
+    }
+
+    @Override
+    public void onClick(View view) {
+        if (mAnswered) {
+            showNextWord();
+        } else {
+            check();
+        }
+    }
+
+    private void showNextWord() {
+        int word = mFirstWord + mRandom.nextInt(mWordCount);
+        if (word == mWord && mWordCount > 1) {
+            word = mFirstWord + (word - mFirstWord + 1 + mRandom.nextInt(mWordCount - 1))
+                    % mWordCount;
+        }
+        mWord = word;
+        mAnswered = false;
+
+        Word shown = mAllWords.get(word);
+        mPromptView.setText(shown.getDefaultTranslation());
+        mAnswerBox.setText(null);
+        mAnswerBox.setEnabled(true);
+        mAnswerBox.requestFocus();
+        mResultView.setText(null);
+        mCheckButton.setText(R.string.practice_check);
+        showScore();
+
+        //Decode the pronunciation, played once the word is answered.
+        mWordAudioPlayer.prefetch(shown);
+    }
+
+    private void check() {
+        long startNanos = System.nanoTime();
+        int grade = mAnswerMatcher.grade(mWord, mAnswerBox.getText());
+        Metrics.PRACTICE_GRADE.recordSince(startNanos);
+
+        mAnswered = true;
+        mAskedCount++;
+        Word word = mAllWords.get(mWord);
+        if (grade == AnswerMatcher.CORRECT) {
+            mRightCount++;
+            mResultView.setText(R.string.practice_correct);
+        } else if (grade == AnswerMatcher.ALMOST) {
+            mRightCount++;
+            mResultView.setText(getString(R.string.practice_almost, word.getFrenchTranslation()));
+        } else {
+            mResultView.setText(getString(R.string.practice_wrong, word.getFrenchTranslation()));
+        }
+        mResultView.setTextColor(ContextCompat.getColor(this,
+                grade == AnswerMatcher.WRONG ? R.color.quiz_wrong : R.color.quiz_right));
+        mAnswerBox.setEnabled(false);
+        mCheckButton.setText(R.string.quiz_next);
+        showScore();
+
+        mWordAudioPlayer.play(word);
+        WordRepository.getInstance(this).getProgressStore().recordPlayed(word.getId());
+    }
+
+    private void showScore() {
+        mScoreView.setText(getString(R.string.quiz_score, mRightCount, mAskedCount));
+    }
+}
@@ -0,0 +1,640 @@
+package com.example.android.miwok;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * {@link ProgressStore} records the learner's progress: how often each word was played, which
+ * words are mastered and the history of study sessions. Recording an event only updates memory;
+ * events are buffered and appended in batches to a journal by a background thread, at the latest
+ * {@link #FLUSH_DELAY_MILLIS} after they happen or when {@link #flush()} is called.
+ *
+ * <p>Every journal record carries a CRC32, so a record torn by the death of the process is
+ * detected and dropped when the journal is replayed. Once the journal has grown, the state is
+ * written to a snapshot and the journal starts over. Both carry a generation number, so a journal
+ * which was already folded into the snapshot when the process died is not replayed twice.
+ * <pre>
+ * journal    magic "MJRN", version, generation, then records of
+ *            type, value, word id, time, CRC32 of the preceding 24 bytes
+ * snapshot   magic "MSNP", version, generation, word count, then per word
+ *            id, play count, last played time, flags; session count, then per session
+ *            start, end, words played; start, last event time and words played of
+ *            the session in progress; CRC32 of everything before it
+ * </pre>
+ * Appends are not synced to the disk, which is enough to survive the death of the process; the
+ * snapshot is synced before it replaces the previous one.
+ */
+public final class ProgressStore {
+
+    //Events
+    private static final int EVENT_PLAYED = 1;
+    private static final int EVENT_MASTERED = 2;
+    private static final int EVENT_SESSION_START = 3;
+    private static final int EVENT_SESSION_END = 4;
+
+    private static final int JOURNAL_MAGIC = 0x4D4A524E; // "MJRN"
+    private static final int SNAPSHOT_MAGIC = 0x4D534E50; // "MSNP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8;
+    private static final int RECORD_BYTES = 4 + 4 + 8 + 8 + 4;
+    private static final int WORD_BYTES = 8 + 4 + 8 + 4;
+    private static final int SESSION_BYTES = 8 + 8 + 4;
+    private static final int OPEN_SESSION_BYTES = 8 + 8 + 4;
+
+    //Number of buffered events written at once.
+    private static final int BATCH_SIZE = 256;
+
+    //Longest time an event stays in memory only.
+    public static final long FLUSH_DELAY_MILLIS = 2000;
+
+    //Number of journal records after which the journal is folded into the snapshot.
+    private static final int COMPACT_RECORDS = 16384;
+
+    //Number of past sessions kept.
+    private static final int MAX_SESSIONS = 200;
+
+    private static final int FLAG_MASTERED = 1;
+
+    private final File mJournalFile;
+    private final File mSnapshotFile;
+
+    //Writes the batches in order, off the UI thread. Only it touches the files.
+    private final ScheduledExecutorService mWriter = Executors.newSingleThreadScheduledExecutor();
+
+    //State as seen by the app, including the events not written yet.
+    private State mState = new State();
+
+    //Events recorded but not handed to the writer yet.
+    private Batch mPending = new Batch();
+
+    //Batches handed to the writer before the store was loaded, applied to the state once it is.
+    private List<Batch> mEarlyBatches = new ArrayList<>();
+
+    private boolean mLoaded;
+    private boolean mFlushScheduled;
+
+    //Number of screens in a session, which ends when the last one is left.
+    private int mSessionScreens;
+
+    //Owned by the writer: state of the written events, and the journal being appended to.
+    private State mWrittenState;
+    private long mGeneration;
+    private FileOutputStream mJournal;
+    private int mJournalRecords;
+
+    /**
+     * Flushes the buffered events once they have waited long enough.
+     */
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (ProgressStore.this) {
+                mFlushScheduled = false;
+            }
+            flush();
+        }
+    };
+
+    /**
+     * Create a new {@link ProgressStore} object, loading the progress in the background.
+     *
+     * @param directory holds the journal and the snapshot.
+     */
+    public ProgressStore(File directory) {
+        mJournalFile = new File(directory, "progress.journal");
+        mSnapshotFile = new File(directory, "progress.snapshot");
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+    }
+
+    /**
+     * Record that the word with the given id was played.
+     */
+    public void recordPlayed(long wordId) {
+        record(EVENT_PLAYED, wordId, 0);
+    }
+
+    /**
+     * Record whether the word with the given id is mastered, if that changed.
+     */
+    public synchronized void setMastered(long wordId, boolean mastered) {
+        if (mLoaded && isMastered(wordId) == mastered) {
+            return;
+        }
+        record(EVENT_MASTERED, wordId, mastered ? 1 : 0);
+    }
+
+    /**
+     * Record that a screen where words are studied was entered. A session lasts from the first
+     * such screen to the last one being left, so moving between screens does not split it.
+     */
+    public synchronized void beginSession() {
+        if (mSessionScreens++ == 0) {
+            record(EVENT_SESSION_START, Word.NO_ID, 0);
+        }
+    }
+
+    /**
+     * Record that a screen where words are studied was left, and flush the buffered events as
+     * the process may be killed from now on.
+     */
+    public synchronized void endSession() {
+        if (mSessionScreens > 0 && --mSessionScreens == 0) {
+            record(EVENT_SESSION_END, Word.NO_ID, 0);
+        }
+        flush();
+    }
+
+    private synchronized void record(int type, long wordId, int value) {
+        long timeMillis = System.currentTimeMillis();
+        mPending.add(type, wordId, timeMillis, value);
+        if (mLoaded) {
+            mState.apply(type, wordId, timeMillis, value);
+        }
+        if (mPending.mSize == BATCH_SIZE) {
+            flush();
+        } else if (!mFlushScheduled) {
+            mFlushScheduled = true;
+            mWriter.schedule(mFlushRunnable, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Hand the buffered events to the writer, e.g. when a screen is left.
+     */
+    public synchronized void flush() {
+        if (mPending.mSize == 0) {
+            return;
+        }
+        final Batch batch = mPending;
+        mPending = new Batch();
+        if (!mLoaded) {
+            mEarlyBatches.add(batch);
+        }
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(batch);
+            }
+        });
+    }
+
+    /**
+     * Flush the buffered events and wait until the writer has written them.
+     */
+    void flushAndWait() throws IOException {
+        flush();
+        try {
+            mWriter.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Flush the buffered events, close the journal and stop the writer. The store must not be
+     * used afterwards.
+     */
+    void close() throws IOException {
+        flushAndWait();
+        try {
+            mWriter.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (mJournal != null) {
+                        try {
+                            mJournal.close();
+                        } catch (IOException e) {
+                            //Everything was written already.
+                        }
+                        mJournal = null;
+                    }
+                }
+            }).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException(e);
+        }
+        mWriter.shutdown();
+    }
+
+    /**
+     * Return whether the recorded progress has been read yet. Until then the getters only see
+     * the events of this run.
+     */
+    public synchronized boolean isLoaded() {
+        return mLoaded;
+    }
+
+    /**
+     * Return how many times the word with the given id was played.
+     */
+    public synchronized int getPlayCount(long wordId) {
+        WordProgress progress = mState.mWords.get(wordId);
+        return progress != null ? progress.mPlayCount : 0;
+    }
+
+    /**
+     * Return whether the word with the given id is mastered.
+     */
+    public synchronized boolean isMastered(long wordId) {
+        WordProgress progress = mState.mWords.get(wordId);
+        return progress != null && progress.mMastered;
+    }
+
+    /**
+     * Return the number of mastered words.
+     */
+    public synchronized int getMasteredCount() {
+        int count = 0;
+        for (WordProgress progress : mState.mWords.values()) {
+            if (progress.mMastered) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Return the past sessions, oldest first.
+     */
+    public synchronized List<Session> getSessions() {
+        return Collections.unmodifiableList(new ArrayList<>(mState.mSessions));
+    }
+
+    /**
+     * Read the snapshot and replay the journal, then catch up with the events recorded
+     * meanwhile. Runs on the writer.
+     */
+    private void load() {
+        State state = new State();
+        mGeneration = 0;
+        try {
+            mGeneration = readSnapshot(state);
+        } catch (IOException e) {
+            //No snapshot yet, or a damaged one: start over rather than not record at all.
+            state = new State();
+        }
+        long validBytes = 0;
+        try {
+            validBytes = replayJournal(state);
+        } catch (IOException e) {
+            //Only the records up to the error are replayed.
+        }
+        mWrittenState = state;
+
+        try {
+            openJournal(validBytes);
+        } catch (IOException e) {
+            mJournal = null;
+        }
+
+        synchronized (this) {
+            mState = state.copy();
+            for (Batch batch : mEarlyBatches) {
+                batch.applyTo(mState);
+            }
+            mPending.applyTo(mState);
+            mEarlyBatches = null;
+            mLoaded = true;
+        }
+    }
+
+    /**
+     * Read the snapshot into the state and return its generation.
+     */
+    private long readSnapshot(State state) throws IOException {
+        if (!mSnapshotFile.exists()) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(readFile(mSnapshotFile));
+        int crcOffset = buffer.limit() - 4;
+        if (crcOffset < HEADER_BYTES + 8 || buffer.getInt(0) != SNAPSHOT_MAGIC
+                || buffer.getInt(4) != VERSION
+                || buffer.getInt(crcOffset) != (int) crc(buffer.array(), 0, crcOffset)) {
+            throw new IOException("Damaged snapshot");
+        }
+        buffer.position(8);
+        long generation = buffer.getLong();
+        int wordCount = buffer.getInt();
+        for (int i = 0; i < wordCount; i++) {
+            WordProgress progress = new WordProgress();
+            long wordId = buffer.getLong();
+            progress.mPlayCount = buffer.getInt();
+            progress.mLastPlayedMillis = buffer.getLong();
+            progress.mMastered = (buffer.getInt() & FLAG_MASTERED) != 0;
+            state.mWords.put(wordId, progress);
+        }
+        int sessionCount = buffer.getInt();
+        for (int i = 0; i < sessionCount; i++) {
+            state.mSessions.add(new Session(buffer.getLong(), buffer.getLong(), buffer.getInt()));
+        }
+        state.mSessionStartMillis = buffer.getLong();
+        state.mLastEventMillis = buffer.getLong();
+        state.mSessionWordsPlayed = buffer.getInt();
+        return generation;
+    }
+
+    /**
+     * Apply the valid records of the journal to the state, if the journal is of the snapshot's
+     * generation, and return the length of its valid part.
+     */
+    private long replayJournal(State state) throws IOException {
+        if (!mJournalFile.exists()) {
+            return 0;
+        }
+        byte[] journal = readFile(mJournalFile);
+        ByteBuffer buffer = ByteBuffer.wrap(journal);
+        if (journal.length < HEADER_BYTES || buffer.getInt(0) != JOURNAL_MAGIC
+                || buffer.getInt(4) != VERSION || buffer.getLong(8) != mGeneration) {
+            //Torn header, or a journal already folded into the snapshot.
+            return 0;
+        }
+        int offset = HEADER_BYTES;
+        while (offset + RECORD_BYTES <= journal.length) {
+            if (buffer.getInt(offset + RECORD_BYTES - 4)
+                    != (int) crc(journal, offset, RECORD_BYTES - 4)) {
+                //Torn by the death of the process, nothing valid follows.
+                break;
+            }
+            state.apply(buffer.getInt(offset), buffer.getLong(offset + 8),
+                    buffer.getLong(offset + 16), buffer.getInt(offset + 4));
+            offset += RECORD_BYTES;
+            mJournalRecords++;
+        }
+        return offset;
+    }
+
+    /**
+     * Open the journal for appending after its valid part, starting a new one if it has none.
+     */
+    private void openJournal(long validBytes) throws IOException {
+        if (validBytes < HEADER_BYTES) {
+            FileOutputStream out = new FileOutputStream(mJournalFile);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(JOURNAL_MAGIC).putInt(VERSION).putLong(mGeneration);
+            out.write(header.array());
+            mJournal = out;
+            mJournalRecords = 0;
+            return;
+        }
+        FileOutputStream out = new FileOutputStream(mJournalFile, true);
+        //Cut off a torn record so that the records appended next are read back.
+        out.getChannel().truncate(validBytes);
+        mJournal = out;
+    }
+
+    /**
+     * Append a batch to the journal and fold the journal into the snapshot once it has grown.
+     * Runs on the writer.
+     */
+    private void write(Batch batch) {
+        batch.applyTo(mWrittenState);
+        if (mJournal == null) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(batch.mSize * RECORD_BYTES);
+        byte[] bytes = buffer.array();
+        for (int i = 0; i < batch.mSize; i++) {
+            int offset = i * RECORD_BYTES;
+            buffer.putInt(batch.mTypes[i]).putInt(batch.mValues[i])
+                    .putLong(batch.mWordIds[i]).putLong(batch.mTimes[i]);
+            buffer.putInt((int) crc(bytes, offset, RECORD_BYTES - 4));
+        }
+        try {
+            mJournal.write(bytes);
+            mJournalRecords += batch.mSize;
+            if (mJournalRecords >= COMPACT_RECORDS) {
+                compact();
+            }
+        } catch (IOException e) {
+            //The events are lost but the journal stays readable.
+        }
+    }
+
+    /**
+     * Write the state to a new snapshot of the next generation, then start a new journal.
+     */
+    private void compact() throws IOException {
+        State state = mWrittenState;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 4
+                + state.mWords.size() * WORD_BYTES + 4 + state.mSessions.size() * SESSION_BYTES
+                + OPEN_SESSION_BYTES + 4);
+        buffer.putInt(SNAPSHOT_MAGIC).putInt(VERSION).putLong(mGeneration + 1);
+        buffer.putInt(state.mWords.size());
+        for (Map.Entry<Long, WordProgress> entry : state.mWords.entrySet()) {
+            WordProgress progress = entry.getValue();
+            buffer.putLong(entry.getKey()).putInt(progress.mPlayCount)
+                    .putLong(progress.mLastPlayedMillis)
+                    .putInt(progress.mMastered ? FLAG_MASTERED : 0);
+        }
+        buffer.putInt(state.mSessions.size());
+        for (Session session : state.mSessions) {
+            buffer.putLong(session.mStartMillis).putLong(session.mEndMillis)
+                    .putInt(session.mWordsPlayed);
+        }
+        buffer.putLong(state.mSessionStartMillis).putLong(state.mLastEventMillis)
+                .putInt(state.mSessionWordsPlayed);
+        buffer.putInt((int) crc(buffer.array(), 0, buffer.position()));
+
+        File temp = new File(mSnapshotFile.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(buffer.array());
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(mSnapshotFile)) {
+            temp.delete();
+            throw new IOException("Unable to replace " + mSnapshotFile);
+        }
+        //From here on the old journal is ignored, even if the process dies before it is reset.
+        mGeneration++;
+        mJournal.close();
+        mJournal = null;
+        openJournal(0);
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            int read = 0;
+            while (read < bytes.length) {
+                int count = in.read(bytes, read, bytes.length - read);
+                if (count == -1) {
+                    break;
+                }
+                read += count;
+            }
+            return read == bytes.length ? bytes : Arrays.copyOf(bytes, read);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static long crc(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return crc.getValue();
+    }
+
+    /**
+     * A study session.
+     */
+    public static final class Session {
+        private final long mStartMillis;
+        private final long mEndMillis;
+        private final int mWordsPlayed;
+
+        Session(long startMillis, long endMillis, int wordsPlayed) {
+            mStartMillis = startMillis;
+            mEndMillis = endMillis;
+            mWordsPlayed = wordsPlayed;
+        }
+
+        public long getStartMillis() {
+            return mStartMillis;
+        }
+
+        public long getEndMillis() {
+            return mEndMillis;
+        }
+
+        /**
+         * Return the number of times words were played during the session.
+         */
+        public int getWordsPlayed() {
+            return mWordsPlayed;
+        }
+    }
+
+    private static final class WordProgress {
+        int mPlayCount;
+        long mLastPlayedMillis;
+        boolean mMastered;
+    }
+
+    /**
+     * Progress obtained by applying events in order.
+     */
+    private static final class State {
+        final Map<Long, WordProgress> mWords = new HashMap<>();
+        final List<Session> mSessions = new ArrayList<>();
+
+        //Session in progress, if mSessionStartMillis is not 0.
+        long mSessionStartMillis;
+        long mLastEventMillis;
+        int mSessionWordsPlayed;
+
+        void apply(int type, long wordId, long timeMillis, int value) {
+            switch (type) {
+                case EVENT_PLAYED:
+                    WordProgress progress = getWord(wordId);
+                    progress.mPlayCount++;
+                    progress.mLastPlayedMillis = timeMillis;
+                    mSessionWordsPlayed++;
+                    break;
+                case EVENT_MASTERED:
+                    getWord(wordId).mMastered = value != 0;
+                    break;
+                case EVENT_SESSION_START:
+                    if (mSessionStartMillis != 0) {
+                        //The process died during the previous session.
+                        endSession(mLastEventMillis);
+                    }
+                    mSessionStartMillis = timeMillis;
+                    mSessionWordsPlayed = 0;
+                    break;
+                case EVENT_SESSION_END:
+                    if (mSessionStartMillis != 0) {
+                        endSession(timeMillis);
+                    }
+                    break;
+            }
+            mLastEventMillis = timeMillis;
+        }
+
+        private void endSession(long endMillis) {
+            mSessions.add(new Session(mSessionStartMillis, endMillis, mSessionWordsPlayed));
+            if (mSessions.size() > MAX_SESSIONS) {
+                mSessions.remove(0);
+            }
+            mSessionStartMillis = 0;
+            mSessionWordsPlayed = 0;
+        }
+
+        private WordProgress getWord(long wordId) {
+            WordProgress progress = mWords.get(wordId);
+            if (progress == null) {
+                progress = new WordProgress();
+                mWords.put(wordId, progress);
+            }
+            return progress;
+        }
+
+        State copy() {
+            State copy = new State();
+            for (Map.Entry<Long, WordProgress> entry : mWords.entrySet()) {
+                WordProgress progress = new WordProgress();
+                progress.mPlayCount = entry.getValue().mPlayCount;
+                progress.mLastPlayedMillis = entry.getValue().mLastPlayedMillis;
+                progress.mMastered = entry.getValue().mMastered;
+                copy.mWords.put(entry.getKey(), progress);
+            }
+            copy.mSessions.addAll(mSessions);
+            copy.mSessionStartMillis = mSessionStartMillis;
+            copy.mLastEventMillis = mLastEventMillis;
+            copy.mSessionWordsPlayed = mSessionWordsPlayed;
+            return copy;
+        }
+    }
+
+    /**
+     * Events in columns, so buffering one does not allocate.
+     */
+    private static final class Batch {
+        final int[] mTypes = new int[BATCH_SIZE];
+        final long[] mWordIds = new long[BATCH_SIZE];
+        final long[] mTimes = new long[BATCH_SIZE];
+        final int[] mValues = new int[BATCH_SIZE];
+        int mSize;
+
+        void add(int type, long wordId, long timeMillis, int value) {
+            mTypes[mSize] = type;
+            mWordIds[mSize] = wordId;
+            mTimes[mSize] = timeMillis;
+            mValues[mSize] = value;
+            mSize++;
+        }
+
+        void applyTo(State state) {
+            for (int i = 0; i < mSize; i++) {
+                state.apply(mTypes[i], mWordIds[i], mTimes[i], mValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.android.miwok;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+/**
+ * {@link PronunciationRecorder} records the learner saying a word, on a thread of its own.
+ * The recording ends by itself once the learner has been silent for a while after speaking, or
+ * after {@link #MAX_MILLIS} at most. Needs the RECORD_AUDIO permission.
+ */
+public final class PronunciationRecorder {
+
+    /**
+     * Interface definition for callbacks invoked on the UI thread when a recording ends.
+     */
+    public interface Listener {
+        /**
+         * @param samples holds count mono 16 bit samples at the given rate.
+         */
+        void onRecorded(short[] samples, int count, int sampleRate);
+
+        void onRecordingFailed();
+    }
+
+    //Tried in order, 44.1kHz is the only rate every device supports.
+    private static final int[] SAMPLE_RATES = {Mfcc.SAMPLE_RATE, 44100};
+
+    private static final int MAX_MILLIS = 3000;
+
+    //Silence after speech which ends the recording.
+    private static final int TRAILING_SILENCE_MILLIS = 600;
+
+    //Samples are read in chunks, a chunk whose level reaches SPEECH_LEVEL is speech.
+    private static final int CHUNK_MILLIS = 20;
+    private static final int SPEECH_LEVEL = 1000;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    //The recording in progress, null while not recording. Only used on the UI thread.
+    private Recording mRecording;
+
+    /**
+     * Start recording, unless already recording.
+     */
+    public void start(Listener listener) {
+        if (mRecording == null) {
+            mRecording = new Recording(listener);
+            mRecording.start();
+        }
+    }
+
+    /**
+     * Return whether a recording is in progress.
+     */
+    public boolean isRecording() {
+        return mRecording != null;
+    }
+
+    /**
+     * End the recording now, passing what has been recorded so far to the listener.
+     */
+    public void stop() {
+        if (mRecording != null) {
+            mRecording.mStopped = true;
+        }
+    }
+
+    /**
+     * End the recording without calling the listener.
+     */
+    public void cancel() {
+        stop();
+        mRecording = null;
+    }
+
+    /**
+     * Records on a thread of its own until stopped or until the learner is done speaking.
+     */
+    private final class Recording extends Thread {
+        private final Listener mListener;
+
+        private volatile boolean mStopped;
+
+        Recording(Listener listener) {
+            super("PronunciationRecorder");
+            mListener = listener;
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+            AudioRecord audioRecord = null;
+            int sampleRate = 0;
+            for (int rate : SAMPLE_RATES) {
+                int minBufferBytes = AudioRecord.getMinBufferSize(rate,
+                        AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+                if (minBufferBytes <= 0) {
+                    continue;
+                }
+                audioRecord = new AudioRecord(MediaRecorder.AudioSource.MIC, rate,
+                        AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT,
+                        Math.max(minBufferBytes, 2 * 4 * rate * CHUNK_MILLIS / 1000));
+                if (audioRecord.getState() == AudioRecord.STATE_INITIALIZED) {
+                    sampleRate = rate;
+                    break;
+                }
+                audioRecord.release();
+                audioRecord = null;
+            }
+
+            final short[] samples = new short[MAX_MILLIS * sampleRate / 1000];
+            int count = 0;
+            boolean failed = audioRecord == null;
+            if (!failed) {
+                try {
+                    audioRecord.startRecording();
+                    failed = audioRecord.getRecordingState()
+                            != AudioRecord.RECORDSTATE_RECORDING;
+                    int chunk = sampleRate * CHUNK_MILLIS / 1000;
+                    //Chunks recorded since the last one with speech, -1 until the learner
+                    //speaks.
+                    int silentChunks = -1;
+                    while (!failed && !mStopped && count < samples.length
+                            && silentChunks * CHUNK_MILLIS < TRAILING_SILENCE_MILLIS) {
+                        int read = audioRecord.read(samples, count,
+                                Math.min(chunk, samples.length - count));
+                        if (read < 0) {
+                            failed = true;
+                            break;
+                        }
+                        if (isSpeech(samples, count, read)) {
+                            silentChunks = 0;
+                        } else if (silentChunks >= 0) {
+                            silentChunks++;
+                        }
+                        count += read;
+                    }
+                    audioRecord.stop();
+                } catch (IllegalStateException e) {
+                    //The microphone is used by another app.
+                    failed = true;
+                } finally {
+                    audioRecord.release();
+                }
+            }
+
+            final boolean success = !failed;
+            final int recorded = count;
+            final int rate = sampleRate;
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (mRecording != Recording.this) {
+                        //Cancelled.
+                        return;
+                    }
+                    mRecording = null;
+                    if (success) {
+                        mListener.onRecorded(samples, recorded, rate);
+                    } else {
+                        mListener.onRecordingFailed();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Return whether the root mean square of the samples reaches {@link #SPEECH_LEVEL}.
+     */
+    private static boolean isSpeech(short[] samples, int offset, int count) {
+        long squares = 0;
+        for (int i = offset; i < offset + count; i++) {
+            squares += samples[i] * samples[i];
+        }
+        return count > 0 && squares >= (long) SPEECH_LEVEL * SPEECH_LEVEL * count;
+    }
+}
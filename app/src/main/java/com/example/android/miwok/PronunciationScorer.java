@@ -0,0 +1,89 @@
+package com.example.android.miwok;
+
+import java.util.Arrays;
+
+/**
+ * {@link PronunciationScorer} scores the learner's attempt at a word from 0 to 100 against the
+ * reference clip, by aligning their {@link Mfcc} features with dynamic time warping. The
+ * alignment follows the attempt however much faster or slower it is spoken, within a band
+ * around the diagonal, and the score falls with the average distance of the aligned frames.
+ * Plain Java, so that it runs the same on the JVM.
+ */
+public final class PronunciationScorer {
+
+    //Features are normalized to unit variance, so unrelated frames lie about sqrt(2 * 12) apart,
+    //and the alignment of another word or of noise still averages about 3.6. An average distance
+    //up to GOOD_DISTANCE scores 100, from BAD_DISTANCE on it scores 0.
+    static final float GOOD_DISTANCE = 2.5f;
+    static final float BAD_DISTANCE = 3.7f;
+
+    //Half width of the alignment band, as a part of the reference and at least MIN_BAND frames.
+    private static final float BAND_FRACTION = 0.2f;
+    private static final int MIN_BAND = 8;
+
+    //An attempt this many times longer or shorter than the reference is another word.
+    private static final float MAX_LENGTH_RATIO = 3f;
+
+    private PronunciationScorer() {
+    }
+
+    /**
+     * Return the score from 0 to 100 of the attempt, both given as {@link Mfcc} features.
+     */
+    public static int score(float[] reference, float[] attempt) {
+        float distance = getDistance(reference, attempt);
+        if (Float.isInfinite(distance)) {
+            return 0;
+        }
+        float score = 100 * (BAD_DISTANCE - distance) / (BAD_DISTANCE - GOOD_DISTANCE);
+        return Math.max(0, Math.min(100, Math.round(score)));
+    }
+
+    /**
+     * Return the average distance between the aligned frames of the two features, or infinity
+     * if they cannot be aligned, e.g. because one is empty.
+     */
+    public static float getDistance(float[] reference, float[] attempt) {
+        int rows = Mfcc.getFrameCount(reference);
+        int columns = Mfcc.getFrameCount(attempt);
+        if (rows == 0 || columns == 0 || rows > columns * MAX_LENGTH_RATIO
+                || columns > rows * MAX_LENGTH_RATIO) {
+            return Float.POSITIVE_INFINITY;
+        }
+        int band = Math.max(MIN_BAND, (int) (BAND_FRACTION * Math.max(rows, columns)));
+
+        //Two rows of accumulated costs. Diagonal steps count twice, so that every path weighs
+        //rows + columns steps whatever its shape.
+        float[] previous = new float[columns + 1];
+        float[] current = new float[columns + 1];
+        Arrays.fill(previous, Float.POSITIVE_INFINITY);
+        previous[0] = 0;
+        for (int i = 1; i <= rows; i++) {
+            Arrays.fill(current, Float.POSITIVE_INFINITY);
+            //The band follows the diagonal from corner to corner.
+            int center = (int) ((long) i * columns / rows);
+            int start = Math.max(1, center - band);
+            int end = Math.min(columns, center + band);
+            int referenceBase = (i - 1) * Mfcc.COEFFICIENT_COUNT;
+            for (int j = start; j <= end; j++) {
+                float cost = getFrameDistance(reference, referenceBase, attempt,
+                        (j - 1) * Mfcc.COEFFICIENT_COUNT);
+                float best = Math.min(previous[j] + cost, current[j - 1] + cost);
+                current[j] = Math.min(best, previous[j - 1] + 2 * cost);
+            }
+            float[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[columns] / (rows + columns);
+    }
+
+    private static float getFrameDistance(float[] a, int aBase, float[] b, int bBase) {
+        float sum = 0;
+        for (int k = 0; k < Mfcc.COEFFICIENT_COUNT; k++) {
+            float difference = a[aBase + k] - b[bBase + k];
+            sum += difference * difference;
+        }
+        return (float) Math.sqrt(sum);
+    }
+}
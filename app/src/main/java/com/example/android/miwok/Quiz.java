@@ -0,0 +1,120 @@
+package com.example.android.miwok;
+
+import java.util.Random;
+
+/**
+ * {@link Quiz} asks multiple-choice questions about a range of words of the {@link Lexicon},
+ * e.g. those of a category. A question shows a word in one language and offers its translation
+ * among distractors read from the {@link DistractorIndex}, so no question is generated by trial
+ * and error.
+ */
+public final class Quiz {
+
+    //Number of choices of a question, the right one included.
+    public static final int CHOICE_COUNT = 4;
+
+    private final DistractorIndex mIndex;
+    private final int mFirstWord;
+    private final int mWordCount;
+    private final Random mRandom;
+
+    //Distractors of the word being asked, reused for every question.
+    private final int[] mDistractors = new int[DistractorIndex.SLOTS];
+
+    //Word of the previous question, not asked twice in a row.
+    private int mLastWord = -1;
+
+    /**
+     * Create a new {@link Quiz} object.
+     *
+     * @param index holds the distractors of the words.
+     * @param firstWord is the lexicon index of the first word which may be asked.
+     * @param wordCount is the number of words which may be asked.
+     */
+    public Quiz(DistractorIndex index, int firstWord, int wordCount, Random random) {
+        mIndex = index;
+        mFirstWord = firstWord;
+        mWordCount = wordCount;
+        mRandom = random;
+    }
+
+    /**
+     * Return a new question about a random word, in a random direction.
+     */
+    public Question next() {
+        int word = mFirstWord + mRandom.nextInt(mWordCount);
+        if (word == mLastWord && mWordCount > 1) {
+            word = mFirstWord + (word - mFirstWord + 1 + mRandom.nextInt(mWordCount - 1))
+                    % mWordCount;
+        }
+        mLastWord = word;
+        int direction = mRandom.nextBoolean()
+                ? DistractorIndex.FRENCH_TO_ENGLISH : DistractorIndex.ENGLISH_TO_FRENCH;
+
+        //Pick some of the stored distractors so the same word does not always get the same.
+        int count = mIndex.getDistractors(word, direction, mDistractors);
+        int choiceCount = Math.min(CHOICE_COUNT, count + 1);
+        int[] choices = new int[choiceCount];
+        for (int i = 0; i < choiceCount - 1; i++) {
+            int pick = i + mRandom.nextInt(count - i);
+            int distractor = mDistractors[pick];
+            mDistractors[pick] = mDistractors[i];
+            mDistractors[i] = distractor;
+            choices[i] = distractor;
+        }
+        int answer = mRandom.nextInt(choiceCount);
+        choices[choiceCount - 1] = choices[answer];
+        choices[answer] = word;
+        return new Question(word, direction, choices, answer);
+    }
+
+    /**
+     * A question of the quiz. Words are lexicon indices.
+     */
+    public static final class Question {
+        private final int mWord;
+        private final int mDirection;
+        private final int[] mChoices;
+        private final int mAnswer;
+
+        Question(int word, int direction, int[] choices, int answer) {
+            mWord = word;
+            mDirection = direction;
+            mChoices = choices;
+            mAnswer = answer;
+        }
+
+        /**
+         * Return the word asked about.
+         */
+        public int getWord() {
+            return mWord;
+        }
+
+        /**
+         * Return {@link DistractorIndex#FRENCH_TO_ENGLISH} or
+         * {@link DistractorIndex#ENGLISH_TO_FRENCH}.
+         */
+        public int getDirection() {
+            return mDirection;
+        }
+
+        public int getChoiceCount() {
+            return mChoices.length;
+        }
+
+        /**
+         * Return the word whose translation is offered as the given choice.
+         */
+        public int getChoice(int choice) {
+            return mChoices[choice];
+        }
+
+        /**
+         * Return the position of the right choice.
+         */
+        public int getAnswer() {
+            return mAnswer;
+        }
+    }
+}
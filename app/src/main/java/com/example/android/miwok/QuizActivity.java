@@ -0,0 +1,197 @@
+package com.example.android.miwok;
+
+import android.os.Bundle;
+import android.support.v4.content.ContextCompat;
+import android.support.v7.app.AppCompatActivity;
+import android.view.View;
+import android.widget.Button;
+import android.widget.TextView;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Multiple-choice quiz on the words of a {@link Category}, passed in with {@link #EXTRA_CATEGORY},
+ * or on all words. Each question shows a word in French or in English and offers its translation
+ * among distractors from the {@link DistractorIndex}.
+ */
+public class QuizActivity extends AppCompatActivity implements View.OnClickListener {
+
+    //Optional intent extra holding the key of the {@link Category} to ask about.
+    public static final String EXTRA_CATEGORY = "com.example.android.miwok.extra.CATEGORY";
+
+    private WordAudioPlayer mWordAudioPlayer;
+
+    //Words of all categories, indexed like the lexicon.
+    private List<Word> mAllWords;
+
+    //Null until the distractor index has been loaded.
+    private Quiz mQuiz;
+
+    //Question being asked, answered once mAnswered is set.
+    private Quiz.Question mQuestion;
+    private boolean mAnswered;
+
+    private int mAskedCount;
+    private int mRightCount;
+
+    private TextView mScoreView;
+    private TextView mPromptView;
+    private TextView mInstructionsView;
+    private final Button[] mChoiceButtons = new Button[Quiz.CHOICE_COUNT];
+    private View mNextButton;
+
+    //Text color of the choices before the question is answered.
+    private int mChoiceTextColor;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_quiz);
+
+        mScoreView = (TextView) findViewById(R.id.score);
+        mPromptView = (TextView) findViewById(R.id.prompt);
+        mInstructionsView = (TextView) findViewById(R.id.instructions);
+        mChoiceButtons[0] = (Button) findViewById(R.id.choice_0);
+        mChoiceButtons[1] = (Button) findViewById(R.id.choice_1);
+        mChoiceButtons[2] = (Button) findViewById(R.id.choice_2);
+        mChoiceButtons[3] = (Button) findViewById(R.id.choice_3);
+        mNextButton = findViewById(R.id.next);
+        mChoiceTextColor = mChoiceButtons[0].getCurrentTextColor();
+        for (Button button : mChoiceButtons) {
+            button.setOnClickListener(this);
+            button.setEnabled(false);
+        }
+        mNextButton.setOnClickListener(this);
+
+        final WordRepository repository = WordRepository.getInstance(this);
+        final String categoryKey = getIntent().getStringExtra(EXTRA_CATEGORY);
+        if (categoryKey != null) {
+            Category category = repository.getCategory(categoryKey);
+            if (category != null) {
+                setTitle(category.getTitle(this));
+            }
+        }
+
+        mWordAudioPlayer = new WordAudioPlayer(this);
+        mAllWords = repository.getAllWords();
+        repository.loadDistractorIndex(new WordRepository.OnDistractorIndexReadyListener() {
+            @Override
+            public void onDistractorIndexReady(DistractorIndex distractorIndex) {
+                if (isFinishing()) {
+                    return;
+                }
+                Lexicon lexicon = repository.getLexicon();
+                int firstWord = 0;
+                int wordCount = lexicon.getWordCount();
+                if (categoryKey != null) {
+                    //Only the words of the built-in lexicon are indexed.
+                    int category = lexicon.findCategory(categoryKey);
+                    if (category < 0) {
+                        finish();
+                        return;
+                    }
+                    firstWord = lexicon.getFirstWord(category);
+                    wordCount = lexicon.getCategoryWordCount(category);
+                }
+                mQuiz = new Quiz(distractorIndex, firstWord, wordCount, new Random());
+                showNextQuestion();
+            }
+        });
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        //Time spent on the words counts as a study session.
+        WordRepository.getInstance(this).getProgressStore().beginSession();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        //When the app is stopped, stop playback and give up audio focus.
+        mWordAudioPlayer.stop();
+        WordRepository.getInstance(this).getProgressStore().endSession();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mWordAudioPlayer.release();
+    }
+
+    @Override
+    public void onClick(View view) {
+        if (view == mNextButton) {
+            showNextQuestion();
+            return;
+        }
+        if (mQuestion == null || mAnswered) {
+            return;
+        }
+        for (int i = 0; i < mQuestion.getChoiceCount(); i++) {
+            if (view == mChoiceButtons[i]) {
+                answer(i);
+            }
+        }
+    }
+
+    private void showNextQuestion() {
+        long startNanos = System.nanoTime();
+        mQuestion = mQuiz.next();
+        Metrics.QUIZ_QUESTION.recordSince(startNanos);
+        mAnswered = false;
+
+        boolean askEnglish = mQuestion.getDirection() == DistractorIndex.FRENCH_TO_ENGLISH;
+        Word word = mAllWords.get(mQuestion.getWord());
+        mPromptView.setText(askEnglish
+                ? word.getFrenchTranslation() : word.getDefaultTranslation());
+        mInstructionsView.setText(askEnglish
+                ? R.string.quiz_pick_english : R.string.quiz_pick_french);
+        for (int i = 0; i < mChoiceButtons.length; i++) {
+            Button button = mChoiceButtons[i];
+            if (i < mQuestion.getChoiceCount()) {
+                Word choice = mAllWords.get(mQuestion.getChoice(i));
+                button.setText(askEnglish
+                        ? choice.getDefaultTranslation() : choice.getFrenchTranslation());
+                button.setTextColor(mChoiceTextColor);
+                button.setEnabled(true);
+                button.setVisibility(View.VISIBLE);
+            } else {
+                button.setVisibility(View.GONE);
+            }
+        }
+        mNextButton.setVisibility(View.INVISIBLE);
+        showScore();
+
+        //Decode the pronunciation, played once the question is answered.
+        mWordAudioPlayer.prefetch(word);
+    }
+
+    private void answer(int choice) {
+        mAnswered = true;
+        mAskedCount++;
+        if (choice == mQuestion.getAnswer()) {
+            mRightCount++;
+        } else {
+            mChoiceButtons[choice].setTextColor(ContextCompat.getColor(this, R.color.quiz_wrong));
+        }
+        mChoiceButtons[mQuestion.getAnswer()].setTextColor(
+                ContextCompat.getColor(this, R.color.quiz_right));
+        for (int i = 0; i < mQuestion.getChoiceCount(); i++) {
+            if (i != choice && i != mQuestion.getAnswer()) {
+                mChoiceButtons[i].setEnabled(false);
+            }
+        }
+        mNextButton.setVisibility(View.VISIBLE);
+        showScore();
+        Word word = mAllWords.get(mQuestion.getWord());
+        mWordAudioPlayer.play(word);
+        WordRepository.getInstance(this).getProgressStore().recordPlayed(word.getId());
+    }
+
+    private void showScore() {
+        mScoreView.setText(getString(R.string.quiz_score, mRightCount, mAskedCount));
+    }
+}
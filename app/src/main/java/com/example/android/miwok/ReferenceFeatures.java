@@ -0,0 +1,298 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ShortBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link ReferenceFeatures} holds the {@link Mfcc} features of the pronunciation of each
+ * {@link Word}, against which the learner's attempts are scored by the
+ * {@link PronunciationScorer}. The features of a clip are extracted once, from the PCM the
+ * {@link PcmCache} decodes, and appended to a file in the app's cache, so that scoring an
+ * attempt only has to extract the features of the attempt.
+ *
+ * <p>The file is laid out as, in big-endian order:
+ * <pre>
+ * magic "MFCC", version         2 ints
+ * coefficients per frame        int
+ * app version stamp             long
+ * then for each clip:
+ * stable name of the clip       modified UTF-8 string
+ * frame count                   int
+ * features                      frame count * coefficients floats
+ * </pre>
+ * A clip whose features were not completely written when the process died is dropped. All work
+ * runs on a thread of its own, scoring ahead of any extraction.
+ */
+public final class ReferenceFeatures {
+
+    /**
+     * Interface definition for a callback invoked on the UI thread once an attempt is scored.
+     */
+    public interface OnScoredListener {
+        /**
+         * @param score is from 0 to 100, or {@link #NO_REFERENCE}.
+         */
+        void onScored(int score);
+    }
+
+    //Score of an attempt at a word whose reference clip could not be decoded.
+    public static final int NO_REFERENCE = -1;
+
+    private static final int MAGIC = 0x4D464343; // "MFCC"
+    private static final int VERSION = 1;
+
+    private static final String FILE_NAME = "reference.mfcc";
+
+    private static ReferenceFeatures sInstance;
+
+    private final Context mContext;
+    private final File mFile;
+    private final Handler mHandler;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    //Features keyed by the stable name of their clip. Only used on the thread, read when first
+    //needed.
+    private Map<String, float[]> mFeatures;
+
+    private ReferenceFeatures(Context context, File file) {
+        mContext = context.getApplicationContext();
+        mFile = file;
+        HandlerThread thread = new HandlerThread("ReferenceFeatures",
+                Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        mHandler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * Return the process wide {@link ReferenceFeatures}.
+     */
+    public static synchronized ReferenceFeatures getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ReferenceFeatures(context,
+                    new File(context.getCacheDir(), FILE_NAME));
+        }
+        return sInstance;
+    }
+
+    /**
+     * Extract in the background the features of every given word which has none yet, so that
+     * the first attempt at a word does not wait for its clip to be decoded.
+     */
+    public void extract(final List<Word> words) {
+        final SpeechCache speechCache = SpeechCache.getInstance(mContext);
+        mHandler.post(new Runnable() {
+            private int mPosition;
+
+            @Override
+            public void run() {
+                //One word at a time, so that attempts are scored in between.
+                if (mPosition < words.size()) {
+                    getFeatures(speechCache.getAudioId(words.get(mPosition++)));
+                    mHandler.post(this);
+                }
+            }
+        });
+    }
+
+    /**
+     * Score in the background the attempt at the pronunciation with the given audio id, and
+     * pass the score to the listener on the UI thread. The samples must not be changed
+     * meanwhile.
+     *
+     * @param samples are the first count mono samples of the attempt, at the given rate.
+     */
+    public void score(final int audioId, final short[] samples, final int count,
+                      final int sampleRate, final OnScoredListener listener) {
+        mHandler.postAtFrontOfQueue(new Runnable() {
+            @Override
+            public void run() {
+                float[] reference = getFeatures(audioId);
+                int score = NO_REFERENCE;
+                if (reference != null && reference.length > 0) {
+                    long startNanos = System.nanoTime();
+                    score = PronunciationScorer.score(reference,
+                            Mfcc.extract(samples, count, sampleRate));
+                    Metrics.PRONUNCIATION_SCORE.recordSince(startNanos);
+                }
+                final int result = score;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onScored(result);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Return the features of the clip with the given audio id, extracting and storing them if
+     * they are not stored yet, or null if the clip cannot be decoded. Runs on the thread.
+     */
+    private float[] getFeatures(int audioId) {
+        if (audioId == 0) {
+            return null;
+        }
+        String name = MediaFiles.getStableName(mContext, audioId);
+        if (name == null) {
+            return null;
+        }
+        Map<String, float[]> allFeatures = getAllFeatures();
+        float[] features = allFeatures.get(name);
+        if (features != null) {
+            return features;
+        }
+        //Decoded into the cache, where the word is about to be played from anyway.
+        PcmCache pcmCache = PcmCache.getInstance(mContext);
+        PcmCache.Entry entry = pcmCache.get(audioId);
+        if (entry == null) {
+            entry = pcmCache.put(audioId);
+        }
+        if (entry == null) {
+            //Not decodable on this device, or a synthesized word not synthesized yet.
+            return null;
+        }
+        short[] samples = toMono(entry);
+        features = Mfcc.extract(samples, samples.length, entry.getSampleRate());
+        allFeatures.put(name, features);
+        append(name, features);
+        return features;
+    }
+
+    /**
+     * Return the stored features, reading the file on first use.
+     */
+    private Map<String, float[]> getAllFeatures() {
+        if (mFeatures == null) {
+            mFeatures = new HashMap<>();
+            try {
+                read();
+            } catch (IOException e) {
+                //Not written yet, or written by another version of the app.
+                mFeatures.clear();
+                mFile.delete();
+            }
+        }
+        return mFeatures;
+    }
+
+    private void read() throws IOException {
+        long validLength = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(mFile)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || in.readInt() != Mfcc.COEFFICIENT_COUNT
+                    || in.readLong() != getAppVersionStamp()) {
+                throw new IOException("Stale reference features");
+            }
+            validLength = 3 * 4 + 8;
+            try {
+                while (true) {
+                    String name = in.readUTF();
+                    int frameCount = in.readInt();
+                    float[] features = new float[frameCount * Mfcc.COEFFICIENT_COUNT];
+                    for (int i = 0; i < features.length; i++) {
+                        features[i] = in.readFloat();
+                    }
+                    mFeatures.put(name, features);
+                    validLength += 2 + getUtfLength(name) + 4 + 4 * features.length;
+                }
+            } catch (EOFException e) {
+                //The end of the file, or of the last clip being written.
+            }
+        } finally {
+            in.close();
+        }
+        if (mFile.length() > validLength) {
+            RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+            try {
+                file.setLength(validLength);
+            } finally {
+                file.close();
+            }
+        }
+    }
+
+    private void append(String name, float[] features) {
+        boolean exists = mFile.length() > 0;
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(mFile, exists)));
+            try {
+                if (!exists) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeInt(Mfcc.COEFFICIENT_COUNT);
+                    out.writeLong(getAppVersionStamp());
+                }
+                out.writeUTF(name);
+                out.writeInt(Mfcc.getFrameCount(features));
+                for (float feature : features) {
+                    out.writeFloat(feature);
+                }
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            //The features are extracted again in the next process.
+        }
+    }
+
+    private long getAppVersionStamp() {
+        try {
+            return mContext.getPackageManager()
+                    .getPackageInfo(mContext.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Return the length of the string in modified UTF-8, as written by writeUTF.
+     */
+    private static int getUtfLength(String string) {
+        int length = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            length += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+        }
+        return length;
+    }
+
+    /**
+     * Return the samples of the cached clip, the channels averaged.
+     */
+    private static short[] toMono(PcmCache.Entry entry) {
+        ShortBuffer data = entry.getData().asShortBuffer();
+        int channelCount = entry.getChannelCount();
+        short[] samples = new short[data.remaining() / channelCount];
+        for (int i = 0; i < samples.length; i++) {
+            int sum = 0;
+            for (int channel = 0; channel < channelCount; channel++) {
+                sum += data.get();
+            }
+            samples[i] = (short) (sum / channelCount);
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.android.miwok;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.app.AppCompatActivity;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reviews the words which are due according to the {@link ReviewScheduler}. The French word is
+ * shown first; once the answer is revealed the learner grades how well they recalled it.
+ */
+public class ReviewActivity extends AppCompatActivity implements View.OnClickListener {
+
+    //Loads the review state of the words off the UI thread.
+    private static final ExecutorService sLoadExecutor = Executors.newSingleThreadExecutor();
+
+    //Interval from which a word counts as mastered, as in most spaced repetition apps.
+    private static final int MASTERED_INTERVAL_DAYS = 21;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private WordAudioPlayer mWordAudioPlayer;
+
+    private ReviewStore mReviewStore;
+    private ProgressStore mProgressStore;
+
+    //Null until the review state has been loaded.
+    private ReviewScheduler mScheduler;
+
+    //Words of all categories, indexed like the lexicon.
+    private List<Word> mAllWords;
+
+    //Card being reviewed, or null if no card is due.
+    private ReviewCard mCard;
+
+    private ImageView mImageView;
+    private TextView mFrenchTextView;
+    private TextView mDefaultTextView;
+    private TextView mEmptyView;
+    private View mShowAnswerButton;
+    private View mGradeButtons;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_review);
+
+        mImageView = (ImageView) findViewById(R.id.image);
+        mFrenchTextView = (TextView) findViewById(R.id.french_text_view);
+        mDefaultTextView = (TextView) findViewById(R.id.default_text_view);
+        mEmptyView = (TextView) findViewById(R.id.empty_view);
+        mShowAnswerButton = findViewById(R.id.show_answer);
+        mGradeButtons = findViewById(R.id.grades);
+
+        mShowAnswerButton.setOnClickListener(this);
+        findViewById(R.id.grade_again).setOnClickListener(this);
+        findViewById(R.id.grade_hard).setOnClickListener(this);
+        findViewById(R.id.grade_good).setOnClickListener(this);
+        findViewById(R.id.grade_easy).setOnClickListener(this);
+        mShowAnswerButton.setEnabled(false);
+
+        mWordAudioPlayer = new WordAudioPlayer(this);
+
+        final WordRepository repository = WordRepository.getInstance(this);
+        mAllWords = repository.getAllWords();
+        mReviewStore = repository.getReviewStore();
+        mProgressStore = repository.getProgressStore();
+        sLoadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final ReviewScheduler scheduler = loadScheduler(repository.getLexicon());
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!isFinishing()) {
+                            mScheduler = scheduler;
+                            showNextCard();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        //Write the reviews which are still buffered.
+        mReviewStore.flush();
+        mProgressStore.flush();
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        //Time spent on the words counts as a study session.
+        mProgressStore.beginSession();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        //When the app is stopped, stop playback and give up audio focus.
+        mWordAudioPlayer.stop();
+        mProgressStore.endSession();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mWordAudioPlayer.release();
+    }
+
+    @Override
+    public void onClick(View view) {
+        if (mCard == null) {
+            return;
+        }
+        int id = view.getId();
+        if (id == R.id.show_answer) {
+            showAnswer();
+        } else if (id == R.id.grade_again) {
+            grade(ReviewScheduler.GRADE_AGAIN);
+        } else if (id == R.id.grade_hard) {
+            grade(ReviewScheduler.GRADE_HARD);
+        } else if (id == R.id.grade_good) {
+            grade(ReviewScheduler.GRADE_GOOD);
+        } else if (id == R.id.grade_easy) {
+            grade(ReviewScheduler.GRADE_EASY);
+        }
+    }
+
+    /**
+     * Create a card for every word of the lexicon, restoring the stored state of the words
+     * which have been reviewed before.
+     */
+    private ReviewScheduler loadScheduler(Lexicon lexicon) {
+        Map<Long, ReviewCard> storedCards;
+        try {
+            storedCards = mReviewStore.load();
+        } catch (IOException e) {
+            //Start over rather than not being able to review at all.
+            storedCards = new HashMap<>();
+        }
+
+        int wordCount = lexicon.getWordCount();
+        List<ReviewCard> cards = new ArrayList<>(wordCount);
+        for (int i = 0; i < wordCount; i++) {
+            long id = lexicon.getId(i);
+            ReviewCard card = storedCards.get(id);
+            if (card == null) {
+                card = new ReviewCard(id);
+            }
+            card.mWordIndex = i;
+            cards.add(card);
+        }
+        return new ReviewScheduler(cards);
+    }
+
+    private void showNextCard() {
+        mCard = mScheduler.next(System.currentTimeMillis());
+        mDefaultTextView.setVisibility(View.INVISIBLE);
+        mGradeButtons.setVisibility(View.GONE);
+
+        if (mCard == null) {
+            mImageView.setVisibility(View.GONE);
+            mFrenchTextView.setVisibility(View.GONE);
+            mShowAnswerButton.setVisibility(View.GONE);
+            mEmptyView.setVisibility(View.VISIBLE);
+            return;
+        }
+
+        Word word = mAllWords.get(mCard.getWordIndex());
+        mFrenchTextView.setText(word.getFrenchTranslation());
+        mDefaultTextView.setText(word.getDefaultTranslation());
+        if (word.hasImage()) {
+            WordImageLoader.getInstance(this).load(word.getImageResourceId(), mImageView);
+            mImageView.setVisibility(View.VISIBLE);
+        } else {
+            mImageView.setVisibility(View.GONE);
+        }
+        mShowAnswerButton.setEnabled(true);
+        mShowAnswerButton.setVisibility(View.VISIBLE);
+
+        //Decode the pronunciation while the learner thinks about the answer.
+        mWordAudioPlayer.prefetch(word);
+    }
+
+    private void showAnswer() {
+        mDefaultTextView.setVisibility(View.VISIBLE);
+        mShowAnswerButton.setVisibility(View.GONE);
+        mGradeButtons.setVisibility(View.VISIBLE);
+        mWordAudioPlayer.play(mAllWords.get(mCard.getWordIndex()));
+        mProgressStore.recordPlayed(mCard.getWordId());
+    }
+
+    private void grade(int grade) {
+        mScheduler.review(mCard, grade, System.currentTimeMillis());
+        mReviewStore.update(mCard);
+        mProgressStore.setMastered(mCard.getWordId(),
+                mCard.mIntervalDays >= MASTERED_INTERVAL_DAYS);
+        showNextCard();
+    }
+}
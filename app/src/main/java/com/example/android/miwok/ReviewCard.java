@@ -0,0 +1,72 @@
+package com.example.android.miwok;
+
+/**
+ * {@link ReviewCard} holds the spaced repetition state of one {@link Word}, keyed by the
+ * word's stable id so that it survives changes to the lexicon.
+ */
+public final class ReviewCard {
+
+    //Easiness factor of words which have never been reviewed.
+    public static final float INITIAL_EASINESS = 2.5f;
+
+    //Stable id of the word, see {@link Word#getId()}.
+    final long mWordId;
+
+    //Index of the word in the lexicon, resolved when the cards are loaded.
+    int mWordIndex;
+
+    //Number of successful reviews in a row.
+    int mRepetitions;
+
+    //Days until the next review after the last successful one.
+    int mIntervalDays;
+
+    //SM-2 easiness factor, at least 1.3.
+    float mEasiness = INITIAL_EASINESS;
+
+    //Time in milliseconds at which the word is due for review, 0 for new words.
+    long mDueMillis;
+
+    //Number of reviews and of failed reviews.
+    int mReviewCount;
+    int mLapseCount;
+
+    ReviewCard(long wordId) {
+        mWordId = wordId;
+    }
+
+    /**
+     * Return the stable id of the word.
+     */
+    public long getWordId() {
+        return mWordId;
+    }
+
+    /**
+     * Return the index of the word in the lexicon.
+     */
+    public int getWordIndex() {
+        return mWordIndex;
+    }
+
+    /**
+     * Return the time in milliseconds at which the word is due for review.
+     */
+    public long getDueMillis() {
+        return mDueMillis;
+    }
+
+    /**
+     * Return the number of times the word has been reviewed.
+     */
+    public int getReviewCount() {
+        return mReviewCount;
+    }
+
+    /**
+     * Return the number of times the word was not recalled.
+     */
+    public int getLapseCount() {
+        return mLapseCount;
+    }
+}
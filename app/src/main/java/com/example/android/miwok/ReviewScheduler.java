@@ -0,0 +1,103 @@
+package com.example.android.miwok;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * {@link ReviewScheduler} decides which {@link Word} to review next using the SM-2 spaced
+ * repetition algorithm. Cards are kept in a priority queue ordered by due time, so finding the
+ * next card does not depend on the number of words or on how many reviews were made.
+ */
+public final class ReviewScheduler {
+
+    //Grades of a review, from SM-2's 0 to 5 scale.
+    public static final int GRADE_AGAIN = 1;
+    public static final int GRADE_HARD = 3;
+    public static final int GRADE_GOOD = 4;
+    public static final int GRADE_EASY = 5;
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private static final float MIN_EASINESS = 1.3f;
+
+    //Earliest due cards first; new cards in lexicon order.
+    private static final Comparator<ReviewCard> DUE_ORDER = new Comparator<ReviewCard>() {
+        @Override
+        public int compare(ReviewCard a, ReviewCard b) {
+            if (a.mDueMillis != b.mDueMillis) {
+                return a.mDueMillis < b.mDueMillis ? -1 : 1;
+            }
+            return a.mWordIndex - b.mWordIndex;
+        }
+    };
+
+    private final PriorityQueue<ReviewCard> mQueue;
+
+    /**
+     * Create a scheduler for the given cards, one per word.
+     */
+    public ReviewScheduler(Collection<ReviewCard> cards) {
+        mQueue = new PriorityQueue<>(Math.max(1, cards.size()), DUE_ORDER);
+        mQueue.addAll(cards);
+    }
+
+    /**
+     * Return the card to review at the given time, or null if no card is due.
+     */
+    public ReviewCard next(long nowMillis) {
+        ReviewCard card = mQueue.peek();
+        return card != null && card.mDueMillis <= nowMillis ? card : null;
+    }
+
+    /**
+     * Return the time in milliseconds at which the next card is due, or -1 if there are none.
+     */
+    public long getNextDueMillis() {
+        ReviewCard card = mQueue.peek();
+        return card != null ? card.mDueMillis : -1;
+    }
+
+    /**
+     * Record the review of the card returned by {@link #next(long)} and schedule it again.
+     *
+     * @param card is the card which was reviewed, it must be the next card.
+     * @param grade is how well the word was recalled, one of the GRADE constants.
+     * @param nowMillis is the time of the review.
+     */
+    public void review(ReviewCard card, int grade, long nowMillis) {
+        if (mQueue.peek() != card) {
+            throw new IllegalArgumentException("Only the next card can be reviewed");
+        }
+        mQueue.poll();
+        schedule(card, grade, nowMillis);
+        mQueue.add(card);
+    }
+
+    /**
+     * Update the card's SM-2 state for a review with the given grade.
+     */
+    static void schedule(ReviewCard card, int grade, long nowMillis) {
+        card.mReviewCount++;
+        if (grade < GRADE_HARD) {
+            //Not recalled, start learning the word again.
+            card.mLapseCount++;
+            card.mRepetitions = 0;
+            card.mIntervalDays = 1;
+        } else {
+            card.mRepetitions++;
+            if (card.mRepetitions == 1) {
+                card.mIntervalDays = 1;
+            } else if (card.mRepetitions == 2) {
+                card.mIntervalDays = 6;
+            } else {
+                card.mIntervalDays = Math.round(card.mIntervalDays * card.mEasiness);
+            }
+        }
+
+        int difficulty = 5 - grade;
+        card.mEasiness = Math.max(MIN_EASINESS,
+                card.mEasiness + 0.1f - difficulty * (0.08f + difficulty * 0.02f));
+        card.mDueMillis = nowMillis + card.mIntervalDays * DAY_MILLIS;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.android.miwok;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link ReviewStore} persists the {@link ReviewCard}s in a compact binary file of fixed size
+ * records keyed by stable word id. Updated cards are buffered and appended in batches on a
+ * background thread; when a card appears several times the last record wins. The file is
+ * rewritten with one record per card when it is loaded and has grown too much. It is only read
+ * and written on that thread, so loading sees every card updated before.
+ */
+public final class ReviewStore {
+
+    //Number of updated cards buffered before they are written.
+    private static final int BATCH_SIZE = 32;
+
+    //Size of a record: id, repetitions, interval, easiness, due, review and lapse counts.
+    private static final int RECORD_BYTES = 8 + 4 + 4 + 4 + 8 + 4 + 4;
+
+    private final File mFile;
+
+    //Reads the file and writes the batches in order, off the UI thread.
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+
+    //Snapshots of the updated cards which have not been written yet.
+    private List<ReviewCard> mPending = new ArrayList<>();
+
+    /**
+     * Create a new {@link ReviewStore} object.
+     *
+     * @param file is the file holding the cards.
+     */
+    public ReviewStore(File file) {
+        mFile = file;
+    }
+
+    /**
+     * Read the cards from the file, keyed by word id, once the buffered cards have been written.
+     * Blocks, call it off the UI thread.
+     */
+    public Map<Long, ReviewCard> load() throws IOException {
+        flush();
+        try {
+            //Queued after the batches, which are written first.
+            return mExecutor.submit(new Callable<Map<Long, ReviewCard>>() {
+                @Override
+                public Map<Long, ReviewCard> call() throws IOException {
+                    return readCards();
+                }
+            }).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private Map<Long, ReviewCard> readCards() throws IOException {
+        Map<Long, ReviewCard> cards = new HashMap<>();
+        if (!mFile.exists()) {
+            return cards;
+        }
+        long length = mFile.length();
+        if (length % RECORD_BYTES != 0) {
+            //Drop a record which was partially written when the process died, so that
+            //the records appended next stay aligned.
+            RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+            try {
+                file.setLength(length - length % RECORD_BYTES);
+            } finally {
+                file.close();
+            }
+        }
+
+        int records = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+        try {
+            while (true) {
+                ReviewCard card = new ReviewCard(in.readLong());
+                card.mRepetitions = in.readInt();
+                card.mIntervalDays = in.readInt();
+                card.mEasiness = in.readFloat();
+                card.mDueMillis = in.readLong();
+                card.mReviewCount = in.readInt();
+                card.mLapseCount = in.readInt();
+                cards.put(card.mWordId, card);
+                records++;
+            }
+        } catch (EOFException e) {
+            //End of the file.
+        } finally {
+            in.close();
+        }
+
+        if (records > 2 * cards.size() + BATCH_SIZE) {
+            compact(cards.values());
+        }
+        return cards;
+    }
+
+    /**
+     * Buffer the current state of the card, writing the buffered cards once there are enough.
+     */
+    public synchronized void update(ReviewCard card) {
+        //Copy the card, it keeps changing on the UI thread.
+        ReviewCard snapshot = new ReviewCard(card.mWordId);
+        snapshot.mRepetitions = card.mRepetitions;
+        snapshot.mIntervalDays = card.mIntervalDays;
+        snapshot.mEasiness = card.mEasiness;
+        snapshot.mDueMillis = card.mDueMillis;
+        snapshot.mReviewCount = card.mReviewCount;
+        snapshot.mLapseCount = card.mLapseCount;
+        mPending.add(snapshot);
+        if (mPending.size() >= BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Write the buffered cards in the background, e.g. when the review screen is left.
+     */
+    public synchronized void flush() {
+        if (mPending.isEmpty()) {
+            return;
+        }
+        final List<ReviewCard> batch = mPending;
+        mPending = new ArrayList<>();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    append(batch);
+                } catch (IOException e) {
+                    //The reviews are lost but the store remains readable.
+                }
+            }
+        });
+    }
+
+    /**
+     * Rewrite the file with a single record per card, replacing it atomically.
+     */
+    private void compact(Collection<ReviewCard> cards) throws IOException {
+        File temp = new File(mFile.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temp), RECORD_BYTES * BATCH_SIZE));
+        try {
+            for (ReviewCard card : cards) {
+                writeRecord(out, card);
+            }
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(mFile)) {
+            throw new IOException("Unable to replace " + mFile);
+        }
+    }
+
+    private void append(List<ReviewCard> cards) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(mFile, true), RECORD_BYTES * cards.size()));
+        try {
+            for (ReviewCard card : cards) {
+                writeRecord(out, card);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, ReviewCard card) throws IOException {
+        out.writeLong(card.mWordId);
+        out.writeInt(card.mRepetitions);
+        out.writeInt(card.mIntervalDays);
+        out.writeFloat(card.mEasiness);
+        out.writeLong(card.mDueMillis);
+        out.writeInt(card.mReviewCount);
+        out.writeInt(card.mLapseCount);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.android.miwok;
+
+import android.os.Bundle;
+import android.support.v4.content.ContextCompat;
+import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.widget.EditText;
+
+import java.util.Collections;
+
+/**
+ * Searches the English and French translations of the words of all categories,
+ * updating the results on every keystroke.
+ */
+public class SearchActivity extends AppCompatActivity {
+
+    //Maximum number of results shown.
+    private static final int MAX_RESULTS = 50;
+
+    //Plays the pronunciation of the results.
+    private WordAudioPlayer mWordAudioPlayer;
+
+    private WordAdapter mAdapter;
+
+    private EditText mSearchBox;
+
+    //Null until the index has been built in the background.
+    private SearchIndex mSearchIndex;
+
+    //Words of all categories, indexed like the search index results.
+    private WordTable mWordTable;
+
+    //Receives the indices of the matching words, reused for every query.
+    private final int[] mResults = new int[MAX_RESULTS];
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_search);
+
+        mWordAudioPlayer = new WordAudioPlayer(this);
+
+        //Results come from all categories, so they are shown in the app's primary color.
+        mAdapter = new WordAdapter(this, Collections.<Word>emptyList(),
+                ContextCompat.getColor(this, R.color.primary_color));
+        mAdapter.setOnWordClickListener(new WordAdapter.OnWordClickListener() {
+            @Override
+            public void onWordClick(Word word, int position) {
+                mWordAudioPlayer.play(word);
+                WordRepository.getInstance(SearchActivity.this).getProgressStore()
+                        .recordPlayed(word.getId());
+            }
+        });
+
+        RecyclerView recyclerView = (RecyclerView) findViewById(R.id.list);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        recyclerView.setAdapter(mAdapter);
+
+        mSearchBox = (EditText) findViewById(R.id.search_box);
+        mSearchBox.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                search();
+            }
+        });
+
+        WordRepository repository = WordRepository.getInstance(this);
+        mWordTable = repository.getWordTable();
+        repository.loadSearchIndex(new WordRepository.OnSearchIndexReadyListener() {
+            @Override
+            public void onSearchIndexReady(SearchIndex searchIndex) {
+                mSearchIndex = searchIndex;
+                //Show the results of what was typed while the index was being built.
+                search();
+            }
+        });
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        //Time spent on the words counts as a study session.
+        WordRepository.getInstance(this).getProgressStore().beginSession();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        //When the app is stopped, stop playback and give up audio focus.
+        mWordAudioPlayer.stop();
+        WordRepository.getInstance(this).getProgressStore().endSession();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mWordAudioPlayer.release();
+    }
+
+    private void search() {
+        if (mSearchIndex == null || isFinishing()) {
+            return;
+        }
+        int count = mSearchIndex.search(mSearchBox.getText().toString(), mResults);
+        mAdapter.setWords(mWordTable.select(mResults, count));
+    }
+}
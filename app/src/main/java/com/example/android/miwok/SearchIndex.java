@@ -0,0 +1,183 @@
+package com.example.android.miwok;
+
+/**
+ * {@link SearchIndex} finds words whose English or French translation contains a word starting
+ * with the query, ignoring case, accents and punctuation: "a bient" finds "À bientôt!".
+ *
+ * <p>Every word start of every normalized translation is a suffix entry. The entries are sorted
+ * once when the index is built, so a query is a binary search for the first entry starting with
+ * it followed by a scan of the matching entries.
+ */
+public final class SearchIndex {
+
+    //Normalized translations; text 2 * i is the English and 2 * i + 1 the French of word i.
+    private final String[] mTexts;
+
+    //Sorted suffix entries, each is the text index in the high and the offset in the low bits.
+    private final long[] mSuffixes;
+
+    /**
+     * Build the index of the given translations, where both arrays are indexed by word.
+     */
+    public SearchIndex(String[] defaultTranslations, String[] frenchTranslations) {
+        int wordCount = defaultTranslations.length;
+        mTexts = new String[wordCount * 2];
+        int suffixCount = 0;
+        for (int i = 0; i < wordCount; i++) {
+            mTexts[2 * i] = TextNormalizer.normalize(defaultTranslations[i]);
+            mTexts[2 * i + 1] = TextNormalizer.normalize(frenchTranslations[i]);
+            suffixCount += countWordStarts(mTexts[2 * i]) + countWordStarts(mTexts[2 * i + 1]);
+        }
+
+        mSuffixes = new long[suffixCount];
+        int suffix = 0;
+        for (int text = 0; text < mTexts.length; text++) {
+            String value = mTexts[text];
+            for (int offset = 0; offset < value.length(); offset++) {
+                if (offset == 0 || value.charAt(offset - 1) == ' ') {
+                    mSuffixes[suffix++] = ((long) text << 32) | offset;
+                }
+            }
+        }
+        sort(mSuffixes, new long[suffixCount], 0, suffixCount);
+    }
+
+    /**
+     * Build the index of all the words of the {@link Lexicon}. Results are lexicon word indices.
+     */
+    public static SearchIndex fromLexicon(Lexicon lexicon) {
+        int wordCount = lexicon.getWordCount();
+        String[] defaultTranslations = new String[wordCount];
+        String[] frenchTranslations = new String[wordCount];
+        for (int i = 0; i < wordCount; i++) {
+            defaultTranslations[i] = lexicon.getDefaultTranslation(i);
+            frenchTranslations[i] = lexicon.getFrenchTranslation(i);
+        }
+        return new SearchIndex(defaultTranslations, frenchTranslations);
+    }
+
+    /**
+     * Find the words matching the query.
+     *
+     * @param query is the text typed by the user.
+     * @param results receives the indices of the matching words, at most its length of them.
+     * @return the number of matching words written to results.
+     */
+    public int search(String query, int[] results) {
+        String normalized = TextNormalizer.normalize(query);
+        if (normalized.isEmpty()) {
+            return 0;
+        }
+
+        //Find the first suffix which is not smaller than the query.
+        int low = 0;
+        int high = mSuffixes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareToQuery(mSuffixes[middle], normalized) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        int count = 0;
+        for (int i = low; i < mSuffixes.length && count < results.length; i++) {
+            long suffix = mSuffixes[i];
+            String text = mTexts[(int) (suffix >>> 32)];
+            if (!text.startsWith(normalized, (int) suffix)) {
+                break;
+            }
+            int word = (int) (suffix >>> 32) / 2;
+            if (!contains(results, count, word)) {
+                results[count++] = word;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Return the number of words in the index.
+     */
+    public int getWordCount() {
+        return mTexts.length / 2;
+    }
+
+    private static int countWordStarts(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (i == 0 || text.charAt(i - 1) == ' ') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compare a suffix with the query, treating a suffix the query is a prefix of as equal.
+     */
+    private int compareToQuery(long suffix, String query) {
+        String text = mTexts[(int) (suffix >>> 32)];
+        int offset = (int) suffix;
+        int length = Math.min(text.length() - offset, query.length());
+        for (int i = 0; i < length; i++) {
+            int difference = text.charAt(offset + i) - query.charAt(i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length == query.length() ? 0 : -1;
+    }
+
+    private int compareSuffixes(long a, long b) {
+        String textA = mTexts[(int) (a >>> 32)];
+        String textB = mTexts[(int) (b >>> 32)];
+        int offsetA = (int) a;
+        int offsetB = (int) b;
+        int lengthA = textA.length() - offsetA;
+        int lengthB = textB.length() - offsetB;
+        int length = Math.min(lengthA, lengthB);
+        for (int i = 0; i < length; i++) {
+            int difference = textA.charAt(offsetA + i) - textB.charAt(offsetB + i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return lengthA - lengthB;
+    }
+
+    /**
+     * Merge sort the suffixes in [from, to) without boxing them.
+     */
+    private void sort(long[] values, long[] buffer, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sort(values, buffer, from, middle);
+        sort(values, buffer, middle, to);
+        if (compareSuffixes(values[middle - 1], values[middle]) <= 0) {
+            //Already in order.
+            return;
+        }
+        System.arraycopy(values, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && compareSuffixes(buffer[left], buffer[right]) <= 0)) {
+                values[i] = buffer[left++];
+            } else {
+                values[i] = buffer[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import java.util.List;
+
+/**
+ * Displays the {@link WordSections} of several categories in one {@link RecyclerView}, each
+ * section under a header in the theme color of its {@link Category}. Rows are bound straight from
+ * the table columns, so no {@link Word} is created while scrolling.
+ */
+public class SectionedWordAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    private static final int TYPE_HEADER = 0;
+    private static final int TYPE_WORD = 1;
+
+    private final LayoutInflater mInflater;
+
+    private final WordImageLoader mImageLoader;
+
+    private final WordSections mSections;
+
+    //Names and theme colors of the sections, resolved once.
+    private final CharSequence[] mTitles;
+    private final int[] mColors;
+
+    private WordAdapter.OnWordClickListener mOnWordClickListener;
+
+    /**
+     * Create a new {@link SectionedWordAdapter} object.
+     *
+     * @param categories are the categories of the sections, in the same order.
+     */
+    public SectionedWordAdapter(Context context, WordSections sections,
+                                List<Category> categories) {
+        mInflater = LayoutInflater.from(context);
+        mImageLoader = WordImageLoader.getInstance(context);
+        mSections = sections;
+        mTitles = new CharSequence[categories.size()];
+        mColors = new int[categories.size()];
+        for (int i = 0; i < mTitles.length; i++) {
+            mTitles[i] = categories.get(i).getTitle(context);
+            mColors[i] = categories.get(i).getColor(context);
+        }
+    }
+
+    /**
+     * Register a callback to be invoked when a {@link Word} in the list is tapped.
+     */
+    public void setOnWordClickListener(WordAdapter.OnWordClickListener listener) {
+        mOnWordClickListener = listener;
+    }
+
+    public WordSections getSections() {
+        return mSections;
+    }
+
+    /**
+     * Show the header of a section in the given view, created by {@link #createHeaderView}.
+     */
+    public void bindHeader(TextView headerView, int section) {
+        headerView.setText(mTitles[section]);
+        headerView.setBackgroundColor(mColors[section]);
+    }
+
+    /**
+     * Create a view for the header of a section.
+     */
+    public TextView createHeaderView(ViewGroup parent) {
+        return (TextView) mInflater.inflate(R.layout.section_header, parent, false);
+    }
+
+    @Override
+    public int getItemCount() {
+        return mSections.getRowCount();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return mSections.isHeader(position) ? TYPE_HEADER : TYPE_WORD;
+    }
+
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        if (viewType == TYPE_HEADER) {
+            return new HeaderViewHolder(createHeaderView(parent));
+        }
+        return new WordViewHolder(mInflater.inflate(R.layout.list_item, parent, false));
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        long startNanos = System.nanoTime();
+        int section = mSections.getSection(position);
+        if (holder instanceof HeaderViewHolder) {
+            bindHeader(((HeaderViewHolder) holder).titleView, section);
+            return;
+        }
+
+        //Read the row from the table columns, without creating a Word.
+        WordViewHolder wordHolder = (WordViewHolder) holder;
+        WordTable.WordList words = mSections.getWords(section);
+        WordTable table = words.getTable();
+        int word = words.getTableIndex(mSections.getWordPosition(position));
+        wordHolder.frenchTextView.setText(table.getFrenchTranslation(word));
+        wordHolder.defaultTextView.setText(table.getDefaultTranslation(word));
+
+        //Rows are only recolored when they move to another category.
+        int color = mColors[section];
+        if (wordHolder.color != color) {
+            wordHolder.color = color;
+            wordHolder.textContainer.setBackgroundColor(color);
+            wordHolder.playIcon.setBackgroundColor(color);
+        }
+
+        int imageResourceId = table.getImageResourceId(word);
+        if (imageResourceId != 0) {
+            mImageLoader.load(imageResourceId, wordHolder.imageView);
+            wordHolder.imageView.setVisibility(View.VISIBLE);
+        } else {
+            mImageLoader.cancel(wordHolder.imageView);
+            wordHolder.imageView.setVisibility(View.GONE);
+        }
+        Metrics.ROW_BIND.recordSince(startNanos);
+    }
+
+    @Override
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        //The row will show another word, its image is not needed anymore.
+        if (holder instanceof WordViewHolder) {
+            mImageLoader.cancel(((WordViewHolder) holder).imageView);
+        }
+    }
+
+    /**
+     * Holds the view of the header of a section.
+     */
+    static class HeaderViewHolder extends RecyclerView.ViewHolder {
+
+        final TextView titleView;
+
+        HeaderViewHolder(TextView itemView) {
+            super(itemView);
+            titleView = itemView;
+        }
+    }
+
+    /**
+     * Holds the views of a row of a word, found once when the row is created.
+     */
+    class WordViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+
+        final TextView frenchTextView;
+        final TextView defaultTextView;
+        final ImageView imageView;
+        final View textContainer;
+        final View playIcon;
+
+        //Theme color the row is painted in, 0 until it is bound.
+        int color;
+
+        WordViewHolder(View itemView) {
+            super(itemView);
+            frenchTextView = (TextView) itemView.findViewById(R.id.french_text_view);
+            defaultTextView = (TextView) itemView.findViewById(R.id.default_text_view);
+            imageView = (ImageView) itemView.findViewById(R.id.image);
+            textContainer = itemView.findViewById(R.id.text_container);
+            playIcon = itemView.findViewById(R.id.play_icon);
+            itemView.setOnClickListener(this);
+        }
+
+        @Override
+        public void onClick(View view) {
+            int position = getAdapterPosition();
+            if (position != RecyclerView.NO_POSITION && mOnWordClickListener != null) {
+                WordTable.WordList words = mSections.getWords(mSections.getSection(position));
+                mOnWordClickListener.onWordClick(
+                        words.get(mSections.getWordPosition(position)), position);
+            }
+        }
+    }
+}
@@ -0,0 +1,539 @@
+package com.example.android.miwok;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.util.SparseArray;
+import android.util.SparseLongArray;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SpeechCache} pronounces the {@link Word}s which have no recorded clip with the
+ * device's French {@link TextToSpeech} engine. Each French word is synthesized once into a WAV
+ * file in a size-bounded directory of the app's cache, which is given a {@link MediaFiles} id,
+ * so that the {@link WordAudioPlayer} decodes, caches and plays it like a recorded clip. The
+ * least recently used files are evicted first.
+ *
+ * <p>Synthesis runs on a thread of its own, one word at a time. A word the player is waiting for
+ * is synthesized before those of a batch, see {@link #presynthesize(List)}. The engine is shut
+ * down when it has been idle for a while. A word which could not be synthesized is skipped by
+ * the batches for a while, but tried again as soon as the player asks for it: the failure may
+ * be passing, like a full disk or an engine still starting. Only an engine without a French
+ * voice is given up on for the life of the process.
+ */
+public final class SpeechCache {
+
+    /**
+     * Interface definition for a callback invoked on the synthesis thread once a word has been
+     * synthesized, or could not be.
+     */
+    public interface Callback {
+        void onSynthesized(boolean success);
+    }
+
+    //Directory in the app's cache directory holding the synthesized words.
+    private static final String DIRECTORY = "speech";
+
+    private static final String SUFFIX = ".wav";
+
+    //Default size bound of the synthesized words, some 400 words of a second at 22kHz.
+    public static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+    private static final Locale LOCALE = Locale.FRENCH;
+
+    private static final long INIT_TIMEOUT_MILLIS = 5000;
+    private static final long SYNTHESIS_TIMEOUT_MILLIS = 10000;
+
+    //The engine is shut down after this long without synthesizing anything.
+    private static final long IDLE_SHUTDOWN_MILLIS = 30000;
+
+    //Batches skip a word, or the engine, for this long after it failed.
+    private static final long RETRY_DELAY_MILLIS = 60000;
+
+    //A synthesized file no longer than a WAV header holds no speech.
+    private static final int WAV_HEADER_BYTES = 44;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static SpeechCache sInstance;
+
+    private final Context mContext;
+    private final File mDirectory;
+    private final long mMaxBytes;
+    private final Handler mHandler;
+
+    //Synthesized words keyed by file name, least recently used first. Read when first needed.
+    private LinkedHashMap<String, Long> mSizes;
+
+    //Total size of the synthesized words.
+    private long mBytes;
+
+    //Audio ids given to French words, and the other way round.
+    private final Map<String, Integer> mIds = new HashMap<>();
+    private final SparseArray<String> mTexts = new SparseArray<>();
+
+    //Uptime at which the engine last failed to synthesize a word, keyed by audio id.
+    private final SparseLongArray mFailedMillis = new SparseLongArray();
+
+    private long mHitCount;
+    private long mMissCount;
+    private long mSynthesizedCount;
+    private long mSynthesisMillis;
+
+    //Only used on the synthesis thread. Null until needed and once shut down.
+    private TextToSpeech mEngine;
+
+    //Set once the engine turned out not to speak French, for the life of the process.
+    private boolean mUnavailable;
+
+    //Uptime at which the engine last failed to start, or 0.
+    private long mEngineFailedMillis;
+
+    private volatile int mInitStatus;
+    private volatile CountDownLatch mLatch;
+    private volatile boolean mUtteranceFailed;
+
+    private final Runnable mShutdownRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mEngine != null) {
+                mEngine.shutdown();
+                mEngine = null;
+            }
+        }
+    };
+
+    /**
+     * Releases the synthesis thread as each utterance completes.
+     */
+    private final UtteranceProgressListener mUtteranceListener = new UtteranceProgressListener() {
+        @Override
+        public void onStart(String utteranceId) {
+        }
+
+        @Override
+        public void onDone(String utteranceId) {
+            countDown(false);
+        }
+
+        @Override
+        public void onError(String utteranceId) {
+            countDown(true);
+        }
+
+        private void countDown(boolean failed) {
+            CountDownLatch latch = mLatch;
+            if (latch != null) {
+                mUtteranceFailed = failed;
+                latch.countDown();
+            }
+        }
+    };
+
+    private SpeechCache(Context context, File directory, long maxBytes) {
+        mContext = context.getApplicationContext();
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+        HandlerThread thread = new HandlerThread("SpeechCache", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        mHandler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * Return the process wide {@link SpeechCache}.
+     */
+    public static synchronized SpeechCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new SpeechCache(context, new File(context.getCacheDir(), DIRECTORY),
+                    DEFAULT_MAX_BYTES);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Return the process wide {@link SpeechCache} if it has been created, or null.
+     */
+    static synchronized SpeechCache peekInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Return the audio id of the synthesized pronunciation of the given French word, or 0 if
+     * there is no word. The file need not have been synthesized yet.
+     */
+    public synchronized int getAudioId(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        Integer id = mIds.get(text);
+        if (id == null) {
+            id = MediaFiles.getId(new File(mDirectory, getFileName(text)));
+            mIds.put(text, id);
+            mTexts.put(id, text);
+        }
+        return id;
+    }
+
+    /**
+     * Return the audio id the pronunciation of the given {@link Word} is played with: its
+     * recorded clip, else its synthesized speech, or 0 if it has neither.
+     */
+    public int getAudioId(Word word) {
+        return word.hasAudio() ? word.getAudioResourceId()
+                : getAudioId(word.getFrenchTranslation());
+    }
+
+    /**
+     * Return whether the given audio id is that of a synthesized pronunciation.
+     */
+    public synchronized boolean isSpeech(int audioId) {
+        return mTexts.get(audioId) != null;
+    }
+
+    /**
+     * Return whether the synthesized pronunciation with the given id is cached, counting a hit
+     * or a miss and marking it as the most recently used one. Reads the index of the cache on
+     * first use, so it should not be called on the UI thread.
+     */
+    public synchronized boolean lookUp(int audioId) {
+        String text = mTexts.get(audioId);
+        if (text == null) {
+            return false;
+        }
+        //Reading it moves it to the end of the access ordered index.
+        if (getSizes().get(getFileName(text)) != null) {
+            mHitCount++;
+            return true;
+        }
+        mMissCount++;
+        return false;
+    }
+
+    /**
+     * Synthesize the pronunciation with the given id ahead of any batch, unless it is cached
+     * already. The callback is invoked on the synthesis thread.
+     */
+    public void request(final int audioId, final Callback callback) {
+        mHandler.postAtFrontOfQueue(new Runnable() {
+            @Override
+            public void run() {
+                callback.onSynthesized(synthesize(audioId, true));
+            }
+        });
+    }
+
+    /**
+     * Synthesize in the background the pronunciation of every given word which has no recorded
+     * clip and is not cached yet, one word at a time so that words being played go first.
+     *
+     * @return the batch, to be cancelled once the words are no longer shown.
+     */
+    public Batch presynthesize(final List<Word> words) {
+        final Batch batch = new Batch();
+        mHandler.post(new Runnable() {
+            private int mPosition;
+
+            @Override
+            public void run() {
+                //Skip the words with a recording to the next one to synthesize.
+                while (!batch.mCancelled && mPosition < words.size()) {
+                    Word word = words.get(mPosition++);
+                    if (!word.hasAudio()) {
+                        synthesize(getAudioId(word), false);
+                        mHandler.post(this);
+                        return;
+                    }
+                }
+            }
+        });
+        return batch;
+    }
+
+    /**
+     * Return the number of pronunciations looked up which were cached.
+     */
+    public synchronized long getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * Return the number of pronunciations looked up which had to be synthesized first.
+     */
+    public synchronized long getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Return the number of words synthesized, by lookups and batches.
+     */
+    public synchronized long getSynthesizedCount() {
+        return mSynthesizedCount;
+    }
+
+    /**
+     * Return the time spent synthesizing words, in milliseconds.
+     */
+    public synchronized long getSynthesisMillis() {
+        return mSynthesisMillis;
+    }
+
+    /**
+     * Return the total size of the synthesized words, or 0 if the cache has not been read yet.
+     */
+    public synchronized long getSizeBytes() {
+        return mBytes;
+    }
+
+    /**
+     * Forget the counters. The synthesized words are kept.
+     */
+    public synchronized void resetCounters() {
+        mHitCount = 0;
+        mMissCount = 0;
+        mSynthesizedCount = 0;
+        mSynthesisMillis = 0;
+    }
+
+    /**
+     * Synthesize the pronunciation with the given id into the cache unless it is there already,
+     * evicting the least recently used words beyond the size bound. Runs on the synthesis thread.
+     *
+     * @param requested is whether the player is waiting for it, which retries a recent failure.
+     * @return whether the pronunciation is cached.
+     */
+    private boolean synthesize(int audioId, boolean requested) {
+        String text;
+        String name;
+        synchronized (this) {
+            text = mTexts.get(audioId);
+            if (text == null || (!requested && hasFailedRecently(mFailedMillis.get(audioId)))) {
+                return false;
+            }
+            name = getFileName(text);
+            if (getSizes().containsKey(name)) {
+                return true;
+            }
+            if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+                return false;
+            }
+        }
+        if (!startEngine(requested)) {
+            return false;
+        }
+
+        //Synthesize without holding the lock so that cached words can be looked up meanwhile.
+        long startNanos = System.nanoTime();
+        File temp = new File(mDirectory, name + ".tmp");
+        File file = new File(mDirectory, name);
+        boolean synthesized = speak(text, temp);
+        mHandler.removeCallbacks(mShutdownRunnable);
+        mHandler.postDelayed(mShutdownRunnable, IDLE_SHUTDOWN_MILLIS);
+        synchronized (this) {
+            if (!synthesized || !temp.renameTo(file)) {
+                temp.delete();
+                mFailedMillis.put(audioId, SystemClock.uptimeMillis());
+                return false;
+            }
+            mFailedMillis.delete(audioId);
+            mSynthesizedCount++;
+            mSynthesisMillis += (System.nanoTime() - startNanos) / 1000000;
+            Long previous = mSizes.put(name, file.length());
+            mBytes += file.length() - (previous != null ? previous : 0);
+            trimToSize(name);
+            return true;
+        }
+    }
+
+    /**
+     * Return whether a failure at the given uptime, 0 for none, is too recent to try again.
+     */
+    private static boolean hasFailedRecently(long failedMillis) {
+        return failedMillis != 0 && SystemClock.uptimeMillis() - failedMillis < RETRY_DELAY_MILLIS;
+    }
+
+    /**
+     * Start the engine in French unless it is running, waiting for it to be ready.
+     *
+     * @param retry is whether to try again if the engine recently failed to start.
+     * @return whether the engine can be used.
+     */
+    private boolean startEngine(boolean retry) {
+        if (mEngine != null) {
+            return true;
+        }
+        if (mUnavailable || (!retry && hasFailedRecently(mEngineFailedMillis))) {
+            return false;
+        }
+        final CountDownLatch initialized = new CountDownLatch(1);
+        mInitStatus = TextToSpeech.ERROR;
+        //The engine is bound asynchronously and reports back on the UI thread.
+        mEngine = new TextToSpeech(mContext, new TextToSpeech.OnInitListener() {
+            @Override
+            public void onInit(int status) {
+                mInitStatus = status;
+                initialized.countDown();
+            }
+        });
+        try {
+            initialized.await(INIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (mInitStatus != TextToSpeech.SUCCESS) {
+            //No engine, or one which did not start in time.
+            mEngine.shutdown();
+            mEngine = null;
+            mEngineFailedMillis = SystemClock.uptimeMillis();
+            return false;
+        }
+        int language = mEngine.setLanguage(LOCALE);
+        if (language == TextToSpeech.LANG_MISSING_DATA
+                || language == TextToSpeech.LANG_NOT_SUPPORTED) {
+            //No French voice installed.
+            mEngine.shutdown();
+            mEngine = null;
+            mUnavailable = true;
+            return false;
+        }
+        mEngineFailedMillis = 0;
+        mEngine.setOnUtteranceProgressListener(mUtteranceListener);
+        return true;
+    }
+
+    /**
+     * Synthesize the text into the file, waiting for the engine to complete.
+     */
+    private boolean speak(String text, File file) {
+        CountDownLatch latch = new CountDownLatch(1);
+        mUtteranceFailed = false;
+        mLatch = latch;
+        try {
+            if (synthesizeToFile(text, file) != TextToSpeech.SUCCESS) {
+                return false;
+            }
+            if (!latch.await(SYNTHESIS_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                mEngine.stop();
+                return false;
+            }
+            return !mUtteranceFailed && file.length() > WAV_HEADER_BYTES;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            mLatch = null;
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @SuppressWarnings("deprecation")
+    private int synthesizeToFile(String text, File file) {
+        String utteranceId = file.getName();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return mEngine.synthesizeToFile(text, null, file, utteranceId);
+        }
+        HashMap<String, String> params = new HashMap<>();
+        params.put(TextToSpeech.Engine.KEY_PARAM_UTTERANCE_ID, utteranceId);
+        return mEngine.synthesizeToFile(text, params, file.getPath());
+    }
+
+    /**
+     * Return the name of the file of the given French word, a digest of the word and language.
+     */
+    private static String getFileName(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest((LOCALE + "\n" + text).getBytes(UTF_8));
+            StringBuilder name = new StringBuilder("s_");
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16))
+                        .append(Character.forDigit(b & 0xf, 16));
+            }
+            return name.append(SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            //Every Java platform has SHA-1.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Return the sizes of the synthesized words, listing the directory on first use. The files
+     * are ordered by creation: their modification time is not touched when they are used, since
+     * the {@link PcmCache} names its copies after it.
+     */
+    private LinkedHashMap<String, Long> getSizes() {
+        if (mSizes != null) {
+            return mSizes;
+        }
+        mSizes = new LinkedHashMap<>(16, 0.75f, true);
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return mSizes;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long difference = a.lastModified() - b.lastModified();
+                return difference < 0 ? -1 : difference > 0 ? 1 : 0;
+            }
+        });
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(SUFFIX)) {
+                mSizes.put(name, file.length());
+                mBytes += file.length();
+            } else {
+                //Left over by a synthesis which did not complete.
+                file.delete();
+            }
+        }
+        trimToSize(null);
+        return mSizes;
+    }
+
+    private void trimToSize(String keep) {
+        Iterator<Map.Entry<String, Long>> iterator = mSizes.entrySet().iterator();
+        while (mBytes > mMaxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            if (!eldest.getKey().equals(keep)) {
+                iterator.remove();
+                mBytes -= eldest.getValue();
+                //A word being played from the pool was already decoded.
+                new File(mDirectory, eldest.getKey()).delete();
+            }
+        }
+    }
+
+    /**
+     * Words queued by {@link #presynthesize(List)}.
+     */
+    public static final class Batch {
+        private volatile boolean mCancelled;
+
+        /**
+         * Stop synthesizing the words which have not been synthesized yet.
+         */
+        public void cancel() {
+            mCancelled = true;
+        }
+    }
+}
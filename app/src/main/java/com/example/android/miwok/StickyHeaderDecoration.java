@@ -0,0 +1,78 @@
+package com.example.android.miwok;
+
+import android.graphics.Canvas;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.widget.TextView;
+
+/**
+ * Keeps the header of the section at the top of a list of {@link SectionedWordAdapter} pinned
+ * above the rows, and lets the next header push it out as it scrolls up. The pinned header is a
+ * single view, only rebound when the section at the top changes.
+ */
+public class StickyHeaderDecoration extends RecyclerView.ItemDecoration {
+
+    private final SectionedWordAdapter mAdapter;
+
+    //Drawn over the list, null until the list is first drawn.
+    private TextView mHeaderView;
+
+    //Section shown by mHeaderView, -1 if none.
+    private int mHeaderSection = -1;
+
+    public StickyHeaderDecoration(SectionedWordAdapter adapter) {
+        mAdapter = adapter;
+    }
+
+    @Override
+    public void onDrawOver(Canvas canvas, RecyclerView parent, RecyclerView.State state) {
+        View topChild = parent.getChildAt(0);
+        if (topChild == null) {
+            return;
+        }
+        int topPosition = parent.getChildAdapterPosition(topChild);
+        if (topPosition == RecyclerView.NO_POSITION) {
+            return;
+        }
+        WordSections sections = mAdapter.getSections();
+        int section = sections.getSection(topPosition);
+        View header = getHeaderView(parent, section);
+
+        //Push the pinned header up by the next header once they touch.
+        int offset = 0;
+        int nextHeaderPosition = section + 1 < sections.getSectionCount()
+                ? sections.getSectionPosition(section + 1) : RecyclerView.NO_POSITION;
+        for (int i = 1; i < parent.getChildCount(); i++) {
+            View child = parent.getChildAt(i);
+            if (parent.getChildAdapterPosition(child) == nextHeaderPosition) {
+                offset = Math.min(0, child.getTop() - header.getHeight());
+                break;
+            }
+            if (child.getTop() > header.getHeight()) {
+                break;
+            }
+        }
+
+        int saveCount = canvas.save();
+        canvas.translate(parent.getPaddingLeft(), offset);
+        header.draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    private View getHeaderView(RecyclerView parent, int section) {
+        int width = parent.getWidth() - parent.getPaddingLeft() - parent.getPaddingRight();
+        if (mHeaderView == null) {
+            mHeaderView = mAdapter.createHeaderView(parent);
+        }
+        if (section != mHeaderSection || mHeaderView.getWidth() != width) {
+            mHeaderSection = section;
+            mAdapter.bindHeader(mHeaderView, section);
+            mHeaderView.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(mHeaderView.getLayoutParams().height,
+                            View.MeasureSpec.EXACTLY));
+            mHeaderView.layout(0, 0, mHeaderView.getMeasuredWidth(),
+                    mHeaderView.getMeasuredHeight());
+        }
+        return mHeaderView;
+    }
+}
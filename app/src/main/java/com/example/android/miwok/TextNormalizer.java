@@ -0,0 +1,54 @@
+package com.example.android.miwok;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Normalizes text for accent insensitive matching: "À bientôt!" becomes "a bientot".
+ * Letters are lower cased and stripped of their accents, ligatures are expanded and every run of
+ * punctuation or whitespace becomes a single space.
+ */
+public final class TextNormalizer {
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * Return the normalized form of the given text.
+     */
+    public static String normalize(CharSequence text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .toLowerCase(Locale.ROOT);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                //Accents were split off their letters by the decomposition.
+                continue;
+            }
+            if (!Character.isLetterOrDigit(c)) {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            switch (c) {
+                case 'œ':
+                    normalized.append("oe");
+                    break;
+                case 'æ':
+                    normalized.append("ae");
+                    break;
+                case 'ß':
+                    normalized.append("ss");
+                    break;
+                default:
+                    normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.android.miwok;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link VocabularyPack} is a pack of extra categories installed by the {@link PackInstaller}.
+ * An installed pack is a directory holding its manifest, its lexicon and its image and audio
+ * files. The lexicon is only mapped once a category of the pack is opened.
+ */
+public final class VocabularyPack {
+
+    private final PackManifest mManifest;
+    private final File mDirectory;
+    private final List<Category> mCategories;
+
+    //Words of all categories of the pack, loaded when first needed.
+    private Lexicon mLexicon;
+    private WordTable mWordTable;
+
+    private VocabularyPack(PackManifest manifest, File directory) {
+        mManifest = manifest;
+        mDirectory = directory;
+        List<Category> categories = new ArrayList<>();
+        for (PackManifest.CategoryEntry entry : manifest.getCategories()) {
+            categories.add(new Category(getCategoryKey(entry.getKey()), entry.getTitle(),
+                    entry.getColor()));
+        }
+        mCategories = Collections.unmodifiableList(categories);
+    }
+
+    /**
+     * Read the installed pack in the given directory.
+     *
+     * @throws IOException if the directory does not hold a valid pack.
+     */
+    public static VocabularyPack load(File directory) throws IOException {
+        InputStream in = new FileInputStream(new File(directory, PackInstaller.MANIFEST_FILE));
+        try {
+            ByteArrayOutputStream manifest = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                manifest.write(buffer, 0, count);
+            }
+            return new VocabularyPack(PackManifest.parse(manifest.toString("UTF-8")), directory);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Return the unique id of the pack.
+     */
+    public String getId() {
+        return mManifest.getId();
+    }
+
+    /**
+     * Return the categories of the pack. Their keys are prefixed with the pack id, so they do
+     * not clash with the built-in categories or those of other packs.
+     */
+    public List<Category> getCategories() {
+        return mCategories;
+    }
+
+    /**
+     * Return the words of the given category of the pack.
+     *
+     * @throws IOException if the lexicon of the pack cannot be read.
+     */
+    public synchronized WordTable.WordList getWords(Category category) throws IOException {
+        if (mWordTable == null) {
+            mLexicon = Lexicon.open(new File(mDirectory, PackManifest.LEXICON_FILE));
+            mWordTable = new WordTable(mLexicon, mDirectory);
+        }
+        for (PackManifest.CategoryEntry entry : mManifest.getCategories()) {
+            if (getCategoryKey(entry.getKey()).equals(category.getKey())) {
+                int index = mLexicon.findCategory(entry.getKey());
+                if (index < 0) {
+                    throw new IOException("Category " + entry.getKey() + " has no words");
+                }
+                return mWordTable.subList(mLexicon.getFirstWord(index),
+                        mLexicon.getCategoryWordCount(index));
+            }
+        }
+        throw new IllegalArgumentException("Category " + category.getKey() + " is not in "
+                + getId());
+    }
+
+    private String getCategoryKey(String lexiconKey) {
+        return getId() + "/" + lexiconKey;
+    }
+}
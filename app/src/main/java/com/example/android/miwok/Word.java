@@ -7,6 +7,9 @@ package com.example.android.miwok;
  */
 public class Word {
 
+    //Stable id of the word, or NO_ID if it was not created from the lexicon.
+    private long mId = NO_ID;
+
     //English word.
     private String mDefaultTranslation;
 
@@ -17,10 +20,27 @@ public class Word {
     private int mImageResourceId = NO_IMAGE_PROVIDED;
 
     //Word pronunciation resource id.
-    private int mAudioResourceId;
+    private int mAudioResourceId = NO_AUDIO_PROVIDED;
 
     private static final int NO_IMAGE_PROVIDED = -1;
 
+    private static final int NO_AUDIO_PROVIDED = 0;
+
+    //Id of words which were created without a stable id.
+    public static final long NO_ID = 0;
+
+    /**
+     * Create a new Word object without a recorded pronunciation, which is synthesized by the
+     * {@link SpeechCache} instead.
+     *
+     * @param DefaultTranslation is the English word.
+     * @param FrenchTranslation is the French word.
+     */
+    public Word(String DefaultTranslation, String FrenchTranslation) {
+        mDefaultTranslation = DefaultTranslation;
+        mFrenchTranslation = FrenchTranslation;
+    }
+
     /**
      * Create a new Word object
      *
@@ -49,6 +69,30 @@ public class Word {
         mAudioResourceId = AudioResourceId;
     }
 
+    /**
+     * Create a new Word object with a stable id, as read from the lexicon.
+     *
+     * @param Id is the stable id of the word.
+     * @param DefaultTranslation is the English word.
+     * @param FrenchTranslation is the French word.
+     * @param ImageResourceId is the Image Resource Id, or 0 if the word has no image.
+     * @param AudioResourceId is the word's pronunciation, or 0 if it has no recording.
+     */
+    public Word(long Id, String DefaultTranslation, String FrenchTranslation, int ImageResourceId, int AudioResourceId) {
+        mId = Id;
+        mDefaultTranslation = DefaultTranslation;
+        mFrenchTranslation = FrenchTranslation;
+        mImageResourceId = ImageResourceId != 0 ? ImageResourceId : NO_IMAGE_PROVIDED;
+        mAudioResourceId = AudioResourceId;
+    }
+
+    /**
+     * Return the stable id of the word, which does not change between versions of the lexicon.
+     */
+    public long getId() {
+        return mId;
+    }
+
     /**
      * Get English translation.
      */
@@ -78,10 +122,17 @@ public class Word {
     }
 
     /**
-     * Return the Audio resource id of the word.
+     * Return the Audio resource id of the word, or 0 if it has no recording.
      */
     public int getAudioResourceId() {
         return mAudioResourceId;
     }
+
+    /**
+     * @return whether or not there is a recorded pronunciation of the word.
+     */
+    public boolean hasAudio() {
+        return getAudioResourceId() != NO_AUDIO_PROVIDED;
+    }
 }
 
@@ -1,88 +1,228 @@
 package com.example.android.miwok;
 
-import android.app.Activity;
 import android.content.Context;
-import android.support.v4.content.ContextCompat;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created by vanshika on 6/5/17.
- * Creates a custom array adapter.
+ * Displays a list of {@link Word}s in a {@link RecyclerView}.
+ * Each row caches its views in a {@link ViewHolder}, so binding a row does no view lookups,
+ * and images are decoded in the background by the {@link WordImageLoader}.
+ * Rows of a {@link WordTable.WordList} are bound straight from the table columns.
  */
-public class WordAdapter extends ArrayAdapter<Word> {
+public class WordAdapter extends RecyclerView.Adapter<WordAdapter.ViewHolder> {
 
-    private int mColorResourceId;
+    /**
+     * Interface definition for a callback invoked when a {@link Word} in the list is tapped.
+     */
+    public interface OnWordClickListener {
+        void onWordClick(Word word, int position);
+    }
+
+    private final LayoutInflater mInflater;
+
+    private final WordImageLoader mImageLoader;
+
+    //Theme color of the category, resolved once for all rows.
+    private final int mColor;
+
+    private List<Word> mWords;
+
+    //mWords if it is a list of a WordTable, otherwise null.
+    private WordTable.WordList mTableWords;
+
+    private OnWordClickListener mOnWordClickListener;
+
+    //Invoked when the say it icon of a word is tapped, null to hide the icon.
+    private OnWordClickListener mOnSayItClickListener;
 
     /**
      * Create a new {@link WordAdapter} object.
      * @param context is the current context that the adapter is being created in
      * @param words is the list of {@link Word}s to be displayed.
+     * @param color is the theme color of the category, as a color int.
      */
-    public WordAdapter(Context context, ArrayList<Word> words, int colorResourceId) {
-        super(context, 0, words);
-        mColorResourceId = colorResourceId;
+    public WordAdapter(Context context, List<Word> words, int color) {
+        mInflater = LayoutInflater.from(context);
+        mImageLoader = WordImageLoader.getInstance(context);
+        mColor = color;
+        setList(words);
+        setHasStableIds(true);
     }
 
-    @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        // Check if the existing view is being reused, otherwise inflate the view
-        View listItemView = convertView;
-        if(listItemView == null) {
-            listItemView = LayoutInflater.from(getContext()).inflate(
-                    R.layout.list_item, parent, false);
-        }
+    /**
+     * Register a callback to be invoked when a {@link Word} in the list is tapped.
+     */
+    public void setOnWordClickListener(OnWordClickListener listener) {
+        mOnWordClickListener = listener;
+    }
 
-        // Get the {@link Word} object located at this position in the list
-        Word currentWord = getItem(position);
+    /**
+     * Register a callback to be invoked when the say it icon of a {@link Word} is tapped, to
+     * record the learner saying it. The icon is only shown while there is a callback.
+     */
+    public void setOnSayItClickListener(OnWordClickListener listener) {
+        mOnSayItClickListener = listener;
+        notifyDataSetChanged();
+    }
 
-        // Find the TextView in the list_item.xml layout with the ID version_name
-        TextView frenchTextView = (TextView) listItemView.findViewById(R.id.french_text_view);
-        // Get the version name from the current AndroidFlavor object and
-        // set this text on the name TextView
-        frenchTextView.setText(currentWord.getFrenchTranslation());
+    /**
+     * Replace the displayed {@link Word}s, only updating the rows which have changed.
+     */
+    public void setWords(final List<Word> words) {
+        final List<Word> oldWords = mWords;
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldWords.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return words.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return oldWords.get(oldPosition).getId() == words.get(newPosition).getId();
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                Word oldWord = oldWords.get(oldPosition);
+                Word newWord = words.get(newPosition);
+                return oldWord.getDefaultTranslation().equals(newWord.getDefaultTranslation())
+                        && oldWord.getFrenchTranslation().equals(newWord.getFrenchTranslation())
+                        && oldWord.getImageResourceId() == newWord.getImageResourceId()
+                        && oldWord.getAudioResourceId() == newWord.getAudioResourceId();
+            }
+        });
+        setList(words);
+        result.dispatchUpdatesTo(this);
+    }
 
-        // Find the TextView in the list_item.xml layout with the ID version_number
-        TextView defaultTextView = (TextView) listItemView.findViewById(R.id.default_text_view);
-        // Get the version number from the current AndroidFlavor object and
-        // set this text on the number TextView
-        defaultTextView.setText(currentWord.getDefaultTranslation());
+    private void setList(List<Word> words) {
+        mWords = words;
+        mTableWords = words instanceof WordTable.WordList ? (WordTable.WordList) words : null;
+    }
 
-        // Find the ImageView in the list_item.xml layout with the ID image
-        ImageView imageView = (ImageView) listItemView.findViewById(R.id.image);
+    /**
+     * Return the {@link Word} at the given position.
+     */
+    public Word getItem(int position) {
+        return mWords.get(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return mWords.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        if (mTableWords != null) {
+            return mTableWords.getTable().getId(mTableWords.getTableIndex(position));
+        }
+        return mWords.get(position).getId();
+    }
 
-        if (currentWord.hasImage()) {
-            //Sets the image to image source defined in the Word.
-            imageView.setImageResource(currentWord.getImageResourceId());
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View listItemView = mInflater.inflate(R.layout.list_item, parent, false);
+        ViewHolder holder = new ViewHolder(listItemView);
+
+        //The theme color is the same for every row, so it is set once per view.
+        holder.textContainer.setBackgroundColor(mColor);
+        holder.playIcon.setBackgroundColor(mColor);
+        holder.sayItIcon.setBackgroundColor(mColor);
+        return holder;
+    }
 
-            imageView.setVisibility(View.VISIBLE);
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        long startNanos = System.nanoTime();
+        if (mTableWords != null) {
+            //Read the row from the table columns, without creating a Word.
+            WordTable table = mTableWords.getTable();
+            int word = mTableWords.getTableIndex(position);
+            bind(holder, table.getFrenchTranslation(word), table.getDefaultTranslation(word),
+                    table.getImageResourceId(word));
         } else {
-            imageView.setVisibility(View.GONE);
+            // Get the {@link Word} object located at this position in the list
+            Word currentWord = mWords.get(position);
+            bind(holder, currentWord.getFrenchTranslation(), currentWord.getDefaultTranslation(),
+                    currentWord.hasImage() ? currentWord.getImageResourceId() : 0);
         }
+        Metrics.ROW_BIND.recordSince(startNanos);
+    }
 
-        // Set the theme color for the list item
-        View textContainer = listItemView.findViewById(R.id.text_container);
-        // Find the color that the resource ID maps to
-        int containerColor = ContextCompat.getColor(getContext(), mColorResourceId);
-        // Set the background color of the text container View
-        textContainer.setBackgroundColor(containerColor);
+    //Show a word in the row, imageResourceId is 0 for words without an image.
+    private void bind(ViewHolder holder, String frenchTranslation, String defaultTranslation,
+                      int imageResourceId) {
+        holder.frenchTextView.setText(frenchTranslation);
+        holder.defaultTextView.setText(defaultTranslation);
+        holder.sayItIcon.setVisibility(mOnSayItClickListener != null ? View.VISIBLE : View.GONE);
 
+        if (imageResourceId != 0) {
+            //Sets the image to image source defined in the Word, once it has been decoded.
+            mImageLoader.load(imageResourceId, holder.imageView);
 
-        // Set the theme color for the list item
-        View playIcon = listItemView.findViewById(R.id.play_icon);
-        // Find the color that the resource ID maps to
-        int iconColor = ContextCompat.getColor(getContext(), mColorResourceId);
-        // Set the background color of the text container View
-        playIcon.setBackgroundColor(iconColor);
+            holder.imageView.setVisibility(View.VISIBLE);
+        } else {
+            mImageLoader.cancel(holder.imageView);
+            holder.imageView.setVisibility(View.GONE);
+        }
+    }
+
+    @Override
+    public void onViewRecycled(ViewHolder holder) {
+        //The row will show another word, its image is not needed anymore.
+        mImageLoader.cancel(holder.imageView);
+    }
 
-        // Return the whole list item layout (containing 2 TextViews and an ImageView)
-        // so that it can be shown in the ListView
-        return listItemView;
+    /**
+     * Holds the views of a row of the list, found once when the row is created.
+     */
+    class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+
+        final TextView frenchTextView;
+        final TextView defaultTextView;
+        final ImageView imageView;
+        final View textContainer;
+        final View playIcon;
+        final View sayItIcon;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            frenchTextView = (TextView) itemView.findViewById(R.id.french_text_view);
+            defaultTextView = (TextView) itemView.findViewById(R.id.default_text_view);
+            imageView = (ImageView) itemView.findViewById(R.id.image);
+            textContainer = itemView.findViewById(R.id.text_container);
+            playIcon = itemView.findViewById(R.id.play_icon);
+            sayItIcon = itemView.findViewById(R.id.say_it_icon);
+            itemView.setOnClickListener(this);
+            sayItIcon.setOnClickListener(this);
+        }
+
+        @Override
+        public void onClick(View view) {
+            int position = getAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+            OnWordClickListener listener =
+                    view == sayItIcon ? mOnSayItClickListener : mOnWordClickListener;
+            if (listener != null) {
+                listener.onWordClick(mWords.get(position), position);
+            }
+        }
     }
 }
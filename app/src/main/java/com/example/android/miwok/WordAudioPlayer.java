@@ -0,0 +1,1031 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.AudioAttributes;
+import android.media.AudioManager;
+import android.media.MediaMetadataRetriever;
+import android.media.SoundPool;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.SparseBooleanArray;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link WordAudioPlayer} plays the pronunciation of {@link Word}s with low latency.
+ * Audio files are decoded ahead of time into a {@link SoundPool}, see {@link #prefetch(int)},
+ * so tapping on a word only has to start an already decoded sound. The decoded sounds are kept
+ * under a memory budget, evicting the least recently used ones first. The words tapped most
+ * often are also decoded into the {@link PcmCache} on disk, from which they play without any
+ * decoding, even after the process restarts.
+ * The player can also play a whole list of words back to back, see {@link #listen}.
+ * Words without a recorded clip are synthesized by the {@link SpeechCache} first, and then
+ * played like the others.
+ *
+ * <p>SoundPool, AudioTrack and AudioManager calls can block for tens of milliseconds, so the
+ * player state is owned by a background thread shared by all players. The public methods only
+ * queue a command for it and return at once; listening progress is reported back on the UI
+ * thread through the {@link ListenListener}.
+ */
+public class WordAudioPlayer {
+
+    /**
+     * Interface definition for callbacks invoked while listening to a list of words.
+     */
+    public interface ListenListener {
+        //Called when the word at the given position of the list starts playing.
+        void onListenWord(int position);
+
+        //Called when the whole list has been played or listening was stopped.
+        void onListenFinished();
+    }
+
+    //Only one word is pronounced at a time.
+    private static final int MAX_STREAMS = 1;
+
+    //Used when the duration of an audio file could not be read.
+    private static final int DEFAULT_DURATION_MILLIS = 3000;
+
+    //Decoded size of one millisecond of audio, assuming 44.1kHz 16 bit stereo.
+    private static final int DECODED_BYTES_PER_MILLI = 44100 * 2 * 2 / 1000;
+
+    //Default memory budget for decoded sounds.
+    public static final int DEFAULT_BUDGET_BYTES = 4 * 1024 * 1024;
+
+    //Opens and decodes the audio files off the UI thread.
+    private static final ExecutorService sLoadExecutor = Executors.newSingleThreadExecutor();
+
+    //Decodes the most played audio files into the PCM cache, without holding up loading.
+    private static final ExecutorService sCacheExecutor = Executors.newSingleThreadExecutor();
+
+    //Commands queued for the player thread.
+    private static final int COMMAND_CREATE = 0;
+    private static final int COMMAND_PREFETCH = 1;
+    private static final int COMMAND_RETAIN = 2;
+    private static final int COMMAND_PLAY = 3;
+    private static final int COMMAND_LISTEN = 4;
+    private static final int COMMAND_STOP = 5;
+    private static final int COMMAND_RELEASE = 6;
+    private static final int COMMAND_FOCUS_CHANGE = 7;
+
+    //Owns the state of all players, started with the first player.
+    private static HandlerThread sPlayerThread;
+
+    //Played beyond the duration of a cached clip, which starts once its first samples are
+    //buffered.
+    private static final int PCM_LATENCY_MILLIS = 50;
+
+    private final Context mContext;
+
+    //Handles audio focus when playing a sound file.
+    private final AudioManager mAudioManager;
+
+    //Holds the decoded audio files, created on the player thread so that it reports loaded
+    //sounds there.
+    private SoundPool mSoundPool;
+
+    //Holds the decoded audio files played most often, on disk.
+    private final PcmCache mPcmCache;
+
+    //Synthesizes the pronunciation of the words without a recorded clip.
+    private final SpeechCache mSpeechCache;
+
+    //Runs the commands and the timers of the player on the player thread.
+    private final Handler mHandler = new Handler(getPlayerLooper());
+
+    //Reports to the UI thread.
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    //Commands sent by other threads, run in order on the player thread.
+    private final ConcurrentLinkedQueue<Command> mCommands = new ConcurrentLinkedQueue<>();
+
+    //Set while a run of the queued commands is posted to the player thread.
+    private final AtomicBoolean mDrainScheduled = new AtomicBoolean();
+
+    //Whether a list of words is being listened to, as seen by the UI thread.
+    private volatile boolean mListening;
+
+    //Maximum estimated size of the decoded sounds.
+    private final int mBudgetBytes;
+
+    //Clips which are loading or loaded keyed by audio resource id, least recently used first.
+    private final LinkedHashMap<Integer, Clip> mClips = new LinkedHashMap<>(16, 0.75f, true);
+
+    //Sound ids which have finished decoding.
+    private final SparseBooleanArray mLoadedSounds = new SparseBooleanArray();
+
+    //Sound ids which failed to decode before their clip learned its sound id.
+    private final SparseBooleanArray mFailedSounds = new SparseBooleanArray();
+
+    //Estimated size of all decoded sounds.
+    private int mDecodedBytes;
+
+    //Clip of the word being played, or null if nothing is playing.
+    private Clip mPlayingClip;
+
+    //Stream id of the word being played.
+    private int mStreamId;
+
+    //Track of the word being played from the PCM cache, or null.
+    private PcmTrack mPcmTrack;
+
+    //Clip of a word which was tapped before its sound finished decoding.
+    private Clip mPendingClip;
+
+    //System.nanoTime() of the last tap on a word, or 0 once its sound has started.
+    private long mTapNanos;
+
+    private boolean mHasAudioFocus;
+
+    private boolean mReleased;
+
+    //Words being listened to, or null when not listening.
+    private List<Word> mPlaylist;
+
+    //Position in the playlist of the word being played or about to be played.
+    private int mPlaylistPosition;
+
+    //Silence between two words of the playlist.
+    private int mSpacingMillis;
+
+    private ListenListener mListenListener;
+
+    //Clip of the next word of the playlist, decoded while the current one plays.
+    private Clip mNextClip;
+
+    //Uptime at which the last word of the playlist ended, or 0 before the first word.
+    private long mLastEndMillis;
+
+    //Silence measured between consecutive words of the playlists, read from the UI thread.
+    private volatile int mGapCount;
+    private volatile long mTotalGapMillis;
+    private volatile long mMaxGapMillis;
+    private volatile long mLastGapMillis;
+
+    /**
+     * Runs the queued commands on the player thread.
+     */
+    private final Runnable mDrainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            //Commands queued from now on post another run.
+            mDrainScheduled.set(false);
+            Command command;
+            while ((command = mCommands.poll()) != null) {
+                execute(command);
+            }
+        }
+    };
+
+    /**
+     * Triggered once the audio file being played has completed.
+     * SoundPool does not report completion, so it is posted after the duration of the file.
+     */
+    private final Runnable mCompletionRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mPlaylist != null) {
+                //Keep audio focus and go on with the next word after the spacing.
+                onListenWordCompleted();
+            } else {
+                //Give up audio focus now that sound file has finished playing
+                stopPlayback();
+            }
+        }
+    };
+
+    /**
+     * Plays the next word of the playlist once the spacing after the previous word has elapsed.
+     */
+    private final Runnable mNextWordRunnable = new Runnable() {
+        @Override
+        public void run() {
+            playListenWord();
+        }
+    };
+
+    /**
+     * This listener gets triggered when the audio focus changes.
+     * (i.e, we loose or gain audio focus because of another app or device.)
+     * It is called on the UI thread and hands the change over to the player thread.
+     */
+    private final AudioManager.OnAudioFocusChangeListener mOnAudioFocusListener = new AudioManager.OnAudioFocusChangeListener() {
+        @Override
+        public void onAudioFocusChange(int focusChange) {
+            Command command = new Command(COMMAND_FOCUS_CHANGE);
+            command.mFocusChange = focusChange;
+            send(command);
+        }
+    };
+
+    /**
+     * Handle a change of audio focus on the player thread.
+     */
+    private void onAudioFocusChange(int focusChange) {
+        if (focusChange == AudioManager.AUDIOFOCUS_LOSS_TRANSIENT ||
+                focusChange == AudioManager.AUDIOFOCUS_LOSS_TRANSIENT_CAN_DUCK) {
+            //AUDIOFOCUS_LOSS_TRANSIENT means the app has lost audio focus temporarily.
+            // AUDIOFOCUS_LOSS_TRANSIENT_CAN_DUCK means our app can continue playing audio but
+            // at a lower volume. Due to the short duration of our audio files, we are treating
+            //both cases the same way.
+
+            //Stop the stream but remember the word so that the user can hear its
+            //pronunciation from the beginning once focus is regained.
+            mHandler.removeCallbacks(mCompletionRunnable);
+            mHandler.removeCallbacks(mNextWordRunnable);
+            stopSound();
+        } else if (focusChange == AudioManager.AUDIOFOCUS_GAIN) {
+            //AUDIOFOCUS_GAIN means we have regained audio focus and can resume playback.
+            if (mPlaylist != null) {
+                //The pause is not counted as a gap between words.
+                mLastEndMillis = 0;
+                playListenWord();
+            } else if (mPlayingClip != null && mStreamId == 0 && mPcmTrack == null) {
+                startStream(mPlayingClip);
+            }
+        } else if (focusChange == AudioManager.AUDIOFOCUS_LOSS) {
+            //AUDIOFOCUS_LOSS means we have permanently lost audio focus.
+            //Stop playback and give up audio focus.
+            stopPlayback();
+        }
+    }
+
+    /**
+     * Triggered when SoundPool has finished decoding an audio file.
+     */
+    private final SoundPool.OnLoadCompleteListener mOnLoadCompleteListener = new SoundPool.OnLoadCompleteListener() {
+        @Override
+        public void onLoadComplete(SoundPool soundPool, int soundId, int status) {
+            if (status != 0) {
+                //The file cannot be decoded, so it is not waited for.
+                Clip clip = findClip(soundId);
+                if (clip != null) {
+                    onSoundFailed(clip);
+                } else {
+                    mFailedSounds.put(soundId, true);
+                }
+                return;
+            }
+            mLoadedSounds.put(soundId, true);
+            playPendingClip();
+        }
+    };
+
+    /**
+     * Create a new {@link WordAudioPlayer} object with the default memory budget.
+     *
+     * @param context is the context that the player is being created in.
+     */
+    public WordAudioPlayer(Context context) {
+        this(context, DEFAULT_BUDGET_BYTES);
+    }
+
+    /**
+     * Create a new {@link WordAudioPlayer} object.
+     *
+     * @param context is the context that the player is being created in.
+     * @param budgetBytes is the maximum estimated size of the decoded sounds.
+     */
+    public WordAudioPlayer(Context context, int budgetBytes) {
+        mContext = context.getApplicationContext();
+        mAudioManager = (AudioManager) mContext.getSystemService(Context.AUDIO_SERVICE);
+        mBudgetBytes = budgetBytes;
+        mPcmCache = PcmCache.getInstance(mContext);
+        mSpeechCache = SpeechCache.getInstance(mContext);
+        send(new Command(COMMAND_CREATE));
+    }
+
+    private static synchronized Looper getPlayerLooper() {
+        //Started again if its looper was quit.
+        if (sPlayerThread == null || !sPlayerThread.isAlive()) {
+            sPlayerThread = new HandlerThread("WordAudioPlayer", Process.THREAD_PRIORITY_AUDIO);
+            sPlayerThread.start();
+        }
+        return sPlayerThread.getLooper();
+    }
+
+    private void createSoundPool() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            AudioAttributes attributes = new AudioAttributes.Builder()
+                    .setUsage(AudioAttributes.USAGE_MEDIA)
+                    .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                    .build();
+            mSoundPool = new SoundPool.Builder()
+                    .setMaxStreams(MAX_STREAMS)
+                    .setAudioAttributes(attributes)
+                    .build();
+        } else {
+            mSoundPool = new SoundPool(MAX_STREAMS, AudioManager.STREAM_MUSIC, 0);
+        }
+        mSoundPool.setOnLoadCompleteListener(mOnLoadCompleteListener);
+    }
+
+    /**
+     * Decode the audio file with the given resource id in the background, unless it already is.
+     * Marks the clip as the most recently used one.
+     */
+    public void prefetch(int audioResourceId) {
+        Command command = new Command(COMMAND_PREFETCH);
+        command.mAudioResourceId = audioResourceId;
+        send(command);
+    }
+
+    /**
+     * Decode the pronunciation of the given {@link Word} in the background, synthesizing it
+     * first if it has no recorded clip, see {@link #prefetch(int)}.
+     */
+    public void prefetch(Word word) {
+        int audioId = getAudioId(word);
+        if (audioId != 0) {
+            prefetch(audioId);
+        }
+    }
+
+    /**
+     * Return the audio id the pronunciation of the given {@link Word} is played with: its
+     * recorded clip, else its synthesized speech, or 0 if it has neither.
+     */
+    public int getAudioId(Word word) {
+        return mSpeechCache.getAudioId(word);
+    }
+
+    /**
+     * Evict all decoded audio files whose resource id is not in the given set.
+     */
+    public void retainOnly(SparseBooleanArray audioResourceIds) {
+        Command command = new Command(COMMAND_RETAIN);
+        //The caller may reuse the set.
+        command.mAudioResourceIds = audioResourceIds.clone();
+        send(command);
+    }
+
+    private void retainClips(SparseBooleanArray audioResourceIds) {
+        Iterator<Map.Entry<Integer, Clip>> iterator = mClips.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Clip clip = iterator.next().getValue();
+            if (!audioResourceIds.get(clip.mAudioResourceId) && !isInUse(clip)) {
+                iterator.remove();
+                unload(clip);
+            }
+        }
+    }
+
+    /**
+     * Play the pronunciation of the given {@link Word}, stopping any word being played.
+     */
+    public void play(Word word) {
+        Command command = new Command(COMMAND_PLAY);
+        command.mTapNanos = System.nanoTime();
+        command.mAudioResourceId = getAudioId(word);
+        if (command.mAudioResourceId == 0) {
+            //Nothing to pronounce.
+            return;
+        }
+        send(command);
+    }
+
+    private void playClip(int audioResourceId, long tapNanos) {
+        if (mPlaylist != null) {
+            stopPlayback();
+        }
+        stopStream();
+        mTapNanos = tapNanos;
+
+        Clip clip = getClip(audioResourceId);
+        if (!isLoaded(clip)) {
+            //Play it as soon as it has been decoded.
+            mPendingClip = clip;
+            return;
+        }
+        mPendingClip = null;
+        startPlayback(clip);
+    }
+
+    /**
+     * Play the pronunciation of all the given {@link Word}s back to back, waiting for
+     * {@code spacingMillis} between two words. Audio focus is held for the whole list and the
+     * next word is decoded while the current one plays. The listener is called on the UI thread.
+     */
+    public void listen(List<Word> words, int spacingMillis, ListenListener listener) {
+        mListening = true;
+        Command command = new Command(COMMAND_LISTEN);
+        command.mWords = words;
+        command.mSpacingMillis = spacingMillis;
+        command.mListener = listener;
+        send(command);
+    }
+
+    private void startListening(List<Word> words, int spacingMillis, ListenListener listener) {
+        stopPlayback();
+        if (words.isEmpty()) {
+            mListening = false;
+            postListenFinished(listener);
+            return;
+        }
+
+        //Request audio focus once for the whole list, which may play for a long time.
+        int result = mAudioManager.requestAudioFocus(mOnAudioFocusListener,
+                AudioManager.STREAM_MUSIC, AudioManager.AUDIOFOCUS_GAIN);
+        if (result != AudioManager.AUDIOFOCUS_REQUEST_GRANTED) {
+            mListening = false;
+            postListenFinished(listener);
+            return;
+        }
+        mHasAudioFocus = true;
+        mListening = true;
+
+        mPlaylist = words;
+        mPlaylistPosition = 0;
+        mSpacingMillis = spacingMillis;
+        mListenListener = listener;
+        mLastEndMillis = 0;
+        playListenWord();
+    }
+
+    /**
+     * Return whether a list of words is being listened to.
+     */
+    public boolean isListening() {
+        return mListening;
+    }
+
+    /**
+     * Return the silence in milliseconds measured between the last two words listened to.
+     * It is the configured spacing plus any delay in starting the second word.
+     */
+    public long getLastGapMillis() {
+        return mLastGapMillis;
+    }
+
+    /**
+     * Return the average silence in milliseconds measured between two words listened to.
+     */
+    public long getAverageGapMillis() {
+        return mGapCount == 0 ? 0 : mTotalGapMillis / mGapCount;
+    }
+
+    /**
+     * Return the longest silence in milliseconds measured between two words listened to.
+     */
+    public long getMaxGapMillis() {
+        return mMaxGapMillis;
+    }
+
+    /**
+     * Stop the word being played, stop listening and abandon audio focus.
+     */
+    public void stop() {
+        send(new Command(COMMAND_STOP));
+    }
+
+    /**
+     * Release all decoded audio files. The player cannot be used afterwards.
+     */
+    public void release() {
+        send(new Command(COMMAND_RELEASE));
+    }
+
+    /**
+     * Queue a command for the player thread, waking it up unless it is already going to run
+     * the queued commands.
+     */
+    private void send(Command command) {
+        mCommands.offer(command);
+        if (mDrainScheduled.compareAndSet(false, true)) {
+            mHandler.post(mDrainRunnable);
+        }
+    }
+
+    /**
+     * Run a command on the player thread. Commands sent after release are ignored.
+     */
+    private void execute(Command command) {
+        if (mReleased) {
+            return;
+        }
+        switch (command.mType) {
+            case COMMAND_CREATE:
+                createSoundPool();
+                break;
+            case COMMAND_PREFETCH:
+                getClip(command.mAudioResourceId);
+                break;
+            case COMMAND_RETAIN:
+                retainClips(command.mAudioResourceIds);
+                break;
+            case COMMAND_PLAY:
+                playClip(command.mAudioResourceId, command.mTapNanos);
+                break;
+            case COMMAND_LISTEN:
+                startListening(command.mWords, command.mSpacingMillis, command.mListener);
+                break;
+            case COMMAND_STOP:
+                stopPlayback();
+                break;
+            case COMMAND_RELEASE:
+                stopPlayback();
+                mReleased = true;
+                mSoundPool.release();
+                mClips.clear();
+                mLoadedSounds.clear();
+                mFailedSounds.clear();
+                mDecodedBytes = 0;
+                break;
+            case COMMAND_FOCUS_CHANGE:
+                onAudioFocusChange(command.mFocusChange);
+                break;
+        }
+    }
+
+    /**
+     * Stop the word being played, stop listening and abandon audio focus, on the player thread.
+     */
+    private void stopPlayback() {
+        stopStream();
+        mPendingClip = null;
+        mTapNanos = 0;
+
+        if (mPlaylist != null) {
+            mHandler.removeCallbacks(mNextWordRunnable);
+            ListenListener listener = mListenListener;
+            mPlaylist = null;
+            mListenListener = null;
+            mNextClip = null;
+            mListening = false;
+            postListenFinished(listener);
+        }
+
+        //Abandon audio focus, regardless of whether or not we were granted audio focus.
+        mAudioManager.abandonAudioFocus(mOnAudioFocusListener);
+        mHasAudioFocus = false;
+    }
+
+    private void postListenFinished(final ListenListener listener) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onListenFinished();
+            }
+        });
+    }
+
+    /**
+     * Return the clip of the given audio file, starting to decode it if needed.
+     */
+    private Clip getClip(int audioResourceId) {
+        Clip clip = mClips.get(audioResourceId);
+        if (clip != null) {
+            return clip;
+        }
+
+        clip = new Clip(audioResourceId);
+        mClips.put(audioResourceId, clip);
+        load(clip);
+        trimToBudget(clip);
+        return clip;
+    }
+
+    /**
+     * Evict the least recently used clips, except the given one, while the decoded sounds
+     * exceed the memory budget.
+     */
+    private void trimToBudget(Clip keep) {
+        Iterator<Clip> iterator = mClips.values().iterator();
+        while (mDecodedBytes > mBudgetBytes && iterator.hasNext()) {
+            Clip eldest = iterator.next();
+            if (eldest != keep && !isInUse(eldest)) {
+                iterator.remove();
+                unload(eldest);
+            }
+        }
+    }
+
+    /**
+     * Open the audio file, start decoding it into the pool and read its duration, all in the
+     * background. SoundPool itself decodes on its own thread. A clip in the PCM cache is only
+     * mapped instead.
+     */
+    private void load(final Clip clip) {
+        load(clip, true);
+    }
+
+    private void load(final Clip clip, final boolean useCache) {
+        sLoadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (clip.mEvicted) {
+                    return;
+                }
+                if (!clip.mSynthesized && mSpeechCache.isSpeech(clip.mAudioResourceId)
+                        && !mSpeechCache.lookUp(clip.mAudioResourceId)) {
+                    synthesize(clip, useCache);
+                    return;
+                }
+                final PcmCache.Entry pcm = useCache ? mPcmCache.get(clip.mAudioResourceId) : null;
+                if (pcm != null) {
+                    mHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onClipCached(clip, pcm);
+                        }
+                    });
+                    return;
+                }
+                final int soundId;
+                if (MediaFiles.isFile(clip.mAudioResourceId)) {
+                    //Pronunciation of a word of a vocabulary pack.
+                    soundId = mSoundPool.load(
+                            MediaFiles.getFile(clip.mAudioResourceId).getPath(), 1);
+                } else {
+                    soundId = mSoundPool.load(mContext, clip.mAudioResourceId, 1);
+                }
+                final int duration = readDuration(clip.mAudioResourceId);
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onClipLoading(clip, soundId, duration);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Synthesize the pronunciation of a word without a recorded clip, ahead of the words
+     * synthesized in the background, and load it then.
+     */
+    private void synthesize(final Clip clip, final boolean useCache) {
+        mSpeechCache.request(clip.mAudioResourceId, new SpeechCache.Callback() {
+            @Override
+            public void onSynthesized(boolean success) {
+                if (success) {
+                    clip.mSynthesized = true;
+                    load(clip, useCache);
+                } else {
+                    mHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onClipFailed(clip);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Called when a clip cannot be played at all. It is forgotten, a word waiting for it is
+     * given up and listening moves on to the next word.
+     */
+    private void onClipFailed(Clip clip) {
+        if (mReleased || clip.mEvicted) {
+            return;
+        }
+        clip.mEvicted = true;
+        if (mClips.get(clip.mAudioResourceId) == clip) {
+            mClips.remove(clip.mAudioResourceId);
+        }
+        if (clip == mNextClip) {
+            mNextClip = null;
+        }
+        if (clip == mPendingClip) {
+            mPendingClip = null;
+            mTapNanos = 0;
+            if (mPlaylist != null) {
+                onListenWordCompleted();
+            }
+        }
+    }
+
+    /**
+     * Called when SoundPool could not decode the audio file of a clip.
+     */
+    private void onSoundFailed(Clip clip) {
+        onClipFailed(clip);
+        unload(clip);
+    }
+
+    /**
+     * Return the clip whose audio file is being decoded as the given sound, or null.
+     */
+    private Clip findClip(int soundId) {
+        for (Clip clip : mClips.values()) {
+            if (clip.mSoundId == soundId) {
+                return clip;
+            }
+        }
+        return null;
+    }
+
+    private void onClipLoading(Clip clip, int soundId, int duration) {
+        if (mReleased) {
+            return;
+        }
+        clip.mSoundId = soundId;
+        clip.mDurationMillis = duration;
+        //Decoding may have failed before this was posted.
+        boolean failed = mFailedSounds.get(soundId);
+        mFailedSounds.delete(soundId);
+        if (clip.mEvicted) {
+            //Evicted while loading.
+            unload(clip);
+            return;
+        }
+        if (failed) {
+            onSoundFailed(clip);
+            return;
+        }
+        clip.mDecodedBytes = duration * DECODED_BYTES_PER_MILLI;
+        mDecodedBytes += clip.mDecodedBytes;
+        trimToBudget(clip);
+        playPendingClip();
+    }
+
+    /**
+     * Called once a clip has been found in, or decoded into, the PCM cache. It plays from the
+     * cache from now on and takes nothing from the memory budget.
+     */
+    private void onClipCached(Clip clip, PcmCache.Entry pcm) {
+        if (mReleased || clip.mEvicted) {
+            return;
+        }
+        clip.mPcm = pcm;
+        clip.mDurationMillis = pcm.getDurationMillis() + PCM_LATENCY_MILLIS;
+        if (clip.mSoundId != 0 && clip != mPlayingClip) {
+            mDecodedBytes -= clip.mDecodedBytes;
+            clip.mDecodedBytes = 0;
+            mSoundPool.unload(clip.mSoundId);
+            mLoadedSounds.delete(clip.mSoundId);
+            clip.mSoundId = 0;
+        }
+        playPendingClip();
+    }
+
+    /**
+     * Decode the audio file of the clip into the PCM cache in the background.
+     */
+    private void cache(final Clip clip) {
+        sCacheExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final PcmCache.Entry pcm = mPcmCache.put(clip.mAudioResourceId);
+                if (pcm != null) {
+                    mHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onClipCached(clip, pcm);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private void unload(Clip clip) {
+        clip.mEvicted = true;
+        mDecodedBytes -= clip.mDecodedBytes;
+        clip.mDecodedBytes = 0;
+        if (clip.mSoundId != 0) {
+            mSoundPool.unload(clip.mSoundId);
+            mLoadedSounds.delete(clip.mSoundId);
+            clip.mSoundId = 0;
+        }
+    }
+
+    /**
+     * Return whether the clip is being played or about to be played and may not be evicted.
+     */
+    private boolean isInUse(Clip clip) {
+        return clip == mPlayingClip || clip == mPendingClip || clip == mNextClip;
+    }
+
+    private boolean isLoaded(Clip clip) {
+        return clip.mPcm != null || (clip.mSoundId != 0 && mLoadedSounds.get(clip.mSoundId));
+    }
+
+    /**
+     * Play the word the user tapped on while it was still decoding.
+     */
+    private void playPendingClip() {
+        if (mPendingClip != null && isLoaded(mPendingClip)) {
+            Clip clip = mPendingClip;
+            mPendingClip = null;
+            stopStream();
+            if (mPlaylist != null) {
+                startListenClip(clip);
+            } else {
+                if (mTapNanos != 0) {
+                    Metrics.DECODE_WAIT.recordSince(mTapNanos);
+                }
+                startPlayback(clip);
+            }
+        }
+    }
+
+    /**
+     * Play the word at the current position of the playlist, or wait for it to be decoded.
+     */
+    private void playListenWord() {
+        Clip clip = getClip(getAudioId(mPlaylist.get(mPlaylistPosition)));
+
+        //Decode the next word while this one plays.
+        mNextClip = null;
+        if (mPlaylistPosition + 1 < mPlaylist.size()) {
+            mNextClip = getClip(getAudioId(mPlaylist.get(mPlaylistPosition + 1)));
+        }
+
+        if (isLoaded(clip)) {
+            startListenClip(clip);
+        } else {
+            mPendingClip = clip;
+        }
+    }
+
+    private void startListenClip(Clip clip) {
+        long now = SystemClock.uptimeMillis();
+        if (mLastEndMillis != 0) {
+            mLastGapMillis = now - mLastEndMillis;
+            mTotalGapMillis += mLastGapMillis;
+            mMaxGapMillis = Math.max(mMaxGapMillis, mLastGapMillis);
+            mGapCount++;
+        }
+        mPlayingClip = clip;
+        startStream(clip);
+        final ListenListener listener = mListenListener;
+        final int position = mPlaylistPosition;
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onListenWord(position);
+            }
+        });
+    }
+
+    private void onListenWordCompleted() {
+        mLastEndMillis = SystemClock.uptimeMillis();
+        mStreamId = 0;
+        mPlayingClip = null;
+        mPlaylistPosition++;
+        if (mPlaylistPosition >= mPlaylist.size()) {
+            //The whole list has been played.
+            stopPlayback();
+        } else {
+            mHandler.postDelayed(mNextWordRunnable, mSpacingMillis);
+        }
+    }
+
+    private void startPlayback(Clip clip) {
+        if (mPcmCache.recordPlay(clip.mAudioResourceId, clip.mPcm)) {
+            //The word is tapped often, so decode it once and for all.
+            cache(clip);
+        }
+
+        //Request audio focus to play file. The audio files are short so we shall request
+        //a short amount of time with AUDIOFOCUS_GAIN_TRANSIENT
+        if (!mHasAudioFocus) {
+            long startNanos = System.nanoTime();
+            int result = mAudioManager.requestAudioFocus(mOnAudioFocusListener,
+                    AudioManager.STREAM_MUSIC, AudioManager.AUDIOFOCUS_GAIN_TRANSIENT);
+            Metrics.AUDIO_FOCUS.recordSince(startNanos);
+            mHasAudioFocus = result == AudioManager.AUDIOFOCUS_REQUEST_GRANTED;
+        }
+
+        if (mHasAudioFocus) {
+            //Audio focus granted.
+            mPlayingClip = clip;
+            startStream(clip);
+            if (mTapNanos != 0) {
+                Metrics.TAP_TO_SOUND.recordSince(mTapNanos);
+            }
+        }
+        mTapNanos = 0;
+    }
+
+    private void startStream(Clip clip) {
+        long startNanos = System.nanoTime();
+        if (clip.mPcm != null) {
+            mPcmTrack = PcmTrack.start(clip.mPcm);
+            if (mPcmTrack == null) {
+                //No AudioTrack is available, decode the clip into the pool and play it then.
+                clip.mPcm = null;
+                mPendingClip = clip;
+                load(clip, false);
+                return;
+            }
+        } else {
+            mStreamId = mSoundPool.play(clip.mSoundId, 1f, 1f, 1, 0, 1f);
+        }
+        Metrics.SOUND_START.recordSince(startNanos);
+        mHandler.postDelayed(mCompletionRunnable, clip.mDurationMillis);
+    }
+
+    private void stopStream() {
+        mHandler.removeCallbacks(mCompletionRunnable);
+        stopSound();
+        mPlayingClip = null;
+    }
+
+    /**
+     * Silence the word being played, from the pool or the PCM cache.
+     */
+    private void stopSound() {
+        if (mStreamId != 0) {
+            mSoundPool.stop(mStreamId);
+            mStreamId = 0;
+        }
+        if (mPcmTrack != null) {
+            mPcmTrack.stop();
+            mPcmTrack = null;
+        }
+    }
+
+    /**
+     * Read the duration of an audio file in milliseconds without decoding it.
+     */
+    private int readDuration(int audioResourceId) {
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        AssetFileDescriptor afd = null;
+        try {
+            if (MediaFiles.isFile(audioResourceId)) {
+                retriever.setDataSource(MediaFiles.getFile(audioResourceId).getPath());
+            } else {
+                afd = mContext.getResources().openRawResourceFd(audioResourceId);
+                retriever.setDataSource(afd.getFileDescriptor(), afd.getStartOffset(),
+                        afd.getLength());
+            }
+            String duration = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
+            return duration != null ? Integer.parseInt(duration) : DEFAULT_DURATION_MILLIS;
+        } catch (RuntimeException e) {
+            return DEFAULT_DURATION_MILLIS;
+        } finally {
+            retriever.release();
+            if (afd != null) {
+                try {
+                    afd.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * A request to the player, run on the player thread.
+     */
+    private static final class Command {
+        final int mType;
+
+        //Arguments, depending on the type.
+        int mAudioResourceId;
+        long mTapNanos;
+        SparseBooleanArray mAudioResourceIds;
+        List<Word> mWords;
+        int mSpacingMillis;
+        ListenListener mListener;
+        int mFocusChange;
+
+        Command(int type) {
+            mType = type;
+        }
+    }
+
+    /**
+     * An audio file which is being decoded or is decoded in the pool.
+     */
+    private static final class Clip {
+        final int mAudioResourceId;
+
+        //SoundPool sound id, or 0 until loading has started or once the clip is cached.
+        int mSoundId;
+
+        //Decoded samples in the PCM cache, or null if the clip is not cached.
+        PcmCache.Entry mPcm;
+
+        int mDurationMillis = DEFAULT_DURATION_MILLIS;
+
+        //Estimated size of the decoded sound, counted in the memory budget.
+        int mDecodedBytes;
+
+        //Set once the clip has been evicted, possibly while still loading.
+        volatile boolean mEvicted;
+
+        //Set once the speech of a word without a recorded clip has been synthesized.
+        volatile boolean mSynthesized;
+
+        Clip(int audioResourceId) {
+            mAudioResourceId = audioResourceId;
+        }
+    }
+}
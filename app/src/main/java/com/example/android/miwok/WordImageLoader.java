@@ -0,0 +1,203 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * {@link WordImageLoader} loads the images of {@link Word}s into {@link ImageView}s.
+ * Images are decoded off the UI thread at exactly the size of a list item and kept in a
+ * memory cache shared by all categories, so binding a row never waits for a bitmap.
+ */
+public final class WordImageLoader {
+
+    //Part of the app's maximum heap used by the memory cache.
+    private static final int CACHE_HEAP_FRACTION = 8;
+
+    private static final int DECODE_THREADS = 2;
+
+    private static WordImageLoader sInstance;
+
+    private final Resources mResources;
+
+    //Width and height in pixels of the decoded images, @dimen/list_item_height.
+    private final int mTargetSize;
+
+    //Decoded images keyed by image resource id, sized by their byte count.
+    private final LruCache<Integer, Bitmap> mCache;
+
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(DECODE_THREADS);
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private WordImageLoader(Context context) {
+        mResources = context.getApplicationContext().getResources();
+        mTargetSize = mResources.getDimensionPixelSize(R.dimen.list_item_height);
+
+        int cacheSize = (int) (Runtime.getRuntime().maxMemory() / CACHE_HEAP_FRACTION);
+        mCache = new LruCache<Integer, Bitmap>(cacheSize) {
+            @Override
+            protected int sizeOf(Integer imageResourceId, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * Return the process wide {@link WordImageLoader}.
+     */
+    public static synchronized WordImageLoader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new WordImageLoader(context);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Show the image with the given resource or {@link MediaFiles} id in the {@link ImageView}.
+     * Any request pending for the view is cancelled. If the image is not cached, the view is
+     * cleared until the image has been decoded in the background.
+     */
+    public void load(int imageResourceId, ImageView imageView) {
+        cancel(imageView);
+
+        Bitmap bitmap = mCache.get(imageResourceId);
+        if (bitmap != null) {
+            imageView.setImageBitmap(bitmap);
+            return;
+        }
+
+        imageView.setImageDrawable(null);
+        Request request = new Request(imageResourceId, imageView);
+        imageView.setTag(R.id.image_request, request);
+        request.mFuture = mExecutor.submit(request);
+    }
+
+    /**
+     * Cancel the request pending for the {@link ImageView}, e.g. when its row is recycled.
+     */
+    public void cancel(ImageView imageView) {
+        Request request = (Request) imageView.getTag(R.id.image_request);
+        if (request != null) {
+            request.mCancelled = true;
+            if (request.mFuture != null) {
+                request.mFuture.cancel(false);
+            }
+            imageView.setTag(R.id.image_request, null);
+        }
+    }
+
+    /**
+     * Decode an image resource, or an image file of a vocabulary pack, see {@link MediaFiles}.
+     */
+    private Bitmap decode(int imageResourceId, BitmapFactory.Options options) {
+        if (MediaFiles.isFile(imageResourceId)) {
+            return BitmapFactory.decodeFile(MediaFiles.getFile(imageResourceId).getPath(),
+                    options);
+        }
+        return BitmapFactory.decodeResource(mResources, imageResourceId, options);
+    }
+
+    /**
+     * Decode an image, first subsampling it to the smallest power of two that is
+     * still larger than the target size and then scaling it to the exact target size.
+     */
+    private Bitmap decode(int imageResourceId) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        //Sizes are handled here rather than by the density of the drawable folder.
+        options.inScaled = false;
+        options.inJustDecodeBounds = true;
+        decode(imageResourceId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= mTargetSize
+                && options.outHeight / (sampleSize * 2) >= mTargetSize) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        //Let the decoder scale the subsampled image to the target size as it decodes, so the
+        //larger subsampled bitmap is never allocated next to the scaled one.
+        int sampledSize = Math.max(options.outWidth, options.outHeight) / sampleSize;
+        if (sampledSize > mTargetSize) {
+            options.inScaled = true;
+            options.inDensity = sampledSize;
+            options.inTargetDensity = mTargetSize;
+        }
+        Bitmap bitmap = decode(imageResourceId, options);
+        if (bitmap == null) {
+            return null;
+        }
+        //The bitmap has the pixel size it is shown at, whatever the density it was decoded for.
+        bitmap.setDensity(mResources.getDisplayMetrics().densityDpi);
+
+        //Fit the image in a square of the target size, keeping its aspect ratio.
+        float scale = Math.min((float) mTargetSize / bitmap.getWidth(),
+                (float) mTargetSize / bitmap.getHeight());
+        int width = Math.max(1, Math.round(bitmap.getWidth() * scale));
+        int height = Math.max(1, Math.round(bitmap.getHeight() * scale));
+        if (width == bitmap.getWidth() && height == bitmap.getHeight()) {
+            return bitmap;
+        }
+        Bitmap scaled = Bitmap.createScaledBitmap(bitmap, width, height, true);
+        if (scaled != bitmap) {
+            bitmap.recycle();
+        }
+        return scaled;
+    }
+
+    /**
+     * Decodes one image in the background and shows it if its view was not rebound meanwhile.
+     */
+    private final class Request implements Runnable {
+
+        private final int mImageResourceId;
+        private final ImageView mImageView;
+        private volatile boolean mCancelled;
+        private Future<?> mFuture;
+
+        Request(int imageResourceId, ImageView imageView) {
+            mImageResourceId = imageResourceId;
+            mImageView = imageView;
+        }
+
+        @Override
+        public void run() {
+            if (mCancelled) {
+                return;
+            }
+            //Another request may have decoded the same image in the meantime.
+            Bitmap bitmap = mCache.get(mImageResourceId);
+            if (bitmap == null) {
+                bitmap = decode(mImageResourceId);
+                if (bitmap == null) {
+                    return;
+                }
+                mCache.put(mImageResourceId, bitmap);
+            }
+
+            final Bitmap result = bitmap;
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!mCancelled && mImageView.getTag(R.id.image_request) == Request.this) {
+                        mImageView.setTag(R.id.image_request, null);
+                        mImageView.setImageBitmap(result);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,567 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link WordRepository} provides the vocabulary {@link Word}s of each {@link Category}.
+ * The words are read from the {@link Lexicon} compiled at build time into a {@link WordTable}.
+ * The word list of a category is created once per process and every caller shares the same
+ * immutable list, so opening a category again does not allocate anything.
+ * Installed {@link VocabularyPack}s add their categories to the built-in ones.
+ */
+public final class WordRepository {
+
+    /**
+     * Interface definition for a callback invoked once the {@link SearchIndex} is built.
+     */
+    public interface OnSearchIndexReadyListener {
+        void onSearchIndexReady(SearchIndex searchIndex);
+    }
+
+    /**
+     * Interface definition for a callback invoked once the {@link DistractorIndex} is ready.
+     */
+    public interface OnDistractorIndexReadyListener {
+        void onDistractorIndexReady(DistractorIndex distractorIndex);
+    }
+
+    /**
+     * Interface definition for a callback invoked once the {@link AnswerMatcher} is ready.
+     */
+    public interface OnAnswerMatcherReadyListener {
+        void onAnswerMatcherReady(AnswerMatcher answerMatcher);
+    }
+
+    /**
+     * Interface definition for a callback invoked once the {@link WordSections} are laid out.
+     */
+    public interface OnWordSectionsReadyListener {
+        /**
+         * @param categories are the categories of the sections, in the same order.
+         */
+        void onWordSectionsReady(WordSections sections, List<Category> categories);
+    }
+
+    /**
+     * Interface definition for a callback invoked once the installed packs have been read.
+     */
+    public interface OnPacksLoadedListener {
+        void onPacksLoaded(List<VocabularyPack> packs);
+    }
+
+    /**
+     * Interface definition for callbacks invoked when the installation of a pack ends.
+     */
+    public interface OnPackInstalledListener {
+        void onPackInstalled(PackInstaller.Report report);
+
+        void onPackInstallFailed(IOException error);
+    }
+
+    //Name of the file holding the spaced repetition state of the words.
+    private static final String REVIEW_FILE_NAME = "reviews.dat";
+
+    //Name of the file caching the distractor index of the lexicon.
+    private static final String DISTRACTOR_FILE_NAME = "distractors.idx";
+
+    //Directory holding the installed packs, and the one where packs can be dropped to install.
+    private static final String PACKS_DIRECTORY = "packs";
+
+    private static WordRepository sInstance;
+
+    private final Context mContext;
+
+    //Lexicon holding the words of all categories, mapped when it is first needed.
+    private Lexicon mLexicon;
+
+    //Columns of the words of all categories, copied from the lexicon when first needed.
+    private WordTable mWordTable;
+
+    //Word lists which have already been created, keyed by category key.
+    private final Map<String, WordTable.WordList> mWords = new HashMap<>();
+
+    //Words of all categories, indexed like the lexicon.
+    private WordTable.WordList mAllWords;
+
+    //Installed packs, read when first needed.
+    private List<VocabularyPack> mPacks;
+
+    //Spaced repetition state of the words, created when first needed.
+    private ReviewStore mReviewStore;
+
+    //Progress of the learner, created when first needed.
+    private ProgressStore mProgressStore;
+
+    //Index of all words, built in the background.
+    private SearchIndex mSearchIndex;
+
+    //Distractors of the quiz, read or built in the background.
+    private DistractorIndex mDistractorIndex;
+
+    //Normalized answers of the typed practice, built in the background.
+    private AnswerMatcher mAnswerMatcher;
+
+    //Words of all categories as one sorted list and the categories of its sections, laid out
+    //in the background and again after a pack is installed.
+    private WordSections mWordSections;
+    private List<Category> mSectionCategories;
+
+    //Builds the search and distractor indices and installs packs off the UI thread.
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private WordRepository(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    /**
+     * Return the process wide {@link WordRepository}.
+     */
+    public static synchronized WordRepository getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new WordRepository(context);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Return the immutable list of {@link Word}s of the given {@link Category}.
+     */
+    public synchronized WordTable.WordList getWords(Category category) {
+        WordTable.WordList words = mWords.get(category.getKey());
+        if (words == null && Category.fromKey(category.getKey()) == null) {
+            words = getPackWords(category);
+            mWords.put(category.getKey(), words);
+        } else if (words == null) {
+            Lexicon lexicon = getLexicon();
+            int index = lexicon.findCategory(category.getKey());
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown category " + category.getKey());
+            }
+            words = getWordTable().subList(lexicon.getFirstWord(index),
+                    lexicon.getCategoryWordCount(index));
+            mWords.put(category.getKey(), words);
+        }
+        return words;
+    }
+
+    private WordTable.WordList getPackWords(Category category) {
+        for (VocabularyPack pack : getPacks()) {
+            if (pack.getCategories().contains(category)) {
+                try {
+                    return pack.getWords(category);
+                } catch (IOException e) {
+                    //The pack was verified when it was installed.
+                    throw new IllegalStateException("Unable to read pack " + pack.getId(), e);
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unknown category " + category.getKey());
+    }
+
+    /**
+     * Return the {@link Category} with the given key, built-in or from a pack, or null if there
+     * is none.
+     */
+    public synchronized Category getCategory(String key) {
+        Category category = Category.fromKey(key);
+        if (category != null) {
+            return category;
+        }
+        for (VocabularyPack pack : getPacks()) {
+            for (Category packCategory : pack.getCategories()) {
+                if (packCategory.getKey().equals(key)) {
+                    return packCategory;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the installed {@link VocabularyPack}s, reading them on first use.
+     */
+    public synchronized List<VocabularyPack> getPacks() {
+        if (mPacks == null) {
+            mPacks = new ArrayList<>();
+            File[] directories = getPacksDirectory().listFiles();
+            if (directories != null) {
+                Arrays.sort(directories);
+                for (File directory : directories) {
+                    if (directory.isDirectory() && !directory.getName().startsWith(".")) {
+                        try {
+                            mPacks.add(VocabularyPack.load(directory));
+                        } catch (IOException e) {
+                            //Skip packs which were damaged after they were installed.
+                        }
+                    }
+                }
+            }
+        }
+        return Collections.unmodifiableList(mPacks);
+    }
+
+    /**
+     * Read the installed packs in the background and pass them to the listener on the UI
+     * thread.
+     */
+    public void loadPacks(final OnPacksLoadedListener listener) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<VocabularyPack> packs = new ArrayList<>(getPacks());
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onPacksLoaded(packs);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Install a pack in the background, replacing any installed pack with the same id, and
+     * report the result to the listener on the UI thread.
+     *
+     * @param location is an http(s) URL or a file path, relative to {@link #getPackInbox()}.
+     */
+    public void installPack(final String location, final OnPackInstalledListener listener) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    File packsDirectory = getPacksDirectory();
+                    if (!packsDirectory.isDirectory() && !packsDirectory.mkdirs()) {
+                        throw new IOException("Unable to create " + packsDirectory);
+                    }
+                    final PackInstaller.Report report = new PackInstaller(packsDirectory)
+                            .install(PackInstaller.open(location, getPackInbox()));
+                    onPackInstalled(report.getPack());
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onPackInstalled(report);
+                        }
+                    });
+                } catch (final IOException e) {
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onPackInstallFailed(e);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private synchronized void onPackInstalled(VocabularyPack installed) {
+        getPacks();
+        List<VocabularyPack> packs = mPacks;
+        for (int i = 0; i < packs.size(); i++) {
+            if (packs.get(i).getId().equals(installed.getId())) {
+                //Forget the words of the replaced pack.
+                for (Category category : packs.get(i).getCategories()) {
+                    mWords.remove(category.getKey());
+                }
+                packs.remove(i);
+                break;
+            }
+        }
+        packs.add(installed);
+        mWordSections = null;
+        mSectionCategories = null;
+    }
+
+    private File getPacksDirectory() {
+        return new File(mContext.getFilesDir(), PACKS_DIRECTORY);
+    }
+
+    /**
+     * Return the directory where pack files can be copied to install them by name, e.g. with
+     * adb push. It can be written without any permission.
+     */
+    public File getPackInbox() {
+        File inbox = mContext.getExternalFilesDir(PACKS_DIRECTORY);
+        return inbox != null ? inbox : getPacksDirectory();
+    }
+
+    /**
+     * Return the immutable list of the {@link Word}s of all categories, indexed like the
+     * {@link Lexicon} and the {@link SearchIndex}.
+     */
+    public synchronized WordTable.WordList getAllWords() {
+        if (mAllWords == null) {
+            WordTable wordTable = getWordTable();
+            mAllWords = wordTable.subList(0, wordTable.getWordCount());
+        }
+        return mAllWords;
+    }
+
+    /**
+     * Return the columns of the words of all categories, indexed like the {@link Lexicon}.
+     */
+    public synchronized WordTable getWordTable() {
+        if (mWordTable == null) {
+            mWordTable = new WordTable(getLexicon(), mContext.getResources(),
+                    mContext.getPackageName());
+        }
+        return mWordTable;
+    }
+
+    /**
+     * Load the words and build the {@link SearchIndex} in the background, so that the first
+     * category or search opened does not wait for them.
+     */
+    public void preload() {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                getWordTable();
+                getSearchIndex();
+            }
+        });
+    }
+
+    /**
+     * Build the {@link SearchIndex} in the background unless it is already built, and pass it
+     * to the listener on the UI thread once it is ready.
+     *
+     * @param listener is notified when the index is ready, may be null to only build it.
+     */
+    public void loadSearchIndex(final OnSearchIndexReadyListener listener) {
+        synchronized (this) {
+            if (mSearchIndex != null) {
+                if (listener != null) {
+                    listener.onSearchIndexReady(mSearchIndex);
+                }
+                return;
+            }
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final SearchIndex searchIndex = getSearchIndex();
+                if (listener != null) {
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onSearchIndexReady(searchIndex);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Build the search index, only called on the executor so it is built once. The repository
+     * is not locked while building so that word lists can be read meanwhile.
+     */
+    private SearchIndex getSearchIndex() {
+        synchronized (this) {
+            if (mSearchIndex != null) {
+                return mSearchIndex;
+            }
+        }
+        SearchIndex searchIndex = SearchIndex.fromLexicon(getLexicon());
+        synchronized (this) {
+            mSearchIndex = searchIndex;
+            return searchIndex;
+        }
+    }
+
+    /**
+     * Read or build the {@link DistractorIndex} in the background unless it is already loaded,
+     * and pass it to the listener on the UI thread once it is ready.
+     */
+    public void loadDistractorIndex(final OnDistractorIndexReadyListener listener) {
+        synchronized (this) {
+            if (mDistractorIndex != null) {
+                listener.onDistractorIndexReady(mDistractorIndex);
+                return;
+            }
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DistractorIndex distractorIndex = getDistractorIndex();
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onDistractorIndexReady(distractorIndex);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Read the distractor index stored for the current lexicon, or build and store it if there
+     * is none. Only called on the executor.
+     */
+    private DistractorIndex getDistractorIndex() {
+        synchronized (this) {
+            if (mDistractorIndex != null) {
+                return mDistractorIndex;
+            }
+        }
+        DistractorIndex distractorIndex = DistractorIndex.load(
+                new File(mContext.getCacheDir(), DISTRACTOR_FILE_NAME), getLexicon());
+        synchronized (this) {
+            mDistractorIndex = distractorIndex;
+            return distractorIndex;
+        }
+    }
+
+    /**
+     * Build the {@link AnswerMatcher} in the background unless it is already built, and pass it
+     * to the listener on the UI thread once it is ready.
+     */
+    public void loadAnswerMatcher(final OnAnswerMatcherReadyListener listener) {
+        synchronized (this) {
+            if (mAnswerMatcher != null) {
+                listener.onAnswerMatcherReady(mAnswerMatcher);
+                return;
+            }
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final AnswerMatcher answerMatcher = getAnswerMatcher();
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onAnswerMatcherReady(answerMatcher);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Normalize the answers of all words once per process. Only called on the executor.
+     */
+    private AnswerMatcher getAnswerMatcher() {
+        synchronized (this) {
+            if (mAnswerMatcher != null) {
+                return mAnswerMatcher;
+            }
+        }
+        AnswerMatcher answerMatcher = AnswerMatcher.fromLexicon(getLexicon());
+        synchronized (this) {
+            mAnswerMatcher = answerMatcher;
+            return answerMatcher;
+        }
+    }
+
+    /**
+     * Lay out the words of all categories, those of the packs included, in the background unless
+     * it is already done, and pass them to the listener on the UI thread once they are ready.
+     */
+    public void loadWordSections(final OnWordSectionsReadyListener listener) {
+        synchronized (this) {
+            if (mWordSections != null) {
+                listener.onWordSectionsReady(mWordSections, mSectionCategories);
+                return;
+            }
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<Category> categories = new ArrayList<>();
+                final WordSections sections = getWordSections(categories);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onWordSectionsReady(sections, categories);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Sort the words of every category once, and fill in the categories of the sections. Only
+     * called on the executor.
+     */
+    private WordSections getWordSections(List<Category> categories) {
+        List<WordTable.WordList> words = new ArrayList<>();
+        synchronized (this) {
+            if (mWordSections != null) {
+                categories.addAll(mSectionCategories);
+                return mWordSections;
+            }
+            Lexicon lexicon = getLexicon();
+            for (int i = 0; i < lexicon.getCategoryCount(); i++) {
+                Category category = Category.fromKey(lexicon.getCategoryKey(i));
+                if (category != null) {
+                    categories.add(category);
+                    words.add(getWords(category));
+                }
+            }
+            for (VocabularyPack pack : getPacks()) {
+                for (Category category : pack.getCategories()) {
+                    categories.add(category);
+                    words.add(getWords(category));
+                }
+            }
+        }
+        WordSections sections = WordSections.build(words);
+        synchronized (this) {
+            mWordSections = sections;
+            mSectionCategories = Collections.unmodifiableList(new ArrayList<>(categories));
+            return sections;
+        }
+    }
+
+    /**
+     * Return the process wide store of the spaced repetition state of the words.
+     */
+    public synchronized ReviewStore getReviewStore() {
+        if (mReviewStore == null) {
+            mReviewStore = new ReviewStore(new File(mContext.getFilesDir(), REVIEW_FILE_NAME));
+        }
+        return mReviewStore;
+    }
+
+    /**
+     * Return the process wide store of the words played and mastered and of the study sessions.
+     */
+    public synchronized ProgressStore getProgressStore() {
+        if (mProgressStore == null) {
+            mProgressStore = new ProgressStore(mContext.getFilesDir());
+        }
+        return mProgressStore;
+    }
+
+    /**
+     * Return the lexicon of the app, mapping it on first use.
+     */
+    public synchronized Lexicon getLexicon() {
+        if (mLexicon == null) {
+            try {
+                mLexicon = Lexicon.open(mContext);
+            } catch (IOException e) {
+                //The lexicon is generated by the build, so this is a packaging error.
+                throw new IllegalStateException("Unable to open " + Lexicon.ASSET_NAME, e);
+            }
+        }
+        return mLexicon;
+    }
+}
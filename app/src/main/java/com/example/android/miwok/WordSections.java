@@ -0,0 +1,171 @@
+package com.example.android.miwok;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * {@link WordSections} lays out the words of several categories as one list: each category is a
+ * section starting with a header row, followed by its words sorted alphabetically by their
+ * French translation. Everything a scrolling list asks for is precomputed once into int arrays,
+ * so finding the section of a row or the row where a letter starts takes constant time and the
+ * rows themselves are only {@link WordTable.WordList} positions.
+ */
+public final class WordSections {
+
+    //Letters of the fast scroll index: '#' for words not starting with a letter, then A to Z.
+    public static final int LETTER_COUNT = 27;
+
+    private final WordTable.WordList[] mSections;
+
+    //Position of the header of each section, followed by the number of rows.
+    private final int[] mSectionPositions;
+
+    //Section of each row.
+    private final int[] mRowSections;
+
+    //Position of the first word of each section starting with each letter or a later one,
+    //at section * LETTER_COUNT + letter.
+    private final int[] mLetterPositions;
+
+    private WordSections(WordTable.WordList[] sections, byte[][] letters) {
+        mSections = sections;
+        mSectionPositions = new int[sections.length + 1];
+        int rowCount = 0;
+        for (int section = 0; section < sections.length; section++) {
+            mSectionPositions[section] = rowCount;
+            rowCount += 1 + sections[section].size();
+        }
+        mSectionPositions[sections.length] = rowCount;
+
+        mRowSections = new int[rowCount];
+        mLetterPositions = new int[sections.length * LETTER_COUNT];
+        for (int section = 0; section < sections.length; section++) {
+            int start = mSectionPositions[section];
+            int end = mSectionPositions[section + 1];
+            Arrays.fill(mRowSections, start, end, section);
+
+            //Words are sorted, so each letter starts where the previous ones end.
+            byte[] sectionLetters = letters[section];
+            int offset = section * LETTER_COUNT;
+            int position = start + 1;
+            for (int letter = 0; letter < LETTER_COUNT; letter++) {
+                while (position < end && sectionLetters[position - start - 1] < letter) {
+                    position++;
+                }
+                mLetterPositions[offset + letter] = position;
+            }
+        }
+    }
+
+    /**
+     * Sort the words of each of the given lists and lay them out one section after the other.
+     */
+    public static WordSections build(List<WordTable.WordList> sections) {
+        WordTable.WordList[] sorted = new WordTable.WordList[sections.size()];
+        byte[][] letters = new byte[sorted.length][];
+        for (int i = 0; i < sorted.length; i++) {
+            letters[i] = new byte[sections.get(i).size()];
+            sorted[i] = sort(sections.get(i), letters[i]);
+        }
+        return new WordSections(sorted, letters);
+    }
+
+    /**
+     * Return the words sorted by their normalized French translation, and fill in their letters.
+     */
+    private static WordTable.WordList sort(WordTable.WordList words, byte[] letters) {
+        final WordTable table = words.getTable();
+        final String[] keys = new String[words.size()];
+        Integer[] order = new Integer[words.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = TextNormalizer.normalize(
+                    table.getFrenchTranslation(words.getTableIndex(i)));
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return keys[a].compareTo(keys[b]);
+            }
+        });
+        int[] indices = new int[order.length];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = words.getTableIndex(order[i]);
+            letters[i] = (byte) getNormalizedLetter(keys[order[i]]);
+        }
+        return table.select(indices, indices.length);
+    }
+
+    /**
+     * Return the letter of the fast scroll index of a French word, 0 for '#' or 1 to 26.
+     */
+    public static int getLetter(String text) {
+        return getNormalizedLetter(TextNormalizer.normalize(text));
+    }
+
+    private static int getNormalizedLetter(String normalized) {
+        if (normalized.isEmpty()) {
+            return 0;
+        }
+        char c = normalized.charAt(0);
+        return c >= 'a' && c <= 'z' ? c - 'a' + 1 : 0;
+    }
+
+    /**
+     * Return the number of rows, headers included.
+     */
+    public int getRowCount() {
+        return mRowSections.length;
+    }
+
+    public int getSectionCount() {
+        return mSections.length;
+    }
+
+    /**
+     * Return the section of the row at the given position.
+     */
+    public int getSection(int position) {
+        return mRowSections[position];
+    }
+
+    /**
+     * Return whether the row at the given position is the header of its section.
+     */
+    public boolean isHeader(int position) {
+        return mSectionPositions[mRowSections[position]] == position;
+    }
+
+    /**
+     * Return the position of the header of a section.
+     */
+    public int getSectionPosition(int section) {
+        return mSectionPositions[section];
+    }
+
+    /**
+     * Return the words of a section, in the order they are shown.
+     */
+    public WordTable.WordList getWords(int section) {
+        return mSections[section];
+    }
+
+    /**
+     * Return the position in {@link #getWords(int)} of the word at the given row, which must
+     * not be a header.
+     */
+    public int getWordPosition(int position) {
+        return position - mSectionPositions[mRowSections[position]] - 1;
+    }
+
+    /**
+     * Return the position of the first word of a section starting with the given letter, or
+     * with the next letter having words, or the end of the section if none.
+     *
+     * @param letter is 0 for '#' or 1 to 26 for A to Z.
+     */
+    public int getLetterPosition(int section, int letter) {
+        return mLetterPositions[section * LETTER_COUNT + letter];
+    }
+}
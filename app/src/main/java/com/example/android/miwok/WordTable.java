@@ -0,0 +1,300 @@
+package com.example.android.miwok;
+
+import android.content.res.Resources;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * {@link WordTable} holds the words of the {@link Lexicon} in columns of primitive arrays
+ * rather than one {@link Word} object per word: ids in a long[], resource ids in int[]s and
+ * all strings in one shared UTF-8 byte pool addressed by an offset array.
+ *
+ * <p>{@link Word}s are handed out as flyweight views over a row, which decode their strings when
+ * asked. A {@link WordList} creates the view of a row once and hands out the same one from then
+ * on. {@link WordAdapter} binds rows straight from the columns without creating them.
+ */
+public final class WordTable {
+
+    //Resource id column value of rows whose resource has not been looked up yet.
+    private static final int UNRESOLVED = -1;
+
+    //String reference of rows without an image or audio file.
+    private static final int NO_STRING = -1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Resources mResources;
+    private final String mPackageName;
+
+    //Directory of the image and audio files of a vocabulary pack, null for the app's lexicon.
+    private final File mMediaDirectory;
+
+    private final int mWordCount;
+    private final long[] mIds;
+
+    //String references of each row, indices into mStringOffsets.
+    private final int[] mDefaultTranslations;
+    private final int[] mFrenchTranslations;
+    private final int[] mImageNames;
+    private final int[] mAudioNames;
+
+    //Resource ids of each row, looked up from the names on first use. 0 means none.
+    private final int[] mImageResourceIds;
+    private final int[] mAudioResourceIds;
+
+    //String i is the bytes of mStringData from mStringOffsets[i] to mStringOffsets[i + 1].
+    private final int[] mStringOffsets;
+    private final byte[] mStringData;
+
+    /**
+     * Copy the columns of the given {@link Lexicon}. This is a few bulk copies, no per word
+     * objects are created.
+     *
+     * @param resources are used to look up the image and audio resources of the words.
+     * @param packageName is the package holding the image and audio resources.
+     */
+    public WordTable(Lexicon lexicon, Resources resources, String packageName) {
+        this(lexicon, resources, packageName, null);
+    }
+
+    /**
+     * Copy the columns of the lexicon of a vocabulary pack, whose image and audio names are
+     * files in the given directory. Their ids are given by {@link MediaFiles}.
+     */
+    public WordTable(Lexicon lexicon, File mediaDirectory) {
+        this(lexicon, null, null, mediaDirectory);
+    }
+
+    private WordTable(Lexicon lexicon, Resources resources, String packageName,
+                      File mediaDirectory) {
+        mResources = resources;
+        mPackageName = packageName;
+        mMediaDirectory = mediaDirectory;
+        mWordCount = lexicon.getWordCount();
+        mIds = new long[mWordCount];
+        mDefaultTranslations = new int[mWordCount];
+        mFrenchTranslations = new int[mWordCount];
+        mImageNames = new int[mWordCount];
+        mAudioNames = new int[mWordCount];
+        lexicon.readColumns(mIds, mDefaultTranslations, mFrenchTranslations, mImageNames,
+                mAudioNames);
+        mStringOffsets = lexicon.readStringOffsets();
+        mStringData = lexicon.readStringData();
+
+        mImageResourceIds = newResourceIdColumn(mWordCount);
+        mAudioResourceIds = newResourceIdColumn(mWordCount);
+    }
+
+    private static int[] newResourceIdColumn(int size) {
+        int[] column = new int[size];
+        for (int i = 0; i < size; i++) {
+            column[i] = UNRESOLVED;
+        }
+        return column;
+    }
+
+    /**
+     * Return the number of words in the table.
+     */
+    public int getWordCount() {
+        return mWordCount;
+    }
+
+    /**
+     * Return the stable id of the word at the given index.
+     */
+    public long getId(int word) {
+        return mIds[word];
+    }
+
+    /**
+     * Return the English translation of the word at the given index.
+     */
+    public String getDefaultTranslation(int word) {
+        return getString(mDefaultTranslations[word]);
+    }
+
+    /**
+     * Return the French translation of the word at the given index.
+     */
+    public String getFrenchTranslation(int word) {
+        return getString(mFrenchTranslations[word]);
+    }
+
+    /**
+     * Return the image resource id of the word at the given index, or 0 if it has none.
+     */
+    public int getImageResourceId(int word) {
+        return getResourceId(word, mImageNames, mImageResourceIds, "drawable");
+    }
+
+    /**
+     * Return the pronunciation resource id of the word at the given index, or 0 if it has none.
+     */
+    public int getAudioResourceId(int word) {
+        return getResourceId(word, mAudioNames, mAudioResourceIds, "raw");
+    }
+
+    /**
+     * Return a flyweight {@link Word} view of the word at the given index.
+     */
+    public Word getWord(int word) {
+        if (word < 0 || word >= mWordCount) {
+            throw new IndexOutOfBoundsException("Index " + word + ", size " + mWordCount);
+        }
+        return new WordView(word);
+    }
+
+    /**
+     * Return an immutable list of the consecutive words starting at the given index.
+     */
+    public WordList subList(int firstWord, int size) {
+        if (firstWord < 0 || size < 0 || firstWord + size > mWordCount) {
+            throw new IndexOutOfBoundsException("Range " + firstWord + "+" + size
+                    + ", size " + mWordCount);
+        }
+        return new WordList(firstWord, null, size);
+    }
+
+    /**
+     * Return an immutable list of the words at the first count of the given indices.
+     * The indices are copied.
+     */
+    public WordList select(int[] words, int count) {
+        int[] indices = new int[count];
+        System.arraycopy(words, 0, indices, 0, count);
+        return new WordList(0, indices, count);
+    }
+
+    private String getString(int index) {
+        if (index == NO_STRING) {
+            return null;
+        }
+        int start = mStringOffsets[index];
+        return new String(mStringData, start, mStringOffsets[index + 1] - start, UTF_8);
+    }
+
+    private int getResourceId(int word, int[] names, int[] ids, String type) {
+        //Racing threads look up the same id, so the column needs no lock.
+        int id = ids[word];
+        if (id == UNRESOLVED) {
+            String name = getString(names[word]);
+            if (name == null) {
+                id = 0;
+            } else if (mMediaDirectory != null) {
+                id = MediaFiles.getId(new File(mMediaDirectory, name));
+            } else {
+                id = mResources.getIdentifier(name, type, mPackageName);
+            }
+            ids[word] = id;
+        }
+        return id;
+    }
+
+    /**
+     * Immutable list of words of the {@link WordTable}, either a range of consecutive words or
+     * a selection of them. Each {@link Word} is a view created when it is first requested and
+     * kept, so that everyone sharing the list shares the same words.
+     */
+    public final class WordList extends AbstractList<Word> implements RandomAccess {
+
+        private final int mFirstWord;
+
+        //Table indices of the words of a selection, null for a range.
+        private final int[] mIndices;
+
+        private final int mSize;
+
+        //Views handed out so far, by position. Allocated on first use.
+        private Word[] mViews;
+
+        private WordList(int firstWord, int[] indices, int size) {
+            mFirstWord = firstWord;
+            mIndices = indices;
+            mSize = size;
+        }
+
+        /**
+         * Return the {@link WordTable} holding the words of the list.
+         */
+        public WordTable getTable() {
+            return WordTable.this;
+        }
+
+        /**
+         * Return the table index of the word at the given position of the list.
+         */
+        public int getTableIndex(int position) {
+            if (position < 0 || position >= mSize) {
+                throw new IndexOutOfBoundsException("Index " + position + ", size " + mSize);
+            }
+            return mIndices != null ? mIndices[position] : mFirstWord + position;
+        }
+
+        @Override
+        public synchronized Word get(int position) {
+            int word = getTableIndex(position);
+            if (mViews == null) {
+                mViews = new Word[mSize];
+            }
+            Word view = mViews[position];
+            if (view == null) {
+                view = new WordView(word);
+                mViews[position] = view;
+            }
+            return view;
+        }
+
+        @Override
+        public int size() {
+            return mSize;
+        }
+    }
+
+    /**
+     * {@link Word} reading the row of the table it views. It only holds the row index.
+     */
+    private final class WordView extends Word {
+
+        private final int mWord;
+
+        WordView(int word) {
+            super(null, null, 0);
+            mWord = word;
+        }
+
+        @Override
+        public long getId() {
+            return mIds[mWord];
+        }
+
+        @Override
+        public String getDefaultTranslation() {
+            return WordTable.this.getDefaultTranslation(mWord);
+        }
+
+        @Override
+        public String getFrenchTranslation() {
+            return WordTable.this.getFrenchTranslation(mWord);
+        }
+
+        @Override
+        public int getImageResourceId() {
+            int id = WordTable.this.getImageResourceId(mWord);
+            return id != 0 ? id : super.getImageResourceId();
+        }
+
+        @Override
+        public boolean hasImage() {
+            return WordTable.this.getImageResourceId(mWord) != 0;
+        }
+
+        @Override
+        public int getAudioResourceId() {
+            return WordTable.this.getAudioResourceId(mWord);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.android.miwok;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the grading of typed answers by the {@link AnswerMatcher}, and its Levenshtein
+ * distances against a plain dynamic program.
+ */
+public class AnswerMatcherTest {
+
+    private static final String[] ANSWERS = {"À bientôt!", "Comment tu-t'appelles?", "une",
+            "un", "Je m'appelle Marie et j'habite à Paris depuis dix ans."};
+
+    private final AnswerMatcher mMatcher = new AnswerMatcher(ANSWERS);
+
+    @Test
+    public void caseAccentsAndPunctuationAreIgnored() {
+        assertEquals(AnswerMatcher.CORRECT, mMatcher.grade(0, "a bientot"));
+        assertEquals(AnswerMatcher.CORRECT, mMatcher.grade(0, "  À BIENTÔT  "));
+        assertEquals(AnswerMatcher.CORRECT, mMatcher.grade(1, "comment tu t'appelles"));
+        assertEquals(AnswerMatcher.CORRECT, mMatcher.grade(1, "Comment tu t appelles ?"));
+    }
+
+    @Test
+    public void typosAreToleratedUpToTheAllowedNumber() {
+        for (int word = 0; word < ANSWERS.length; word++) {
+            String answer = mMatcher.getAnswer(word);
+            int allowed = AnswerMatcher.getAllowedTypos(answer.length());
+            if (allowed > 0) {
+                assertEquals(answer, AnswerMatcher.ALMOST,
+                        mMatcher.grade(word, addTypos(answer, allowed)));
+            }
+            assertEquals(answer, AnswerMatcher.WRONG,
+                    mMatcher.grade(word, addTypos(answer, allowed + 1)));
+        }
+    }
+
+    @Test
+    public void shortWordsAllowNoTypo() {
+        assertEquals(AnswerMatcher.WRONG, mMatcher.grade(2, "un"));
+        assertEquals(AnswerMatcher.WRONG, mMatcher.grade(3, "une"));
+        assertEquals(AnswerMatcher.CORRECT, mMatcher.grade(2, "Une"));
+    }
+
+    @Test
+    public void distanceMatchesDynamicProgram() {
+        Random random = new Random(1);
+        //Short answers take the bit-parallel path, those over 64 characters the banded one.
+        for (int i = 0; i < 20000; i++) {
+            String answer = randomText(random, 1 + random.nextInt(i % 2 == 0 ? 64 : 100));
+            String typed = random.nextBoolean() ? randomText(random, random.nextInt(100))
+                    : addRandomEdits(random, answer, random.nextInt(6));
+            int max = random.nextInt(5);
+            int expected = Math.min(getDistance(answer, typed), max + 1);
+            assertEquals(answer + " / " + typed, expected,
+                    mMatcher.getDistance(answer, typed, max));
+        }
+    }
+
+    /**
+     * Return the text with the given number of its letters replaced by one it does not contain,
+     * so that its distance to the text is exactly that number.
+     */
+    private static String addTypos(String text, int count) {
+        char typo = 'a';
+        while (text.indexOf(typo) >= 0) {
+            typo++;
+        }
+        StringBuilder typed = new StringBuilder(text);
+        for (int i = 0, replaced = 0; i < typed.length() && replaced < count; i += 2) {
+            typed.setCharAt(i, typo);
+            replaced++;
+        }
+        return typed.toString();
+    }
+
+    private static String randomText(Random random, int length) {
+        //A small alphabet, so that the texts share letters, with a letter beyond ASCII.
+        String alphabet = "abcde é";
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+
+    private static String addRandomEdits(Random random, String text, int count) {
+        StringBuilder edited = new StringBuilder(text);
+        for (int i = 0; i < count; i++) {
+            int position = random.nextInt(edited.length() + 1);
+            char c = randomText(random, 1).charAt(0);
+            switch (random.nextInt(3)) {
+                case 0:
+                    edited.insert(position, c);
+                    break;
+                case 1:
+                    if (position < edited.length()) {
+                        edited.deleteCharAt(position);
+                    }
+                    break;
+                default:
+                    if (position < edited.length()) {
+                        edited.setCharAt(position, c);
+                    }
+                    break;
+            }
+        }
+        return edited.toString();
+    }
+
+    /**
+     * Return the Levenshtein distance computed with the full dynamic program.
+     */
+    private static int getDistance(String a, String b) {
+        int[][] distances = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            distances[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            distances[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                distances[i][j] = Math.min(distances[i - 1][j - 1] + cost,
+                        Math.min(distances[i - 1][j], distances[i][j - 1]) + 1);
+            }
+        }
+        return distances[a.length()][b.length()];
+    }
+}
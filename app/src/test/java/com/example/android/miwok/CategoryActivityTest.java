@@ -0,0 +1,70 @@
+package com.example.android.miwok;
+
+import android.arch.lifecycle.ViewModelProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that the words of a category are created once per process and then shared by every
+ * visit of the category screen, and that a recreated screen keeps its words and player.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CategoryActivityTest {
+
+    @Test
+    public void reopenedCategoryShowsSameWords() {
+        for (Category category : TestUtils.getCategories()) {
+            ActivityController<CategoryActivity> first = TestUtils.openCategory(category);
+            TestUtils.drawFrame(first.get());
+            List<Word> words = TestUtils.getShownWords(first.get());
+            first.pause().stop().destroy();
+
+            ActivityController<CategoryActivity> second = TestUtils.openCategory(category);
+            TestUtils.drawFrame(second.get());
+            //The same list, whose words were created by the first visit.
+            assertSameWords(words, TestUtils.getShownWords(second.get()));
+            second.pause().stop().destroy();
+        }
+    }
+
+    @Test
+    public void recreatedCategoryKeepsWordsAndPlayer() {
+        for (Category category : TestUtils.getCategories()) {
+            ActivityController<CategoryActivity> controller = TestUtils.openCategory(category);
+            TestUtils.drawFrame(controller.get());
+            List<Word> words = TestUtils.getShownWords(controller.get());
+            CategoryViewModel viewModel = getViewModel(controller.get());
+            WordAudioPlayer player = viewModel.getWordAudioPlayer();
+
+            //As on a rotation.
+            controller.recreate();
+            TestUtils.drawFrame(controller.get());
+            assertSame(viewModel, getViewModel(controller.get()));
+            assertSame(player, viewModel.getWordAudioPlayer());
+            assertSameWords(words, TestUtils.getShownWords(controller.get()));
+            controller.pause().stop().destroy();
+        }
+    }
+
+    private static CategoryViewModel getViewModel(CategoryActivity activity) {
+        return new ViewModelProvider(activity, ViewModelProvider.AndroidViewModelFactory
+                .getInstance(activity.getApplication())).get(CategoryViewModel.class);
+    }
+
+    private static void assertSameWords(List<Word> expected, List<Word> actual) {
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i));
+        }
+    }
+}
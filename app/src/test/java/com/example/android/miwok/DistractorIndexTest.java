@@ -0,0 +1,190 @@
+package com.example.android.miwok;
+
+import com.example.android.miwok.build.LexiconCompiler;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the distractors picked by the {@link DistractorIndex} on a small vocabulary, and that
+ * a stored index is only used for the lexicon it was built from.
+ */
+public class DistractorIndexTest {
+
+    private static final String WORDS = "category,english,french,image,audio\n"
+            + "colors,red,rouge,,\n"
+            + "colors,green,vert,,\n"
+            + "colors,blue,bleu,,\n"
+            + "colors,yellow,jaune,,\n"
+            + "colors,black,noir,,\n"
+            + "colors,white,blanc,,\n"
+            + "colors,brown,marron,,\n"
+            + "colors,grey,gris,,\n"
+            //Reads like the first word once normalized.
+            + "colors,Red!,Rouge !,,\n"
+            + "family,father,père,,\n"
+            + "family,mother,mère,,\n"
+            + "family,son,fils,,\n"
+            + "family,daughter,fille,,\n"
+            + "family,brother,frère,,\n"
+            + "family,sister,sœur,,\n"
+            + "family,grandmother,grand-mère,,\n"
+            + "family,grandfather,grand-père,,\n"
+            //Fewer words than distractors.
+            + "greetings,hello,bonjour,,\n"
+            + "greetings,goodbye,au revoir,,\n"
+            + "greetings,see you soon,à bientôt,,\n";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void distractorsAreOtherAnswersWithoutRepeats() throws IOException {
+        Lexicon lexicon = compile(WORDS);
+        DistractorIndex index = DistractorIndex.build(lexicon);
+        int[] distractors = new int[DistractorIndex.SLOTS];
+        for (int word = 0; word < lexicon.getWordCount(); word++) {
+            for (int direction = DistractorIndex.FRENCH_TO_ENGLISH;
+                    direction <= DistractorIndex.ENGLISH_TO_FRENCH; direction++) {
+                String answer = getAnswer(lexicon, word, direction);
+                int count = index.getDistractors(word, direction, distractors);
+                assertEquals(answer, DistractorIndex.SLOTS, count);
+                Set<String> texts = new HashSet<>();
+                for (int i = 0; i < count; i++) {
+                    assertNotEquals(answer, word, distractors[i]);
+                    String text = getAnswer(lexicon, distractors[i], direction);
+                    assertNotEquals(answer, answer, text);
+                    assertTrue(answer + " twice " + text, texts.add(text));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void smallCategoryIsToppedUpWithOtherWords() throws IOException {
+        Lexicon lexicon = compile(WORDS);
+        DistractorIndex index = DistractorIndex.build(lexicon);
+        int category = lexicon.findCategory("greetings");
+        int first = lexicon.getFirstWord(category);
+        int last = first + lexicon.getCategoryWordCount(category);
+        int[] distractors = new int[DistractorIndex.SLOTS];
+        for (int word = first; word < last; word++) {
+            assertEquals(DistractorIndex.SLOTS, index.getDistractors(word,
+                    DistractorIndex.ENGLISH_TO_FRENCH, distractors));
+            //The other words of the category come first.
+            for (int i = 0; i < DistractorIndex.SLOTS; i++) {
+                boolean inCategory = distractors[i] >= first && distractors[i] < last;
+                assertEquals(i < last - first - 1, inCategory);
+            }
+        }
+    }
+
+    @Test
+    public void storedIndexIsRead() throws IOException {
+        Lexicon lexicon = compile(WORDS);
+        File file = new File(mFolder.getRoot(), "distractors");
+        DistractorIndex built = DistractorIndex.load(file, lexicon);
+        assertTrue(file.exists());
+        assertSameDistractors(built, DistractorIndex.read(file, lexicon.computeChecksum()));
+    }
+
+    @Test
+    public void indexOfAnotherLexiconIsRebuilt() throws IOException {
+        Lexicon previous = compile(WORDS);
+        File file = new File(mFolder.getRoot(), "distractors");
+        DistractorIndex.build(previous).write(file);
+
+        Lexicon lexicon = compile(WORDS + "greetings,good night,bonne nuit,,\n");
+        assertRejected(file, lexicon);
+        DistractorIndex index = DistractorIndex.load(file, lexicon);
+        assertEquals(lexicon.getWordCount(), index.getWordCount());
+        assertSameDistractors(DistractorIndex.build(lexicon), index);
+        //And stored in place of the other one.
+        assertSameDistractors(index, DistractorIndex.read(file, lexicon.computeChecksum()));
+        assertRejected(file, previous);
+    }
+
+    @Test
+    public void truncatedIndexIsRebuilt() throws IOException {
+        Lexicon lexicon = compile(WORDS);
+        File file = new File(mFolder.getRoot(), "distractors");
+        DistractorIndex.build(lexicon).write(file);
+        long length = file.length();
+        RandomAccessFile truncated = new RandomAccessFile(file, "rw");
+        try {
+            truncated.setLength(length - 4);
+        } finally {
+            truncated.close();
+        }
+
+        assertRejected(file, lexicon);
+        assertSameDistractors(DistractorIndex.build(lexicon), DistractorIndex.load(file, lexicon));
+        assertEquals(length, file.length());
+    }
+
+    @Test
+    public void otherFileIsRebuilt() throws IOException {
+        Lexicon lexicon = compile(WORDS);
+        File file = new File(mFolder.getRoot(), "distractors");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write("Not a distractor index".getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+
+        assertRejected(file, lexicon);
+        assertSameDistractors(DistractorIndex.build(lexicon), DistractorIndex.load(file, lexicon));
+    }
+
+    private static Lexicon compile(String csv) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LexiconCompiler.compile(new StringReader(csv), out);
+        return new Lexicon(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    private static String getAnswer(Lexicon lexicon, int word, int direction) {
+        return TextNormalizer.normalize(direction == DistractorIndex.FRENCH_TO_ENGLISH
+                ? lexicon.getDefaultTranslation(word) : lexicon.getFrenchTranslation(word));
+    }
+
+    private static void assertRejected(File file, Lexicon lexicon) {
+        try {
+            DistractorIndex.read(file, lexicon.computeChecksum());
+            fail("Read an index which does not match the lexicon");
+        } catch (IOException expected) {
+        }
+    }
+
+    private static void assertSameDistractors(DistractorIndex expected, DistractorIndex actual) {
+        assertEquals(expected.getWordCount(), actual.getWordCount());
+        int[] expectedDistractors = new int[DistractorIndex.SLOTS];
+        int[] actualDistractors = new int[DistractorIndex.SLOTS];
+        for (int word = 0; word < expected.getWordCount(); word++) {
+            for (int direction = DistractorIndex.FRENCH_TO_ENGLISH;
+                    direction <= DistractorIndex.ENGLISH_TO_FRENCH; direction++) {
+                int count = expected.getDistractors(word, direction, expectedDistractors);
+                assertEquals(count, actual.getDistractors(word, direction, actualDistractors));
+                for (int i = 0; i < count; i++) {
+                    assertEquals(expectedDistractors[i], actualDistractors[i]);
+                }
+            }
+        }
+    }
+}
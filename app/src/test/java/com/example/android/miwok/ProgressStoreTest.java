@@ -0,0 +1,116 @@
+package com.example.android.miwok;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the {@link ProgressStore} replays its journal and snapshot after the process died
+ * while writing them.
+ */
+public class ProgressStoreTest {
+
+    //Size of a journal record, see ProgressStore.
+    private static final int RECORD_BYTES = 28;
+
+    //Number of journal records which are folded into the snapshot.
+    private static final int COMPACT_RECORDS = 16384;
+
+    private static final int WORD_COUNT = 64;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void tornJournalRecordIsDropped() throws IOException {
+        ProgressStore store = open();
+        for (long id = 0; id < 100; id++) {
+            store.recordPlayed(id);
+        }
+        store.close();
+
+        //The process died while writing the last record.
+        File journal = new File(mFolder.getRoot(), "progress.journal");
+        RandomAccessFile file = new RandomAccessFile(journal, "rw");
+        try {
+            file.setLength(file.length() - RECORD_BYTES / 2);
+        } finally {
+            file.close();
+        }
+
+        store = open();
+        for (long id = 0; id < 99; id++) {
+            assertEquals(1, store.getPlayCount(id));
+        }
+        assertEquals(0, store.getPlayCount(99));
+
+        //Records appended after the torn one are read back.
+        store.recordPlayed(99);
+        store.recordPlayed(100);
+        store.close();
+        store = open();
+        for (long id = 0; id <= 100; id++) {
+            assertEquals(1, store.getPlayCount(id));
+        }
+        store.close();
+    }
+
+    @Test
+    public void compactedJournalIsReplayedOnce() throws IOException {
+        File journal = new File(mFolder.getRoot(), "progress.journal");
+        File staleJournal = new File(mFolder.getRoot(), "stale.journal");
+        ProgressStore store = open();
+        play(store, COMPACT_RECORDS / 2);
+        store.flushAndWait();
+        Files.copy(journal.toPath(), staleJournal.toPath());
+        //Folds the journal into the snapshot.
+        play(store, COMPACT_RECORDS / 2);
+        store.flushAndWait();
+        assertTrue(new File(mFolder.getRoot(), "progress.snapshot").exists());
+        assertTrue(journal.length() < staleJournal.length());
+
+        //The snapshot and the journal which followed it.
+        store.recordPlayed(0);
+        store.close();
+        store = open();
+        assertEquals(COMPACT_RECORDS / WORD_COUNT + 1, store.getPlayCount(0));
+        for (long id = 1; id < WORD_COUNT; id++) {
+            assertEquals(COMPACT_RECORDS / WORD_COUNT, store.getPlayCount(id));
+        }
+        store.close();
+
+        //The process died once the snapshot was renamed, before the journal started over.
+        Files.copy(staleJournal.toPath(), journal.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        store = open();
+        for (long id = 0; id < WORD_COUNT; id++) {
+            assertEquals(COMPACT_RECORDS / WORD_COUNT, store.getPlayCount(id));
+        }
+        store.close();
+    }
+
+    /**
+     * Return the store of the folder, once it has been loaded.
+     */
+    private ProgressStore open() throws IOException {
+        ProgressStore store = new ProgressStore(mFolder.getRoot());
+        //Waits for the load, which runs first on the writer.
+        store.flushAndWait();
+        assertTrue(store.isLoaded());
+        return store;
+    }
+
+    private static void play(ProgressStore store, int count) {
+        for (int i = 0; i < count; i++) {
+            store.recordPlayed(i % WORD_COUNT);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.android.miwok;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scores the {@link Mfcc} features of recorded words with the {@link PronunciationScorer}. The
+ * recordings in the test resources are 16kHz mono: word.wav, the same word said slower at a
+ * lower pitch in word_slow.wav, and another word in other_word.wav.
+ */
+public class PronunciationScorerTest {
+
+    //Lowest score of the word said slower.
+    private static final int SLOW_MIN_SCORE = 70;
+
+    @Test
+    public void sameClipScores100() throws IOException {
+        float[] word = extract("word.wav");
+        assertTrue(Mfcc.getFrameCount(word) > 0);
+        assertEquals(100, PronunciationScorer.score(word, word));
+    }
+
+    @Test
+    public void slowerWordScoresWell() throws IOException {
+        float[] word = extract("word.wav");
+        float[] slow = extract("word_slow.wav");
+        assertTrue(Mfcc.getFrameCount(slow) > Mfcc.getFrameCount(word));
+        assertTrue(PronunciationScorer.score(word, slow) >= SLOW_MIN_SCORE);
+        assertTrue(PronunciationScorer.score(slow, word) >= SLOW_MIN_SCORE);
+    }
+
+    @Test
+    public void otherWordScores0() throws IOException {
+        assertEquals(0, PronunciationScorer.score(extract("word.wav"), extract("other_word.wav")));
+    }
+
+    @Test
+    public void noiseScores0() throws IOException {
+        Random random = new Random(1);
+        short[] noise = new short[Mfcc.SAMPLE_RATE];
+        for (int i = 0; i < noise.length; i++) {
+            noise[i] = (short) (3000 * random.nextGaussian());
+        }
+        assertEquals(0, PronunciationScorer.score(extract("word.wav"),
+                Mfcc.extract(noise, noise.length, Mfcc.SAMPLE_RATE)));
+    }
+
+    @Test
+    public void silenceHasNoFeatures() {
+        short[] silence = new short[Mfcc.SAMPLE_RATE];
+        assertEquals(0, Mfcc.extract(silence, silence.length, Mfcc.SAMPLE_RATE).length);
+        assertEquals(0, Mfcc.extract(silence, 0, Mfcc.SAMPLE_RATE).length);
+    }
+
+    @Test
+    public void emptyFeaturesScore0() throws IOException {
+        float[] word = extract("word.wav");
+        float[] empty = new float[0];
+        assertEquals(0, PronunciationScorer.score(word, empty));
+        assertEquals(0, PronunciationScorer.score(empty, word));
+        assertEquals(0, PronunciationScorer.score(empty, empty));
+    }
+
+    @Test
+    public void muchLongerAttemptScores0() throws IOException {
+        float[] word = extract("word.wav");
+        //The same frames repeated, more than 3 times as long.
+        float[] repeated = new float[4 * word.length];
+        for (int i = 0; i < 4; i++) {
+            System.arraycopy(word, 0, repeated, i * word.length, word.length);
+        }
+        assertTrue(Float.isInfinite(PronunciationScorer.getDistance(word, repeated)));
+        assertEquals(0, PronunciationScorer.score(word, repeated));
+        assertEquals(0, PronunciationScorer.score(repeated, word));
+    }
+
+    /**
+     * Return the features of the recording with the given name in the test resources.
+     */
+    private static float[] extract(String name) throws IOException {
+        ByteBuffer wav = ByteBuffer.wrap(readResource(name)).order(ByteOrder.LITTLE_ENDIAN);
+        //RIFF header, then chunks of an id and a size.
+        int sampleRate = 0;
+        int position = 12;
+        while (position + 8 <= wav.limit()) {
+            int id = wav.getInt(position);
+            int size = wav.getInt(position + 4);
+            position += 8;
+            if (id == 0x20746D66) { // "fmt "
+                assertEquals("PCM", 1, wav.getShort(position));
+                assertEquals("mono", 1, wav.getShort(position + 2));
+                sampleRate = wav.getInt(position + 4);
+                assertEquals("16 bit", 16, wav.getShort(position + 14));
+            } else if (id == 0x61746164) { // "data"
+                short[] samples = new short[size / 2];
+                wav.position(position);
+                wav.asShortBuffer().get(samples);
+                return Mfcc.extract(samples, samples.length, sampleRate);
+            }
+            position += size + (size & 1);
+        }
+        throw new IOException("No samples in " + name);
+    }
+
+    private static byte[] readResource(String name) throws IOException {
+        InputStream in = PronunciationScorerTest.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("Missing " + name);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.android.miwok;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that loading the {@link ReviewStore} sees every card updated before, whether it is
+ * still buffered or its batch is still being written.
+ */
+public class ReviewStoreTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void loadSeesBufferedCards() throws IOException {
+        File file = new File(mFolder.getRoot(), "reviews");
+        ReviewStore store = new ReviewStore(file);
+        for (int id = 0; id < 5; id++) {
+            store.update(createCard(id, 1));
+        }
+        assertCards(store.load(), 5, 1);
+        //And they were written.
+        assertCards(new ReviewStore(file).load(), 5, 1);
+    }
+
+    @Test
+    public void loadSeesFlushedBatches() throws IOException {
+        File file = new File(mFolder.getRoot(), "reviews");
+        ReviewStore store = new ReviewStore(file);
+        //Several batches, each card twice, the last update wins.
+        for (int review = 1; review <= 2; review++) {
+            for (int id = 0; id < 100; id++) {
+                store.update(createCard(id, review));
+            }
+            store.flush();
+        }
+        assertCards(store.load(), 100, 2);
+    }
+
+    private static ReviewCard createCard(long wordId, int reviewCount) {
+        ReviewCard card = new ReviewCard(wordId);
+        card.mRepetitions = reviewCount;
+        card.mIntervalDays = 6;
+        card.mDueMillis = 1000 * wordId;
+        card.mReviewCount = reviewCount;
+        return card;
+    }
+
+    private static void assertCards(Map<Long, ReviewCard> cards, int count, int reviewCount) {
+        assertEquals(count, cards.size());
+        for (long id = 0; id < count; id++) {
+            ReviewCard card = cards.get(id);
+            assertEquals(reviewCount, card.mReviewCount);
+            assertEquals(reviewCount, card.mRepetitions);
+            assertEquals(6, card.mIntervalDays);
+            assertEquals(1000 * id, card.mDueMillis);
+        }
+    }
+}
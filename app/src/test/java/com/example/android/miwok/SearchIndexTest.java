@@ -0,0 +1,76 @@
+package com.example.android.miwok;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the words found by the {@link SearchIndex}, and their order.
+ */
+public class SearchIndexTest {
+
+    private static final String[] ENGLISH = {"mother", "Where are you going?", "My name is...",
+            "See you soon!", "brother", "red"};
+    private static final String[] FRENCH = {"mère", "Où allez-vous?", "Je m'appelle...",
+            "À bientôt!", "frère", "rouge"};
+
+    private final SearchIndex mIndex = new SearchIndex(ENGLISH, FRENCH);
+
+    @Test
+    public void prefixOfATranslationMatches() {
+        assertResults("rouge", 5);
+        assertResults("a bient", 3);
+        assertResults("Where are", 1);
+    }
+
+    @Test
+    public void laterWordsOfATranslationMatch() {
+        assertResults("bient", 3);
+        assertResults("allez", 1);
+        assertResults("appel", 2);
+        //Only from the start of a word.
+        assertResults("ient");
+        assertResults("other");
+    }
+
+    @Test
+    public void queryIgnoresAccentsCaseAndPunctuation() {
+        assertResults("ou", 1);
+        assertResults("OÙ", 1);
+        assertResults("a bientôt!", 3);
+        assertResults("MERE", 0);
+        assertResults("allez-vous", 1);
+    }
+
+    @Test
+    public void emptyQueryMatchesNothing() {
+        assertResults("");
+        assertResults("  ?! ");
+    }
+
+    @Test
+    public void resultsAreInTheOrderOfTheMatchedText() {
+        //"m appelle", "mere", "mother" then "my name is", each word once.
+        assertResults("m", 2, 0);
+        //"you going" then "you soon".
+        assertResults("you", 1, 3);
+        //The same results for the same query.
+        assertResults("m", 2, 0);
+    }
+
+    @Test
+    public void resultsAreLimitedToTheArray() {
+        int[] results = new int[1];
+        assertEquals(1, mIndex.search("m", results));
+        assertEquals(2, results[0]);
+    }
+
+    private void assertResults(String query, int... expected) {
+        int[] results = new int[mIndex.getWordCount()];
+        int count = mIndex.search(query, results);
+        assertArrayEquals(query, expected, Arrays.copyOf(results, count));
+    }
+}
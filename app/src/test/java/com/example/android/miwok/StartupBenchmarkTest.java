@@ -0,0 +1,61 @@
+package com.example.android.miwok;
+
+import android.app.Activity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures the time from the creation of the main screen and of every category screen to
+ * their first frame, as recorded by {@link FirstFrame}. Robolectric does not load classes or
+ * resources like a device does, so the screens are opened once before being measured, and
+ * the budgets catch a screen doing far more work before its first frame than it should.
+ * They are checked with -PcheckBudgets, see {@link TestUtils#assertWithinBudget}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StartupBenchmarkTest {
+
+    private static final long MAIN_BUDGET_MICROS = 1000000;
+    private static final long CATEGORY_BUDGET_MICROS = 1000000;
+
+    @Test
+    public void screensDrawFirstFrameWithinBudget() {
+        //Warm up.
+        open(TestUtils.openMain());
+        for (Category category : TestUtils.getCategories()) {
+            open(TestUtils.openCategory(category));
+        }
+
+        Metrics.reset();
+        open(TestUtils.openMain());
+        assertFirstFrame("main", Metrics.MAIN_FIRST_FRAME, MAIN_BUDGET_MICROS);
+
+        for (Category category : TestUtils.getCategories()) {
+            Metrics.CATEGORY_FIRST_FRAME.reset();
+            open(TestUtils.openCategory(category));
+            assertFirstFrame(category.getKey(), Metrics.CATEGORY_FIRST_FRAME,
+                    CATEGORY_BUDGET_MICROS);
+        }
+    }
+
+    /**
+     * Draw the first frame of the opened screen, then close it.
+     */
+    private static void open(ActivityController<? extends Activity> controller) {
+        TestUtils.drawFrame(controller.get());
+        controller.pause().stop().destroy();
+    }
+
+    /**
+     * Check that the screen recorded exactly one first frame, within the budget.
+     */
+    private static void assertFirstFrame(String label, LatencyHistogram histogram,
+                                         long budgetMicros) {
+        assertEquals(label + " " + histogram.getName(), 1, histogram.getCount());
+        TestUtils.assertWithinBudget(label, histogram, 100, budgetMicros);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.android.miwok;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.support.v7.widget.RecyclerView;
+
+import org.robolectric.Robolectric;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Opens the screens of the app under Robolectric, whose main looper does not draw frames by
+ * itself.
+ */
+final class TestUtils {
+
+    //Set by -PcheckBudgets, see app/build.gradle.
+    private static final boolean CHECK_BUDGETS = Boolean.getBoolean("miwok.checkBudgets");
+
+    private TestUtils() {
+    }
+
+    /**
+     * Return the built-in categories, in the order of the lexicon.
+     */
+    static List<Category> getCategories() {
+        Lexicon lexicon = WordRepository.getInstance(RuntimeEnvironment.application).getLexicon();
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < lexicon.getCategoryCount(); i++) {
+            Category category = Category.fromKey(lexicon.getCategoryKey(i));
+            if (category != null) {
+                categories.add(category);
+            }
+        }
+        return categories;
+    }
+
+    /**
+     * Create, start and resume the main screen, without drawing it.
+     */
+    static ActivityController<MainActivity> openMain() {
+        return Robolectric.buildActivity(MainActivity.class).setup();
+    }
+
+    /**
+     * Create, start and resume the screen of the given category, without drawing it.
+     */
+    static ActivityController<CategoryActivity> openCategory(Category category) {
+        Intent intent = new Intent(RuntimeEnvironment.application, CategoryActivity.class);
+        intent.putExtra(CategoryActivity.EXTRA_CATEGORY, category.getKey());
+        return Robolectric.buildActivity(CategoryActivity.class, intent).setup();
+    }
+
+    /**
+     * Draw a frame of the activity, running what is posted to the main thread before and
+     * after, like the work deferred by {@link FirstFrame}.
+     */
+    static void drawFrame(Activity activity) {
+        ShadowLooper.idleMainLooper();
+        activity.getWindow().getDecorView().getViewTreeObserver().dispatchOnPreDraw();
+        ShadowLooper.idleMainLooper();
+    }
+
+    /**
+     * Print the given percentile of the histogram and fail if it reaches the budget, when
+     * budgets are checked. Otherwise does nothing, as wall-clock times are only comparable
+     * on an idle machine.
+     */
+    static void assertWithinBudget(String label, LatencyHistogram histogram, double percentile,
+                                   long budgetMicros) {
+        if (!CHECK_BUDGETS) {
+            return;
+        }
+        long micros = histogram.getPercentile(percentile);
+        String report = label + " " + histogram.getName() + " p" + percentile + ": " + micros
+                + "us, budget " + budgetMicros + "us";
+        System.out.println(report);
+        assertTrue(report, micros < budgetMicros);
+    }
+
+    /**
+     * Return the words shown by the list of a category screen.
+     */
+    static List<Word> getShownWords(CategoryActivity activity) {
+        RecyclerView list = (RecyclerView) activity.findViewById(R.id.list);
+        WordAdapter adapter = (WordAdapter) list.getAdapter();
+        List<Word> words = new ArrayList<>();
+        for (int i = 0; adapter != null && i < adapter.getItemCount(); i++) {
+            words.add(adapter.getItem(i));
+        }
+        return words;
+    }
+}
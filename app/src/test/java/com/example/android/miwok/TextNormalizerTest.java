@@ -0,0 +1,32 @@
+package com.example.android.miwok;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the normalized forms the {@link TextNormalizer} gives to the translations.
+ */
+public class TextNormalizerTest {
+
+    @Test
+    public void accentsAndCaseAreRemoved() {
+        assertEquals("a bientot", TextNormalizer.normalize("À bientôt!"));
+        assertEquals("ete", TextNormalizer.normalize("ÉTÉ"));
+        assertEquals("francais", TextNormalizer.normalize("Français"));
+    }
+
+    @Test
+    public void punctuationBecomesSingleSpaces() {
+        assertEquals("comment tu t appelles", TextNormalizer.normalize("Comment tu-t'appelles?"));
+        assertEquals("ou allez vous", TextNormalizer.normalize("  Où   allez-vous ?! "));
+        assertEquals("", TextNormalizer.normalize(" ?! "));
+        assertEquals("", TextNormalizer.normalize(""));
+    }
+
+    @Test
+    public void ligaturesAreExpanded() {
+        assertEquals("oeuf", TextNormalizer.normalize("Œuf"));
+        assertEquals("soeur", TextNormalizer.normalize("sœur"));
+    }
+}
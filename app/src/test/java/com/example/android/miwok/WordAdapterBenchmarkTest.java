@@ -0,0 +1,62 @@
+package com.example.android.miwok;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures the creation and binding of the rows of the word lists, on the rows the category
+ * screens really inflate. Robolectric runs the views on the JVM, so the times only compare
+ * versions of the adapter, the budgets catch a row which does far more work than it should.
+ * They are checked with -PcheckBudgets, see {@link TestUtils#assertWithinBudget}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WordAdapterBenchmarkTest {
+
+    private static final int WARM_UP_ROUNDS = 20;
+    private static final int ROUNDS = 200;
+
+    //Median budgets, in microseconds.
+    private static final long CREATE_BUDGET_MICROS = 20000;
+    private static final long BIND_BUDGET_MICROS = 1000;
+
+    @Test
+    public void rowsAreCreatedAndBoundWithinBudget() {
+        LatencyHistogram create = new LatencyHistogram("row_create");
+        for (Category category : TestUtils.getCategories()) {
+            ActivityController<CategoryActivity> controller = TestUtils.openCategory(category);
+            TestUtils.drawFrame(controller.get());
+            RecyclerView list = (RecyclerView) controller.get().findViewById(R.id.list);
+            WordAdapter adapter = (WordAdapter) list.getAdapter();
+            int count = adapter.getItemCount();
+
+            WordAdapter.ViewHolder holder = null;
+            for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+                holder = adapter.onCreateViewHolder(list, 0);
+                adapter.onBindViewHolder(holder, i % count);
+            }
+            //Only the binds of the measured rounds are recorded.
+            Metrics.ROW_BIND.reset();
+            for (int i = 0; i < ROUNDS; i++) {
+                long startNanos = System.nanoTime();
+                holder = adapter.onCreateViewHolder(list, 0);
+                create.recordSince(startNanos);
+            }
+            for (int i = 0; i < ROUNDS; i++) {
+                adapter.onBindViewHolder(holder, i % count);
+            }
+            //Every bind is recorded.
+            assertEquals(ROUNDS, Metrics.ROW_BIND.getCount());
+            TestUtils.assertWithinBudget(category.getKey(), create, 50, CREATE_BUDGET_MICROS);
+            TestUtils.assertWithinBudget(category.getKey(), Metrics.ROW_BIND, 50,
+                    BIND_BUDGET_MICROS);
+            create.reset();
+            controller.pause().stop().destroy();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.media.SoundPool;
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowSoundPool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the time from a tap on a word to its sound being started, through the command queue
+ * of the {@link WordAudioPlayer} and its player thread. The player thread really runs, only the
+ * decoding of the {@link SoundPool} is replaced, see {@link ShadowDecodingSoundPool}. The
+ * budgets are checked with -PcheckBudgets, see {@link TestUtils#assertWithinBudget}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+@Config(shadows = WordAudioPlayerBenchmarkTest.ShadowDecodingSoundPool.class)
+public class WordAudioPlayerBenchmarkTest {
+
+    private static final int ROUNDS = 200;
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    //p90 budgets, in microseconds.
+    private static final long DECODED_BUDGET_MICROS = 20000;
+    private static final long NOT_DECODED_BUDGET_MICROS = 50000;
+
+    @Test
+    public void tappedWordsStartWithinBudget() throws InterruptedException {
+        Context context = RuntimeEnvironment.application;
+        List<Word> words = new ArrayList<>();
+        for (Category category : TestUtils.getCategories()) {
+            words.addAll(WordRepository.getInstance(context).getWords(category));
+        }
+        //Keeps every word decoded once it has been played.
+        WordAudioPlayer player = new WordAudioPlayer(context, Integer.MAX_VALUE);
+        Metrics.reset();
+
+        //The first tap on each word waits for it to be decoded.
+        for (int i = 0; i < words.size(); i++) {
+            player.play(words.get(i));
+            awaitCount(Metrics.TAP_TO_SOUND, i + 1);
+        }
+        //Each of them waited for its clip.
+        assertEquals(words.size(), Metrics.DECODE_WAIT.getCount());
+        TestUtils.assertWithinBudget("not decoded", Metrics.TAP_TO_SOUND, 90,
+                NOT_DECODED_BUDGET_MICROS);
+
+        Metrics.reset();
+        for (int i = 0; i < ROUNDS; i++) {
+            player.play(words.get(i % words.size()));
+            awaitCount(Metrics.TAP_TO_SOUND, i + 1);
+        }
+        player.release();
+        TestUtils.assertWithinBudget("decoded", Metrics.TAP_TO_SOUND, 90, DECODED_BUDGET_MICROS);
+    }
+
+    /**
+     * Wait until the player thread has recorded the given number of latencies, so that each
+     * tap is measured on its own.
+     */
+    private static void awaitCount(LatencyHistogram histogram, long count)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (histogram.getCount() < count) {
+            assertTrue("Timed out waiting for " + histogram.getName(),
+                    System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * A {@link SoundPool} which decodes instantly. Like the real one, it reports the loaded
+     * sounds on the thread which registered the listener, here the player thread.
+     */
+    @Implements(SoundPool.class)
+    public static class ShadowDecodingSoundPool extends ShadowSoundPool {
+
+        private Handler mHandler;
+
+        @Override
+        @Implementation
+        protected void setOnLoadCompleteListener(SoundPool.OnLoadCompleteListener listener) {
+            super.setOnLoadCompleteListener(listener);
+            Looper looper = Looper.myLooper();
+            mHandler = new Handler(looper != null ? looper : Looper.getMainLooper());
+        }
+
+        @Override
+        @Implementation
+        protected int load(Context context, final int resId, int priority) {
+            int soundId = super.load(context, resId, priority);
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    notifyResourceLoaded(resId, true);
+                }
+            });
+            return soundId;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.media.SoundPool;
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowSoundPool;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that listening goes on past words whose clip the {@link SoundPool} fails to decode.
+ * The player thread really runs, the pool is replaced by {@link ShadowFailingSoundPool}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+@Config(shadows = WordAudioPlayerTest.ShadowFailingSoundPool.class)
+public class WordAudioPlayerTest {
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private WordAudioPlayer mPlayer;
+
+    @After
+    public void tearDown() {
+        if (mPlayer != null) {
+            mPlayer.release();
+        }
+        ShadowFailingSoundPool.sFailingResIds.clear();
+    }
+
+    @Test
+    public void failedWordIsSkipped() throws InterruptedException {
+        mPlayer = new WordAudioPlayer(RuntimeEnvironment.application);
+        List<Word> words = getRecordedWords(2);
+        ShadowFailingSoundPool.sFailingResIds.add(mPlayer.getAudioId(words.get(0)));
+
+        RecordingListener listener = new RecordingListener();
+        mPlayer.listen(words, 0, listener);
+        while (listener.mPositions.isEmpty()) {
+            await(listener);
+        }
+        assertEquals(Collections.singletonList(1), listener.mPositions);
+
+        mPlayer.stop();
+        while (!listener.mFinished) {
+            await(listener);
+        }
+    }
+
+    @Test
+    public void listeningFinishesWhenEveryWordFails() throws InterruptedException {
+        mPlayer = new WordAudioPlayer(RuntimeEnvironment.application);
+        List<Word> words = getRecordedWords(3);
+        for (Word word : words) {
+            ShadowFailingSoundPool.sFailingResIds.add(mPlayer.getAudioId(word));
+        }
+
+        RecordingListener listener = new RecordingListener();
+        mPlayer.listen(words, 0, listener);
+        while (!listener.mFinished) {
+            await(listener);
+        }
+        assertTrue(listener.mPositions.isEmpty());
+        assertFalse(mPlayer.isListening());
+    }
+
+    /**
+     * Return the given number of words with recorded clips, each with a clip of its own.
+     */
+    private List<Word> getRecordedWords(int count) {
+        Context context = RuntimeEnvironment.application;
+        List<Word> words = new ArrayList<>();
+        Set<Integer> audioIds = new HashSet<>();
+        for (Category category : TestUtils.getCategories()) {
+            for (Word word : WordRepository.getInstance(context).getWords(category)) {
+                int audioId = mPlayer.getAudioId(word);
+                if (words.size() < count && audioId > 0 && audioIds.add(audioId)) {
+                    words.add(word);
+                }
+            }
+        }
+        assertEquals(count, words.size());
+        return words;
+    }
+
+    /**
+     * Run what the player posted to the UI thread, failing once the test has run too long.
+     */
+    private static void await(RecordingListener listener) throws InterruptedException {
+        assertTrue("Timed out listening",
+                System.currentTimeMillis() < listener.mStartMillis + TIMEOUT_MILLIS);
+        Thread.sleep(1);
+        ShadowLooper.idleMainLooper();
+    }
+
+    private static final class RecordingListener implements WordAudioPlayer.ListenListener {
+        final long mStartMillis = System.currentTimeMillis();
+        final List<Integer> mPositions = new ArrayList<>();
+        boolean mFinished;
+
+        @Override
+        public void onListenWord(int position) {
+            mPositions.add(position);
+        }
+
+        @Override
+        public void onListenFinished() {
+            mFinished = true;
+        }
+    }
+
+    /**
+     * A {@link SoundPool} which decodes instantly, except the clips in
+     * {@link #sFailingResIds}, which it fails to decode. Like the real one, it reports the
+     * loaded sounds on the thread which registered the listener, here the player thread.
+     */
+    @Implements(SoundPool.class)
+    public static class ShadowFailingSoundPool extends ShadowSoundPool {
+
+        static final Set<Integer> sFailingResIds =
+                Collections.synchronizedSet(new HashSet<Integer>());
+
+        private Handler mHandler;
+
+        @Override
+        @Implementation
+        protected void setOnLoadCompleteListener(SoundPool.OnLoadCompleteListener listener) {
+            super.setOnLoadCompleteListener(listener);
+            Looper looper = Looper.myLooper();
+            mHandler = new Handler(looper != null ? looper : Looper.getMainLooper());
+        }
+
+        @Override
+        @Implementation
+        protected int load(Context context, final int resId, int priority) {
+            int soundId = super.load(context, resId, priority);
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    notifyResourceLoaded(resId, !sFailingResIds.contains(resId));
+                }
+            });
+            return soundId;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.android.miwok;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of grading a typed answer with the {@link AnswerMatcher}, for a word, a phrase and a
+ * phrase too long for the bit-parallel algorithm, and of normalizing the answers of a lexicon.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AnswerMatcherBenchmark {
+
+    private static final String[] ANSWERS = {"rouge", "Comment tu-t'appelles?",
+            "Je m'appelle Marie, j'habite à Paris depuis trois ans et j'apprends l'anglais."};
+
+    //Answers as typed: exact but for accents and punctuation, with typos, and wrong.
+    private static final String[][] TYPED = {
+            {"Rouge", "roueg", "bleu"},
+            {"comment tu t'appelles", "coment tu tapelles", "ou vas tu"},
+            {"je m appelle marie j habite a paris depuis trois ans et j apprends l anglais",
+                    "je mapelle marie jhabite a pari depuis trois ans et japprends l anglais",
+                    "il fait beau aujourd'hui, allons nous promener dans le parc"}};
+
+    private AnswerMatcher mAnswerMatcher;
+    private Lexicon mLexicon;
+
+    @Setup
+    public void setUp() throws IOException {
+        mAnswerMatcher = new AnswerMatcher(ANSWERS);
+        mLexicon = BenchmarkData.createLexicon(10000);
+    }
+
+    @Benchmark
+    public int grade(Answer answer) {
+        return mAnswerMatcher.grade(answer.answer, TYPED[answer.answer][answer.typed]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public AnswerMatcher createMatcher() {
+        return AnswerMatcher.fromLexicon(mLexicon);
+    }
+
+    /**
+     * Answer graded, so that only {@link #grade(Answer)} runs for every combination.
+     */
+    @State(Scope.Benchmark)
+    public static class Answer {
+        @Param({"0", "1", "2"})
+        public int answer;
+
+        @Param({"0", "1", "2"})
+        public int typed;
+    }
+}
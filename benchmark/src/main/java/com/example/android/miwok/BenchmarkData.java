@@ -0,0 +1,120 @@
+package com.example.android.miwok;
+
+import com.example.android.miwok.build.LexiconCompiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Generates the vocabularies the benchmarks run on.
+ */
+final class BenchmarkData {
+
+    //Words of the generated translations, with accents like the real vocabulary.
+    private static final String[] ENGLISH = {"red", "little", "mother", "where", "going",
+            "come", "name", "yellow", "brother", "evening"};
+    private static final String[] FRENCH = {"rouge", "petit", "mère", "où", "allez",
+            "venez", "nom", "jaune", "frère", "soirée"};
+
+    //Sounds of the generated spoken word: the three formants in Hz and a part of its length,
+    //the sound with formants above 2kHz is a fricative, the others vowels.
+    private static final int[][] SOUNDS = {{700, 1200, 2600, 30}, {300, 2300, 3000, 25},
+            {2500, 4500, 6000, 15}, {500, 900, 2500, 30}};
+
+    //Silence before and after the generated spoken word.
+    private static final int PAUSE_MILLIS = 300;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Synthesize a recording of a word of the given length at the given pitch, a pulse train
+     * through formant resonators, with a pause on both sides and some background noise.
+     */
+    static short[] createSpokenWord(int millis, int pitch, int sampleRate) {
+        Random random = new Random(millis + pitch);
+        int pause = PAUSE_MILLIS * sampleRate / 1000;
+        double[] signal = new double[millis * sampleRate / 1000 + 2 * pause];
+        double[] previous = new double[3];
+        double[] beforePrevious = new double[3];
+        double phase = 0;
+        int position = pause;
+        for (int[] sound : SOUNDS) {
+            int length = (int) ((long) sound[3] * millis * sampleRate / 100000);
+            for (int i = 0; i < length; i++, position++) {
+                double value;
+                if (sound[0] > 2000) {
+                    value = 0.3 * random.nextGaussian();
+                } else {
+                    phase += (double) pitch / sampleRate;
+                    value = phase >= 1 ? 1 : 0;
+                    phase -= Math.floor(phase);
+                }
+                for (int formant = 0; formant < 3; formant++) {
+                    double bandwidth = 80 + 0.05 * sound[formant];
+                    double radius = Math.exp(-Math.PI * bandwidth / sampleRate);
+                    double output = value + 2 * radius
+                            * Math.cos(2 * Math.PI * sound[formant] / sampleRate)
+                            * previous[formant] - radius * radius * beforePrevious[formant];
+                    beforePrevious[formant] = previous[formant];
+                    previous[formant] = output;
+                    value = output * (1 - radius);
+                }
+                signal[position] = value;
+            }
+        }
+        double peak = 0;
+        for (double value : signal) {
+            peak = Math.max(peak, Math.abs(value));
+        }
+        short[] samples = new short[signal.length];
+        for (int i = 0; i < samples.length; i++) {
+            double value = 0.5 * signal[i] / peak + 0.003 * random.nextGaussian();
+            samples[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE,
+                    Math.round(value * Short.MAX_VALUE)));
+        }
+        return samples;
+    }
+
+    /**
+     * Return the English translation of the generated word at the given index.
+     */
+    static String getDefaultTranslation(int word) {
+        return ENGLISH[word % ENGLISH.length] + " " + ENGLISH[(word / 10) % ENGLISH.length]
+                + " " + word;
+    }
+
+    /**
+     * Return the French translation of the generated word at the given index.
+     */
+    static String getFrenchTranslation(int word) {
+        return FRENCH[word % FRENCH.length] + " " + FRENCH[(word / 10) % FRENCH.length]
+                + " " + word;
+    }
+
+    /**
+     * Compile a lexicon of the given number of words in 20 categories. The words have no image
+     * or audio files, as resolving those needs the resources of the app.
+     */
+    static Lexicon createLexicon(int wordCount) throws IOException {
+        return new Lexicon(createLexiconBuffer(wordCount));
+    }
+
+    /**
+     * Compile a lexicon like {@link #createLexicon(int)} and return the lexicon file.
+     */
+    static ByteBuffer createLexiconBuffer(int wordCount) throws IOException {
+        StringBuilder csv = new StringBuilder("category,english,french,image,audio\n");
+        for (int i = 0; i < wordCount; i++) {
+            csv.append("category").append(i % 20).append(',')
+                    .append(getDefaultTranslation(i)).append(',')
+                    .append(getFrenchTranslation(i)).append(",,\n");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LexiconCompiler.compile(new StringReader(csv.toString()), out);
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.android.miwok;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the data a category screen needs for its first rows after a cold start: opening the
+ * lexicon, loading the word table and reading the first screen of words. Each invocation is
+ * measured once, without warmup, as on a freshly started process.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 20)
+public class ColdStartBenchmark {
+
+    //Rows shown on the first screen of a category.
+    private static final int FIRST_SCREEN_ROWS = 10;
+
+    @Param({"1000", "10000", "100000"})
+    public int wordCount;
+
+    private ByteBuffer mLexiconBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        mLexiconBytes = BenchmarkData.createLexiconBuffer(wordCount);
+    }
+
+    @Benchmark
+    public void openCategory(Blackhole blackhole) throws IOException {
+        Lexicon lexicon = new Lexicon(mLexiconBytes.duplicate());
+        WordTable table = new WordTable(lexicon, null, null);
+        int category = lexicon.findCategory("category0");
+        List<Word> words = table.subList(lexicon.getFirstWord(category),
+                lexicon.getCategoryWordCount(category));
+        for (int i = 0; i < FIRST_SCREEN_ROWS && i < words.size(); i++) {
+            Word word = words.get(i);
+            blackhole.consume(word.getFrenchTranslation());
+            blackhole.consume(word.getDefaultTranslation());
+        }
+    }
+}
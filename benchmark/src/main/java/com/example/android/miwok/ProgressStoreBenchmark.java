@@ -0,0 +1,101 @@
+package com.example.android.miwok;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording progress events in the {@link ProgressStore} until they are in the journal,
+ * and of loading the progress when the app starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProgressStoreBenchmark {
+
+    //Events recorded per invocation of {@link #recordAndFlush()}.
+    private static final int EVENTS = 1000;
+
+    //Number of events in the journal loaded by {@link #load()}.
+    @Param({"1000", "10000"})
+    public int journalEvents;
+
+    private File mRecordDirectory;
+    private File mLoadDirectory;
+    private ProgressStore mStore;
+    private long mWordId;
+
+    @Setup
+    public void setUp() throws IOException {
+        mRecordDirectory = Files.createTempDirectory("progress").toFile();
+        mLoadDirectory = Files.createTempDirectory("progress").toFile();
+        ProgressStore store = new ProgressStore(mLoadDirectory);
+        store.beginSession();
+        for (int i = 0; i < journalEvents; i++) {
+            store.recordPlayed(1 + i % 500);
+        }
+        store.endSession();
+        store.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void openStore() {
+        mStore = new ProgressStore(mRecordDirectory);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeStore() throws IOException {
+        mStore.close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (File directory : new File[] {mRecordDirectory, mLoadDirectory}) {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    /**
+     * Record events and wait until they are in the journal, compactions included.
+     */
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void recordAndFlush() throws IOException {
+        for (int i = 0; i < EVENTS; i++) {
+            mStore.recordPlayed(1 + mWordId++ % 500);
+        }
+        mStore.flushAndWait();
+    }
+
+    /**
+     * Record an event, which only buffers it.
+     */
+    @Benchmark
+    public void record() {
+        mStore.recordPlayed(1 + mWordId++ % 500);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int load() throws IOException {
+        ProgressStore store = new ProgressStore(mLoadDirectory);
+        store.close();
+        return store.getPlayCount(1);
+    }
+}
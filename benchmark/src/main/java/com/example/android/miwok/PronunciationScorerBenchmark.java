@@ -0,0 +1,58 @@
+package com.example.android.miwok;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of scoring a spoken word with the {@link PronunciationScorer}: extracting the
+ * {@link Mfcc} features of the attempt, recorded at 16kHz or 44.1kHz, and aligning them with
+ * those of a one second reference clip. The app has 100ms to score an attempt on a phone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PronunciationScorerBenchmark {
+
+    //Length of the word in the attempt, said faster or slower than in the reference.
+    @Param({"700", "1000", "2000"})
+    public int attemptMillis;
+
+    @Param({"16000", "44100"})
+    public int sampleRate;
+
+    private float[] mReference;
+    private short[] mAttempt;
+    private float[] mAttemptFeatures;
+
+    @Setup
+    public void setUp() {
+        short[] reference = BenchmarkData.createSpokenWord(1000, 120, 22050);
+        mReference = Mfcc.extract(reference, reference.length, 22050);
+        mAttempt = BenchmarkData.createSpokenWord(attemptMillis, 180, sampleRate);
+        mAttemptFeatures = Mfcc.extract(mAttempt, mAttempt.length, sampleRate);
+    }
+
+    @Benchmark
+    public float[] extract() {
+        return Mfcc.extract(mAttempt, mAttempt.length, sampleRate);
+    }
+
+    @Benchmark
+    public float align() {
+        return PronunciationScorer.getDistance(mReference, mAttemptFeatures);
+    }
+
+    @Benchmark
+    public int score() {
+        return PronunciationScorer.score(mReference,
+                Mfcc.extract(mAttempt, mAttempt.length, sampleRate));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.android.miwok;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of generating a {@link Quiz} question from the {@link DistractorIndex}, compared with
+ * sampling random words until they look like the answer, and of building and reading the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QuizBenchmark {
+
+    //Tries of the sampling baseline before it settles for any word.
+    private static final int MAX_TRIES = 50;
+
+    @Param({"1000", "10000", "100000"})
+    public int wordCount;
+
+    private Lexicon mLexicon;
+    private DistractorIndex mIndex;
+    private Quiz mQuiz;
+    private File mIndexFile;
+    private final Random mRandom = new Random(42);
+
+    @Setup
+    public void setUp() throws IOException {
+        mLexicon = BenchmarkData.createLexicon(wordCount);
+        mIndex = DistractorIndex.build(mLexicon);
+        mQuiz = new Quiz(mIndex, 0, wordCount, new Random(42));
+        mIndexFile = File.createTempFile("distractors", ".idx");
+        mIndex.write(mIndexFile);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mIndexFile.delete();
+    }
+
+    @Benchmark
+    public Quiz.Question nextQuestion() {
+        return mQuiz.next();
+    }
+
+    /**
+     * Pick three distractors of the same category, of a similar length and starting with the
+     * same letter, by sampling random words and retrying.
+     */
+    @Benchmark
+    public int[] sampleQuestion() {
+        int word = mRandom.nextInt(wordCount);
+        String answer = TextNormalizer.normalize(mLexicon.getDefaultTranslation(word));
+        int category = 0;
+        while (mLexicon.getFirstWord(category) + mLexicon.getCategoryWordCount(category) <= word) {
+            category++;
+        }
+        int first = mLexicon.getFirstWord(category);
+        int count = mLexicon.getCategoryWordCount(category);
+        int[] choices = new int[Quiz.CHOICE_COUNT];
+        choices[0] = word;
+        for (int choice = 1; choice < choices.length; choice++) {
+            for (int tries = 0; ; tries++) {
+                int candidate = first + mRandom.nextInt(count);
+                String text = TextNormalizer.normalize(mLexicon.getDefaultTranslation(candidate));
+                boolean alike = Math.abs(text.length() - answer.length()) <= 2
+                        && text.charAt(0) == answer.charAt(0) && !text.equals(answer);
+                if (alike || tries == MAX_TRIES) {
+                    choices[choice] = candidate;
+                    break;
+                }
+            }
+        }
+        return choices;
+    }
+
+    @Benchmark
+    public DistractorIndex buildIndex() {
+        return DistractorIndex.build(mLexicon);
+    }
+
+    @Benchmark
+    public DistractorIndex readIndex() throws IOException {
+        return DistractorIndex.read(mIndexFile, mLexicon.computeChecksum());
+    }
+}
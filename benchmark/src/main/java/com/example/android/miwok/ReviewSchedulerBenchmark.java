@@ -0,0 +1,59 @@
+package com.example.android.miwok;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of picking the next due card and rescheduling it in the {@link ReviewScheduler}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReviewSchedulerBenchmark {
+
+    private static final int[] GRADES = {ReviewScheduler.GRADE_GOOD, ReviewScheduler.GRADE_EASY,
+            ReviewScheduler.GRADE_HARD, ReviewScheduler.GRADE_GOOD, ReviewScheduler.GRADE_AGAIN};
+
+    @Param({"1000", "10000", "100000"})
+    public int cardCount;
+
+    private List<ReviewCard> mCards;
+    private ReviewScheduler mScheduler;
+    private long mNowMillis;
+    private int mReviewCount;
+
+    @Setup
+    public void setUp() {
+        mCards = new ArrayList<>(cardCount);
+        for (int i = 0; i < cardCount; i++) {
+            ReviewCard card = new ReviewCard(i + 1);
+            card.mWordIndex = i;
+            mCards.add(card);
+        }
+        mScheduler = new ReviewScheduler(mCards);
+    }
+
+    @Benchmark
+    public ReviewScheduler createScheduler() {
+        return new ReviewScheduler(mCards);
+    }
+
+    @Benchmark
+    public ReviewCard review() {
+        //Every card is eventually due, so reviews never run out.
+        ReviewCard card = mScheduler.next(Long.MAX_VALUE);
+        mNowMillis += 1000;
+        mScheduler.review(card, GRADES[mReviewCount++ % GRADES.length], mNowMillis);
+        return card;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.android.miwok;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the {@link SearchIndex} and of a query, as typed in the search box.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int wordCount;
+
+    //Short prefix matching many words, accent-less French and a longer phrase.
+    @Param({"m", "mere", "frere soir"})
+    public String query;
+
+    private Lexicon mLexicon;
+    private SearchIndex mSearchIndex;
+    private final int[] mResults = new int[50];
+
+    @Setup
+    public void setUp() throws IOException {
+        mLexicon = BenchmarkData.createLexicon(wordCount);
+        mSearchIndex = SearchIndex.fromLexicon(mLexicon);
+    }
+
+    @Benchmark
+    public SearchIndex buildIndex() {
+        return SearchIndex.fromLexicon(mLexicon);
+    }
+
+    @Benchmark
+    public int search() {
+        return mSearchIndex.search(query, mResults);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.android.miwok;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of loading the words of the lexicon, and of reading what a list row shows for every
+ * word, either from {@link Word} objects or from the {@link WordTable} columns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WordListBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int wordCount;
+
+    private Lexicon mLexicon;
+    private List<Word> mWords;
+    private WordTable mWordTable;
+
+    @Setup
+    public void setUp() throws IOException {
+        mLexicon = BenchmarkData.createLexicon(wordCount);
+        mWords = createWords();
+        mWordTable = createWordTable();
+    }
+
+    @Benchmark
+    public List<Word> createWords() {
+        List<Word> words = new ArrayList<>(mLexicon.getWordCount());
+        for (int i = 0; i < mLexicon.getWordCount(); i++) {
+            words.add(new Word(mLexicon.getId(i), mLexicon.getDefaultTranslation(i),
+                    mLexicon.getFrenchTranslation(i), 0, 0));
+        }
+        return words;
+    }
+
+    @Benchmark
+    public WordTable createWordTable() {
+        return new WordTable(mLexicon, null, null);
+    }
+
+    @Benchmark
+    public void bindWords(Blackhole blackhole) {
+        for (int i = 0; i < mWords.size(); i++) {
+            Word word = mWords.get(i);
+            blackhole.consume(word.getId());
+            blackhole.consume(word.getFrenchTranslation());
+            blackhole.consume(word.getDefaultTranslation());
+            blackhole.consume(word.hasImage());
+        }
+    }
+
+    @Benchmark
+    public void bindWordTable(Blackhole blackhole) {
+        for (int i = 0; i < mWordTable.getWordCount(); i++) {
+            blackhole.consume(mWordTable.getId(i));
+            blackhole.consume(mWordTable.getFrenchTranslation(i));
+            blackhole.consume(mWordTable.getDefaultTranslation(i));
+            blackhole.consume(mWordTable.getImageResourceId(i));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.android.miwok;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of laying out the words of all categories as {@link WordSections}, of reading every row
+ * as the list of all words binds it, and of finding where a letter starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WordSectionsBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    public int wordCount;
+
+    private List<WordTable.WordList> mCategories;
+    private WordSections mSections;
+    private int mLetter;
+
+    @Setup
+    public void setUp() throws IOException {
+        Lexicon lexicon = BenchmarkData.createLexicon(wordCount);
+        WordTable table = new WordTable(lexicon, null, null);
+        mCategories = new ArrayList<>();
+        for (int i = 0; i < lexicon.getCategoryCount(); i++) {
+            mCategories.add(table.subList(lexicon.getFirstWord(i),
+                    lexicon.getCategoryWordCount(i)));
+        }
+        mSections = WordSections.build(mCategories);
+    }
+
+    @Benchmark
+    public WordSections build() {
+        return WordSections.build(mCategories);
+    }
+
+    /**
+     * Read every row the way the adapter binds it, as when scrolling through the whole list.
+     */
+    @Benchmark
+    public void bindAllRows(Blackhole blackhole) {
+        for (int position = 0; position < mSections.getRowCount(); position++) {
+            int section = mSections.getSection(position);
+            if (mSections.isHeader(position)) {
+                blackhole.consume(section);
+                continue;
+            }
+            WordTable.WordList words = mSections.getWords(section);
+            int word = words.getTableIndex(mSections.getWordPosition(position));
+            blackhole.consume(words.getTable().getFrenchTranslation(word));
+            blackhole.consume(words.getTable().getDefaultTranslation(word));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int letterPosition() {
+        mLetter = (mLetter + 1) % WordSections.LETTER_COUNT;
+        return mSections.getLetterPosition(mLetter % mSections.getSectionCount(), mLetter);
+    }
+}
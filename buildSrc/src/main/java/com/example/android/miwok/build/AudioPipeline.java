@@ -0,0 +1,434 @@
+package com.example.android.miwok.build;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Prepares the recorded word clips for fast playback: the silence before and after the voice is
+ * trimmed, the loudness of every clip is brought to the same level, and the clip is written in
+ * the format which starts playing fastest for its length.
+ *
+ * <ul>
+ * <li>Clips are decoded to 16 bit mono PCM at {@link #SAMPLE_RATE}, by ffmpeg unless they are
+ * WAV files already.</li>
+ * <li>Silence is found in {@link #WINDOW_MILLIS} windows quieter than {@link #SILENCE_DB};
+ * {@link #PADDING_MILLIS} are kept on each side and faded so the cut does not click.</li>
+ * <li>Loudness is the RMS of the windows which are not silent, brought to
+ * {@link #TARGET_LOUDNESS_DB} without letting the peak exceed {@link #PEAK_CEILING_DB}.</li>
+ * <li>Clips of up to {@code pcmMaxMillis} are written as WAV, which needs no decoder at all.
+ * Longer clips are encoded as Ogg Vorbis, which every supported Android version decodes, unlike
+ * Opus before API 21, and starts faster than AAC.</li>
+ * </ul>
+ * Without ffmpeg, WAV clips are still processed and other clips are copied unchanged.
+ */
+public final class AudioPipeline {
+
+    public static final int SAMPLE_RATE = 22050;
+
+    //Clips at most this long once trimmed are written as WAV.
+    public static final int DEFAULT_PCM_MAX_MILLIS = 800;
+
+    private static final int WINDOW_MILLIS = 10;
+    private static final double SILENCE_DB = -45;
+    private static final int PADDING_MILLIS = 20;
+    private static final int FADE_MILLIS = 5;
+    private static final double TARGET_LOUDNESS_DB = -18;
+    private static final double PEAK_CEILING_DB = -1;
+
+    //Quiet recordings are not boosted further, it would only bring up the noise.
+    private static final double MAX_GAIN_DB = 12;
+
+    //Vorbis quality, 4 is about 64 kbit/s for speech.
+    private static final String VORBIS_QUALITY = "4";
+
+    private static final Pattern BENCH_UTIME = Pattern.compile("utime=([0-9.]+)s");
+
+    //Command running ffmpeg, or null if it is not installed.
+    private final String mFfmpeg;
+
+    private final int mPcmMaxMillis;
+
+    /**
+     * Create a new {@link AudioPipeline} object.
+     *
+     * @param ffmpeg is the ffmpeg command, or null to only process WAV clips.
+     * @param pcmMaxMillis is the length up to which clips are written as WAV.
+     */
+    public AudioPipeline(String ffmpeg, int pcmMaxMillis) {
+        mFfmpeg = ffmpeg;
+        mPcmMaxMillis = pcmMaxMillis;
+    }
+
+    /**
+     * Return whether the given ffmpeg command can be run.
+     */
+    public static boolean isAvailable(String ffmpeg) {
+        try {
+            Process process = new ProcessBuilder(ffmpeg, "-version")
+                    .redirectErrorStream(true).start();
+            drain(process.getInputStream());
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Return the clips of a directory in name order, skipping hidden files.
+     */
+    public static List<File> listClips(File directory) {
+        List<File> clips = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                if (file.isFile() && !file.getName().startsWith(".")) {
+                    clips.add(file);
+                }
+            }
+        }
+        return clips;
+    }
+
+    /**
+     * Process a clip into the output directory, named like the input with the extension of its
+     * new format.
+     */
+    public Clip process(File input, File outputDir) throws IOException {
+        String name = input.getName();
+        int dot = name.lastIndexOf('.');
+        String baseName = dot > 0 ? name.substring(0, dot) : name;
+        boolean wav = name.toLowerCase(Locale.ROOT).endsWith(".wav");
+
+        Clip clip = new Clip(name, input.length());
+        clip.mSourceDecodeMillis = measureDecodeMillis(input);
+        if (!wav && mFfmpeg == null) {
+            File output = new File(outputDir, name);
+            Files.copy(input.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            clip.mFormat = "copied";
+            clip.mOutputBytes = output.length();
+            clip.mOutputDecodeMillis = clip.mSourceDecodeMillis;
+            return clip;
+        }
+
+        Pcm pcm = wav ? readWav(input) : decode(input);
+        int[] voice = findVoice(pcm.mSamples, pcm.mRate);
+        clip.mLeadingMillis = voice[0] * 1000 / pcm.mRate;
+        clip.mTrailingMillis = (pcm.mSamples.length - voice[1]) * 1000 / pcm.mRate;
+        short[] samples = Arrays.copyOfRange(pcm.mSamples, voice[0], voice[1]);
+        clip.mGainDb = computeGainDb(samples, pcm.mRate);
+        applyGain(samples, clip.mGainDb);
+        fade(samples, pcm.mRate);
+
+        File output;
+        if (samples.length * 1000L / pcm.mRate <= mPcmMaxMillis || mFfmpeg == null) {
+            output = new File(outputDir, baseName + ".wav");
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output))) {
+                writeWav(out, samples, pcm.mRate);
+            }
+            clip.mFormat = "wav";
+        } else {
+            output = new File(outputDir, baseName + ".ogg");
+            encodeVorbis(samples, pcm.mRate, output);
+            clip.mFormat = "vorbis";
+        }
+        clip.mOutputBytes = output.length();
+        clip.mOutputDecodeMillis = measureDecodeMillis(output);
+        return clip;
+    }
+
+    /**
+     * Return the first and the end sample of the voice, padded, or the whole clip if it is all
+     * silence.
+     */
+    static int[] findVoice(short[] samples, int rate) {
+        int window = Math.max(1, rate * WINDOW_MILLIS / 1000);
+        double threshold = Short.MAX_VALUE * Math.pow(10, SILENCE_DB / 20);
+        int first = -1;
+        int last = -1;
+        for (int start = 0; start < samples.length; start += window) {
+            int end = Math.min(samples.length, start + window);
+            if (rms(samples, start, end) > threshold) {
+                if (first < 0) {
+                    first = start;
+                }
+                last = end;
+            }
+        }
+        if (first < 0) {
+            return new int[] {0, samples.length};
+        }
+        int padding = rate * PADDING_MILLIS / 1000;
+        return new int[] {Math.max(0, first - padding), Math.min(samples.length, last + padding)};
+    }
+
+    /**
+     * Return the gain in dB bringing the loudness of the voice to the target, limited by the
+     * peak ceiling.
+     */
+    static double computeGainDb(short[] samples, int rate) {
+        int window = Math.max(1, rate * WINDOW_MILLIS / 1000);
+        double threshold = Short.MAX_VALUE * Math.pow(10, SILENCE_DB / 20);
+        double sum = 0;
+        long count = 0;
+        int peak = 1;
+        for (int start = 0; start < samples.length; start += window) {
+            int end = Math.min(samples.length, start + window);
+            if (rms(samples, start, end) > threshold) {
+                for (int i = start; i < end; i++) {
+                    sum += (double) samples[i] * samples[i];
+                }
+                count += end - start;
+            }
+        }
+        for (short sample : samples) {
+            peak = Math.max(peak, Math.abs(sample));
+        }
+        if (count == 0) {
+            return 0;
+        }
+        double loudnessDb = 20 * Math.log10(Math.sqrt(sum / count) / Short.MAX_VALUE);
+        double peakDb = 20 * Math.log10((double) peak / Short.MAX_VALUE);
+        return Math.min(MAX_GAIN_DB,
+                Math.min(TARGET_LOUDNESS_DB - loudnessDb, PEAK_CEILING_DB - peakDb));
+    }
+
+    static void applyGain(short[] samples, double gainDb) {
+        double gain = Math.pow(10, gainDb / 20);
+        for (int i = 0; i < samples.length; i++) {
+            long value = Math.round(samples[i] * gain);
+            samples[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+        }
+    }
+
+    private static void fade(short[] samples, int rate) {
+        int length = Math.min(samples.length / 2, rate * FADE_MILLIS / 1000);
+        for (int i = 0; i < length; i++) {
+            samples[i] = (short) (samples[i] * i / length);
+            samples[samples.length - 1 - i] = (short) (samples[samples.length - 1 - i] * i / length);
+        }
+    }
+
+    private static double rms(short[] samples, int start, int end) {
+        double sum = 0;
+        for (int i = start; i < end; i++) {
+            sum += (double) samples[i] * samples[i];
+        }
+        return Math.sqrt(sum / (end - start));
+    }
+
+    /**
+     * Decode a clip to mono PCM at {@link #SAMPLE_RATE} with ffmpeg.
+     */
+    private Pcm decode(File input) throws IOException {
+        File raw = File.createTempFile("clip", ".pcm");
+        try {
+            run(mFfmpeg, "-y", "-v", "error", "-i", input.getPath(), "-ac", "1",
+                    "-ar", String.valueOf(SAMPLE_RATE), "-f", "s16le", "-acodec", "pcm_s16le",
+                    raw.getPath());
+            byte[] bytes = Files.readAllBytes(raw.toPath());
+            short[] samples = new short[bytes.length / 2];
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(samples);
+            return new Pcm(samples, SAMPLE_RATE);
+        } finally {
+            raw.delete();
+        }
+    }
+
+    private void encodeVorbis(short[] samples, int rate, File output) throws IOException {
+        File wav = File.createTempFile("clip", ".wav");
+        try {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(wav))) {
+                writeWav(out, samples, rate);
+            }
+            run(mFfmpeg, "-y", "-v", "error", "-i", wav.getPath(), "-c:a", "libvorbis",
+                    "-q:a", VORBIS_QUALITY, output.getPath());
+        } finally {
+            wav.delete();
+        }
+    }
+
+    /**
+     * Return the CPU time ffmpeg takes to decode a clip, or the time this process takes to read
+     * a WAV clip without ffmpeg, or -1 if it cannot be measured.
+     */
+    private double measureDecodeMillis(File clip) throws IOException {
+        if (mFfmpeg != null) {
+            String log = run(mFfmpeg, "-v", "error", "-benchmark", "-i", clip.getPath(),
+                    "-f", "null", "-");
+            Matcher matcher = BENCH_UTIME.matcher(log);
+            return matcher.find() ? Double.parseDouble(matcher.group(1)) * 1000 : -1;
+        }
+        if (clip.getName().toLowerCase(Locale.ROOT).endsWith(".wav")) {
+            long startNanos = System.nanoTime();
+            readWav(clip);
+            return (System.nanoTime() - startNanos) / 1e6;
+        }
+        return -1;
+    }
+
+    /**
+     * Run a command and return what it printed, failing if it does not succeed.
+     */
+    private static String run(String... command) throws IOException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(drain(process.getInputStream()), StandardCharsets.UTF_8);
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException(command[0] + " failed: " + output.trim());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted running " + command[0], e);
+        }
+        return output;
+    }
+
+    private static byte[] drain(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Read a 16 bit PCM WAV file, mixing its channels down to mono.
+     */
+    static Pcm readWav(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            byte[] bytes = new byte[(int) file.length()];
+            in.readFully(bytes);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            if (bytes.length < 12 || buffer.getInt(0) != 0x46464952 // "RIFF"
+                    || buffer.getInt(8) != 0x45564157) { // "WAVE"
+                throw new IOException("Not a WAV file: " + file);
+            }
+            int channels = 0;
+            int rate = 0;
+            int offset = 12;
+            while (offset + 8 <= bytes.length) {
+                int id = buffer.getInt(offset);
+                int size = buffer.getInt(offset + 4);
+                int body = offset + 8;
+                if (id == 0x20746D66) { // "fmt "
+                    if (buffer.getShort(body) != 1 || buffer.getShort(body + 14) != 16) {
+                        throw new IOException("Not 16 bit PCM: " + file);
+                    }
+                    channels = buffer.getShort(body + 2);
+                    rate = buffer.getInt(body + 4);
+                } else if (id == 0x61746164 && channels > 0) { // "data"
+                    int frames = Math.min(size, bytes.length - body) / (2 * channels);
+                    short[] samples = new short[frames];
+                    for (int i = 0; i < frames; i++) {
+                        int sum = 0;
+                        for (int c = 0; c < channels; c++) {
+                            sum += buffer.getShort(body + (i * channels + c) * 2);
+                        }
+                        samples[i] = (short) (sum / channels);
+                    }
+                    return new Pcm(samples, rate);
+                }
+                offset = body + size + (size & 1);
+            }
+            throw new IOException("No audio in " + file);
+        }
+    }
+
+    static void writeWav(OutputStream out, short[] samples, int rate) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(44 + samples.length * 2)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0x46464952).putInt(36 + samples.length * 2).putInt(0x45564157);
+        buffer.putInt(0x20746D66).putInt(16).putShort((short) 1).putShort((short) 1)
+                .putInt(rate).putInt(rate * 2).putShort((short) 2).putShort((short) 16);
+        buffer.putInt(0x61746164).putInt(samples.length * 2);
+        buffer.asShortBuffer().put(samples);
+        out.write(buffer.array());
+    }
+
+    /**
+     * Mono 16 bit samples and their rate.
+     */
+    static final class Pcm {
+        final short[] mSamples;
+        final int mRate;
+
+        Pcm(short[] samples, int rate) {
+            mSamples = samples;
+            mRate = rate;
+        }
+    }
+
+    /**
+     * What was done to a clip, one line of the report.
+     */
+    public static final class Clip {
+        private final String mName;
+        private final long mSourceBytes;
+        private long mOutputBytes;
+        private String mFormat;
+        private int mLeadingMillis;
+        private int mTrailingMillis;
+        private double mGainDb;
+        private double mSourceDecodeMillis;
+        private double mOutputDecodeMillis;
+
+        Clip(String name, long sourceBytes) {
+            mName = name;
+            mSourceBytes = sourceBytes;
+        }
+
+        public long getSourceBytes() {
+            return mSourceBytes;
+        }
+
+        public long getOutputBytes() {
+            return mOutputBytes;
+        }
+
+        /**
+         * Return the header of the report, matching {@link #toString()}.
+         */
+        public static String getHeader() {
+            return String.format(Locale.ROOT, "%-28s %-7s %9s %9s %9s %7s %7s %10s %10s",
+                    "clip", "format", "bytes in", "bytes out", "saved", "trim ms", "gain dB",
+                    "decode ms", "before ms");
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-28s %-7s %9d %9d %9d %7d %7.1f %10s %10s",
+                    mName, mFormat, mSourceBytes, mOutputBytes, mSourceBytes - mOutputBytes,
+                    mLeadingMillis + mTrailingMillis, mGainDb, formatMillis(mOutputDecodeMillis),
+                    formatMillis(mSourceDecodeMillis));
+        }
+
+        private static String formatMillis(double millis) {
+            return millis < 0 ? "n/a" : String.format(Locale.ROOT, "%.2f", millis);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.android.miwok.build;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a vocabulary pack file from a pack source directory, see {@link PackWriter}.
+ */
+public class BuildPackTask extends DefaultTask {
+
+    private File mSourceDir;
+    private String mPackId;
+    private int mPackVersion = 1;
+    private int mChunkSize = PackWriter.DEFAULT_CHUNK_SIZE;
+    private File mOutputFile;
+
+    @InputDirectory
+    public File getSourceDir() {
+        return mSourceDir;
+    }
+
+    public void setSourceDir(File sourceDir) {
+        mSourceDir = sourceDir;
+    }
+
+    @Input
+    public String getPackId() {
+        return mPackId;
+    }
+
+    public void setPackId(String packId) {
+        mPackId = packId;
+    }
+
+    @Input
+    public int getPackVersion() {
+        return mPackVersion;
+    }
+
+    public void setPackVersion(int packVersion) {
+        mPackVersion = packVersion;
+    }
+
+    @Input
+    public int getChunkSize() {
+        return mChunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        mChunkSize = chunkSize;
+    }
+
+    @OutputFile
+    public File getOutputFile() {
+        return mOutputFile;
+    }
+
+    public void setOutputFile(File outputFile) {
+        mOutputFile = outputFile;
+    }
+
+    @TaskAction
+    public void build() {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(mOutputFile))) {
+            int files = PackWriter.write(mSourceDir, mPackId, mPackVersion, mChunkSize, out);
+            getLogger().info("Packed {} media files into {}", files, mOutputFile);
+        } catch (IOException e) {
+            throw new GradleException("Unable to build pack " + mPackId + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.android.miwok.build;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compiles the CSV word list into the binary lexicon asset, see {@link LexiconCompiler}.
+ */
+public class CompileLexiconTask extends DefaultTask {
+
+    private File mSource;
+    private File mOutputDir;
+    private String mAssetName = "lexicon.lex";
+
+    @InputFile
+    public File getSource() {
+        return mSource;
+    }
+
+    public void setSource(File source) {
+        mSource = source;
+    }
+
+    @OutputDirectory
+    public File getOutputDir() {
+        return mOutputDir;
+    }
+
+    public void setOutputDir(File outputDir) {
+        mOutputDir = outputDir;
+    }
+
+    @Input
+    public String getAssetName() {
+        return mAssetName;
+    }
+
+    public void setAssetName(String assetName) {
+        mAssetName = assetName;
+    }
+
+    @TaskAction
+    public void compile() {
+        File output = new File(mOutputDir, mAssetName);
+        try (Reader csv = new InputStreamReader(new FileInputStream(mSource), StandardCharsets.UTF_8);
+             OutputStream out = new FileOutputStream(output)) {
+            int words = LexiconCompiler.compile(csv, out);
+            getLogger().info("Compiled {} words into {} ({} bytes)", words, output, output.length());
+        } catch (IOException e) {
+            throw new GradleException("Unable to compile lexicon " + mSource + ": " + e.getMessage(), e);
+        }
+    }
+}
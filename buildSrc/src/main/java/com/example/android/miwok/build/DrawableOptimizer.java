@@ -0,0 +1,481 @@
+package com.example.android.miwok.build;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Shrinks the bitmap drawables of a resource directory and works out how much memory they take
+ * once decoded.
+ *
+ * <ul>
+ * <li>Every PNG is re-encoded losslessly: as a palette PNG if it has at most 256 colors, else
+ * without its alpha channel if it is opaque. With cwebp, lossless WebP and, if a quality is
+ * given, lossy WebP are tried too. The smallest file is kept, the source included.</li>
+ * <li>WebP is only written where every supported Android version decodes it: lossy opaque images
+ * from API {@link #WEBP_MIN_SDK}, lossless or translucent ones from API
+ * {@link #WEBP_ALPHA_MIN_SDK}.</li>
+ * <li>Only the densities asked for are kept. A device of another density gets the nearest
+ * larger one, or the largest if there is none, and the image is scaled when decoded.</li>
+ * <li>Nine-patches and drawables which are not PNGs are copied unchanged.</li>
+ * </ul>
+ */
+public final class DrawableOptimizer {
+
+    public static final int WEBP_MIN_SDK = 14;
+    public static final int WEBP_ALPHA_MIN_SDK = 18;
+
+    //Dots per inch of each density qualifier, in order.
+    private static final Map<String, Integer> DENSITIES = new LinkedHashMap<>();
+
+    static {
+        DENSITIES.put("mdpi", 160);
+        DENSITIES.put("hdpi", 240);
+        DENSITIES.put("xhdpi", 320);
+        DENSITIES.put("xxhdpi", 480);
+        DENSITIES.put("xxxhdpi", 640);
+    }
+
+    //Bytes per pixel of an ARGB_8888 bitmap, what BitmapFactory decodes PNG and WebP to.
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static final int PALETTE_SIZE = 256;
+
+    //Command running cwebp, or null if it is not installed.
+    private final String mCwebp;
+
+    private final int mMinSdkVersion;
+    private final int mWebpQuality;
+
+    /**
+     * Create a new {@link DrawableOptimizer} object.
+     *
+     * @param cwebp is the cwebp command, or null to only write PNG.
+     * @param minSdkVersion is the oldest Android version which must decode the images.
+     * @param webpQuality is the quality from 1 to 100 of lossy WebP, or 0 to stay lossless.
+     */
+    public DrawableOptimizer(String cwebp, int minSdkVersion, int webpQuality) {
+        mCwebp = cwebp;
+        mMinSdkVersion = minSdkVersion;
+        mWebpQuality = webpQuality;
+    }
+
+    /**
+     * Return whether the given cwebp command can be run.
+     */
+    public static boolean isAvailable(String cwebp) {
+        try {
+            Process process = new ProcessBuilder(cwebp, "-version")
+                    .redirectErrorStream(true).start();
+            drain(process.getInputStream());
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Return the dots per inch of a density qualifier, or 0 if it is not one.
+     */
+    public static int getDpi(String density) {
+        Integer dpi = DENSITIES.get(density);
+        return dpi != null ? dpi : 0;
+    }
+
+    /**
+     * Return the density qualifiers known, from the lowest.
+     */
+    public static List<String> getDensities() {
+        return new ArrayList<>(DENSITIES.keySet());
+    }
+
+    /**
+     * Return the density of a drawable directory such as drawable-xhdpi, or null if it has none.
+     */
+    public static String getDensity(File directory) {
+        String name = directory.getName();
+        if (!name.startsWith("drawable")) {
+            return null;
+        }
+        for (String qualifier : name.split("-")) {
+            if (DENSITIES.containsKey(qualifier)) {
+                return qualifier;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the files of a directory in name order, skipping hidden files.
+     */
+    public static List<File> listFiles(File directory) {
+        List<File> files = new ArrayList<>();
+        File[] children = directory.listFiles();
+        if (children != null) {
+            Arrays.sort(children);
+            for (File child : children) {
+                if (child.isFile() && !child.getName().startsWith(".")) {
+                    files.add(child);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Optimize an image of the given density into the output directory, named like the input
+     * with the extension of its new format.
+     */
+    public Image process(File input, String density, File outputDir) throws IOException {
+        String name = input.getName();
+        int dot = name.lastIndexOf('.');
+        String baseName = dot < 0 ? name : name.substring(0, dot);
+        Image image = new Image(baseName, density, input.length());
+        outputDir.mkdirs();
+
+        if (!name.toLowerCase(Locale.ROOT).endsWith(".png") || name.endsWith(".9.png")) {
+            Files.copy(input.toPath(), new File(outputDir, name).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            image.mFormat = "copy";
+            image.mOutputBytes = input.length();
+            return image;
+        }
+
+        BufferedImage source = ImageIO.read(input);
+        if (source == null) {
+            throw new IOException("Unable to read " + input);
+        }
+        image.mWidth = source.getWidth();
+        image.mHeight = source.getHeight();
+        boolean opaque = isOpaque(source);
+        int[] palette = buildPalette(source);
+
+        //Start from the source itself, a candidate is only kept if it is smaller.
+        byte[] best = Files.readAllBytes(input.toPath());
+        String bestFormat = "png";
+        String bestExtension = ".png";
+
+        byte[] png = encodePng(source, palette, opaque);
+        if (png != null && png.length < best.length) {
+            best = png;
+            bestFormat = palette != null ? "png8" : "png";
+        }
+        if (mCwebp != null && mMinSdkVersion >= WEBP_ALPHA_MIN_SDK) {
+            byte[] webp = runCwebp(input, "-lossless", "-exact", "-z", "9");
+            if (webp.length < best.length) {
+                best = webp;
+                bestFormat = "webp";
+                bestExtension = ".webp";
+            }
+        }
+        if (mCwebp != null && mWebpQuality > 0
+                && mMinSdkVersion >= (opaque ? WEBP_MIN_SDK : WEBP_ALPHA_MIN_SDK)) {
+            byte[] webp = runCwebp(input, "-q", String.valueOf(mWebpQuality), "-m", "6");
+            if (webp.length < best.length) {
+                best = webp;
+                bestFormat = "webp-q" + mWebpQuality;
+                bestExtension = ".webp";
+            }
+        }
+
+        Files.write(new File(outputDir, baseName + bestExtension).toPath(), best);
+        image.mFormat = bestFormat;
+        image.mOutputBytes = best.length;
+        return image;
+    }
+
+    /**
+     * Return the bytes of the bitmap an image of the given size and density decodes to on a
+     * device of the given density, as scaled by {@code Resources}.
+     */
+    public static long getDecodedBytes(int width, int height, int imageDpi, int deviceDpi) {
+        float scale = (float) deviceDpi / imageDpi;
+        long scaledWidth = (int) (width * scale + 0.5f);
+        long scaledHeight = (int) (height * scale + 0.5f);
+        return scaledWidth * scaledHeight * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Return the bytes of the bitmap an image of the given size takes once fitted in a square of
+     * the given side in dp on a device of the given density, as decoded by WordImageLoader.
+     */
+    public static long getRowBytes(int width, int height, int sizeDp, int deviceDpi) {
+        int side = (int) (sizeDp * deviceDpi / 160f + 0.5f);
+        float scale = Math.min((float) side / width, (float) side / height);
+        long scaledWidth = Math.max(1, Math.round(width * scale));
+        long scaledHeight = Math.max(1, Math.round(height * scale));
+        return scaledWidth * scaledHeight * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Return the density among those available which a device of the given density picks: the
+     * nearest one at least as large, else the largest.
+     */
+    public static String pickDensity(List<String> available, String device) {
+        int deviceDpi = getDpi(device);
+        String picked = null;
+        for (String density : available) {
+            int dpi = getDpi(density);
+            if (picked == null) {
+                picked = density;
+            } else if (getDpi(picked) < deviceDpi ? dpi > getDpi(picked)
+                    : dpi >= deviceDpi && dpi < getDpi(picked)) {
+                picked = density;
+            }
+        }
+        return picked;
+    }
+
+    /**
+     * Group images by name, each with its densities.
+     */
+    public static Map<String, Map<String, Image>> groupByName(List<Image> images) {
+        Map<String, Map<String, Image>> groups = new LinkedHashMap<>();
+        for (Image image : images) {
+            Map<String, Image> group = groups.get(image.mName);
+            if (group == null) {
+                group = new HashMap<>();
+                groups.put(image.mName, group);
+            }
+            group.put(image.mDensity, image);
+        }
+        return groups;
+    }
+
+    private static boolean isOpaque(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return true;
+        }
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if (image.getRGB(x, y) >>> 24 != 0xff) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the distinct ARGB colors of an image, or null if there are more than a palette holds.
+     */
+    private static int[] buildPalette(BufferedImage image) {
+        int[] colors = new int[PALETTE_SIZE];
+        int count = 0;
+        Map<Integer, Integer> seen = new HashMap<>();
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int argb = image.getRGB(x, y);
+                //All fully transparent pixels are the same color.
+                if (argb >>> 24 == 0) {
+                    argb = 0;
+                }
+                if (!seen.containsKey(argb)) {
+                    if (count == PALETTE_SIZE) {
+                        return null;
+                    }
+                    seen.put(argb, count);
+                    colors[count++] = argb;
+                }
+            }
+        }
+        return Arrays.copyOf(colors, count);
+    }
+
+    /**
+     * Encode an image as the smallest lossless PNG javax.imageio writes: a palette image if the
+     * colors fit in the palette, else RGB or ARGB. Returns null if no PNG writer is available.
+     */
+    private static byte[] encodePng(BufferedImage source, int[] palette, boolean opaque)
+            throws IOException {
+        BufferedImage image;
+        if (palette != null) {
+            //Translucent colors first, so the tRNS chunk only lists those.
+            int[] ordered = new int[palette.length];
+            int index = 0;
+            for (int argb : palette) {
+                if (argb >>> 24 != 0xff) {
+                    ordered[index++] = argb;
+                }
+            }
+            for (int argb : palette) {
+                if (argb >>> 24 == 0xff) {
+                    ordered[index++] = argb;
+                }
+            }
+            //Fewer bits per pixel for small palettes.
+            int bits = ordered.length <= 2 ? 1 : ordered.length <= 4 ? 2
+                    : ordered.length <= 16 ? 4 : 8;
+            IndexColorModel model = new IndexColorModel(bits, ordered.length, ordered, 0, true,
+                    -1, DataBuffer.TYPE_BYTE);
+            image = new BufferedImage(source.getWidth(), source.getHeight(),
+                    bits == 8 ? BufferedImage.TYPE_BYTE_INDEXED : BufferedImage.TYPE_BYTE_BINARY,
+                    model);
+            Map<Integer, Integer> indices = new HashMap<>();
+            for (int i = 0; i < ordered.length; i++) {
+                indices.put(ordered[i], i);
+            }
+            for (int y = 0; y < source.getHeight(); y++) {
+                for (int x = 0; x < source.getWidth(); x++) {
+                    int argb = source.getRGB(x, y);
+                    image.getRaster().setSample(x, y, 0, indices.get(argb >>> 24 == 0 ? 0 : argb));
+                }
+            }
+        } else {
+            image = new BufferedImage(source.getWidth(), source.getHeight(),
+                    opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+            image.getGraphics().drawImage(source, 0, 0, null);
+        }
+
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
+        if (!writers.hasNext()) {
+            return null;
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                //0 is the smallest output, i.e. the strongest deflate level.
+                param.setCompressionQuality(0f);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Encode an image with cwebp and the given options, returning the WebP file.
+     */
+    private byte[] runCwebp(File input, String... options) throws IOException {
+        File output = File.createTempFile("drawable", ".webp");
+        try {
+            List<String> command = new ArrayList<>();
+            command.add(mCwebp);
+            command.add("-quiet");
+            command.add("-metadata");
+            command.add("none");
+            command.addAll(Arrays.asList(options));
+            command.add(input.getPath());
+            command.add("-o");
+            command.add(output.getPath());
+            run(command.toArray(new String[0]));
+            return Files.readAllBytes(output.toPath());
+        } finally {
+            output.delete();
+        }
+    }
+
+    /**
+     * Run a command, failing if it does not succeed.
+     */
+    private static void run(String... command) throws IOException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(drain(process.getInputStream()), StandardCharsets.UTF_8);
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException(command[0] + " failed: " + output.trim());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted running " + command[0], e);
+        }
+    }
+
+    private static byte[] drain(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Result of optimizing one image of one density.
+     */
+    public static final class Image {
+        private final String mName;
+        private final String mDensity;
+        private final long mSourceBytes;
+        private long mOutputBytes;
+        private String mFormat;
+        //Size in pixels, 0 if the drawable is not a bitmap.
+        private int mWidth;
+        private int mHeight;
+
+        Image(String name, String density, long sourceBytes) {
+            mName = name;
+            mDensity = density;
+            mSourceBytes = sourceBytes;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public String getDensity() {
+            return mDensity;
+        }
+
+        public long getSourceBytes() {
+            return mSourceBytes;
+        }
+
+        public long getOutputBytes() {
+            return mOutputBytes;
+        }
+
+        public int getWidth() {
+            return mWidth;
+        }
+
+        public int getHeight() {
+            return mHeight;
+        }
+
+        /**
+         * Return the header of the report, matching {@link #toString()}.
+         */
+        public static String getHeader() {
+            return String.format(Locale.ROOT, "%-28s %-8s %-8s %9s %9s %9s %9s",
+                    "image", "density", "format", "pixels", "bytes in", "bytes out", "saved");
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-28s %-8s %-8s %9s %9d %9d %9d",
+                    mName, mDensity, mFormat, mWidth > 0 ? mWidth + "x" + mHeight : "-",
+                    mSourceBytes, mOutputBytes, mSourceBytes - mOutputBytes);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.android.miwok.build;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a CSV word list into the indexed binary lexicon read by the app's {@code Lexicon}.
+ *
+ * <p>The CSV has a header row followed by one row per word with the columns
+ * {@code category,english,french,image,audio}. Image and audio hold resource names
+ * (e.g. {@code number_one}) and may be empty. Fields containing commas are double quoted.
+ *
+ * <p>The lexicon is big-endian and laid out in columns so that it can be memory-mapped and
+ * read by index without decoding anything up front:
+ * <pre>
+ * header       magic, version, categoryCount, wordCount, stringCount,
+ *              then the offset of each of the sections below
+ * categories   keyString, firstWord, wordCount              (3 ints per category)
+ * ids          stable 64-bit id of each word                (1 long per word)
+ * english      string index of the English translation      (1 int per word)
+ * french       string index of the French translation       (1 int per word)
+ * image        string index of the image name or -1         (1 int per word)
+ * audio        string index of the audio name or -1         (1 int per word)
+ * strings      start offset of each string plus the end     (stringCount + 1 ints)
+ * string data  UTF-8 bytes of all strings
+ * </pre>
+ * Words of a category are stored next to each other, in the order of the CSV. The stable id
+ * keys the progress of a word and its row in the lists, so two rows with the same category and
+ * English text, or whose ids collide, fail the compilation.
+ */
+public final class LexiconCompiler {
+
+    public static final int MAGIC = 0x4D4C4558; // "MLEX"
+    public static final int VERSION = 1;
+
+    //Number of ints in the header.
+    private static final int HEADER_INTS = 13;
+
+    private static final int NO_STRING = -1;
+
+    private LexiconCompiler() {
+    }
+
+    /**
+     * Read the CSV word list from {@code csv} and write the binary lexicon to {@code out}.
+     *
+     * @return the number of words written.
+     */
+    public static int compile(Reader csv, OutputStream out) throws IOException {
+        //Group the rows by category, keeping the order in which the categories first appear.
+        Map<String, List<String[]>> categories = new LinkedHashMap<>();
+        //Line of each word, keyed by category and English text, and by stable id.
+        Map<String, Integer> wordLines = new HashMap<>();
+        Map<Long, Integer> idLines = new HashMap<>();
+        BufferedReader reader = new BufferedReader(csv);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1 || line.trim().isEmpty()) {
+                //Skip the header and blank lines.
+                continue;
+            }
+            List<String> fields = parseCsvLine(line);
+            if (fields.size() != 5) {
+                throw new IOException("Line " + lineNumber + ": expected 5 fields but found "
+                        + fields.size());
+            }
+            String[] row = fields.toArray(new String[5]);
+            if (row[0].isEmpty() || row[1].isEmpty() || row[2].isEmpty()) {
+                throw new IOException("Line " + lineNumber
+                        + ": category, english and french are required");
+            }
+            Integer firstLine = wordLines.put(row[0] + '\u0000' + row[1], lineNumber);
+            if (firstLine != null) {
+                throw new IOException("Line " + lineNumber + ": duplicate word " + row[0] + "/"
+                        + row[1] + ", first on line " + firstLine);
+            }
+            firstLine = idLines.put(stableId(row[0], row[1]), lineNumber);
+            if (firstLine != null) {
+                throw new IOException("Line " + lineNumber + ": the stable id of " + row[0] + "/"
+                        + row[1] + " collides with the word on line " + firstLine);
+            }
+            List<String[]> rows = categories.get(row[0]);
+            if (rows == null) {
+                rows = new ArrayList<>();
+                categories.put(row[0], rows);
+            }
+            rows.add(row);
+        }
+
+        StringTable strings = new StringTable();
+        int categoryCount = categories.size();
+        int[] categoryTable = new int[categoryCount * 3];
+        List<String[]> words = new ArrayList<>();
+        int category = 0;
+        for (Map.Entry<String, List<String[]>> entry : categories.entrySet()) {
+            categoryTable[category * 3] = strings.add(entry.getKey());
+            categoryTable[category * 3 + 1] = words.size();
+            categoryTable[category * 3 + 2] = entry.getValue().size();
+            words.addAll(entry.getValue());
+            category++;
+        }
+
+        int wordCount = words.size();
+        long[] ids = new long[wordCount];
+        int[] english = new int[wordCount];
+        int[] french = new int[wordCount];
+        int[] image = new int[wordCount];
+        int[] audio = new int[wordCount];
+        for (int i = 0; i < wordCount; i++) {
+            String[] row = words.get(i);
+            ids[i] = stableId(row[0], row[1]);
+            english[i] = strings.add(row[1]);
+            french[i] = strings.add(row[2]);
+            image[i] = row[3].isEmpty() ? NO_STRING : strings.add(row[3]);
+            audio[i] = row[4].isEmpty() ? NO_STRING : strings.add(row[4]);
+        }
+        byte[] stringData = strings.data.toByteArray();
+        int stringCount = strings.offsets.size();
+
+        //Lay out the sections; the ids come first after the category table so that
+        //they can be aligned to 8 bytes.
+        int categoriesOffset = HEADER_INTS * 4;
+        int idsOffset = align8(categoriesOffset + categoryCount * 3 * 4);
+        int englishOffset = idsOffset + wordCount * 8;
+        int frenchOffset = englishOffset + wordCount * 4;
+        int imageOffset = frenchOffset + wordCount * 4;
+        int audioOffset = imageOffset + wordCount * 4;
+        int stringsOffset = audioOffset + wordCount * 4;
+        int stringDataOffset = stringsOffset + (stringCount + 1) * 4;
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(categoryCount);
+        data.writeInt(wordCount);
+        data.writeInt(stringCount);
+        data.writeInt(categoriesOffset);
+        data.writeInt(idsOffset);
+        data.writeInt(englishOffset);
+        data.writeInt(frenchOffset);
+        data.writeInt(imageOffset);
+        data.writeInt(audioOffset);
+        data.writeInt(stringsOffset);
+        data.writeInt(stringDataOffset);
+        writeInts(data, categoryTable);
+        while (data.size() < idsOffset) {
+            data.writeByte(0);
+        }
+        for (long id : ids) {
+            data.writeLong(id);
+        }
+        writeInts(data, english);
+        writeInts(data, french);
+        writeInts(data, image);
+        writeInts(data, audio);
+        for (int offset : strings.offsets) {
+            data.writeInt(offset);
+        }
+        data.writeInt(stringData.length);
+        data.write(stringData);
+        data.flush();
+        return wordCount;
+    }
+
+    /**
+     * Return the stable id of a word: the 64-bit FNV-1a hash of its category and English text.
+     * The id does not change when words are added, removed or reordered.
+     */
+    public static long stableId(String category, String english) {
+        long hash = 0xcbf29ce484222325L;
+        byte[] bytes = (category + '\u0000' + english).getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Split a CSV line into its fields, handling double quoted fields and escaped quotes.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    private static void writeInts(DataOutputStream data, int[] values) throws IOException {
+        for (int value : values) {
+            data.writeInt(value);
+        }
+    }
+
+    private static int align8(int offset) {
+        return (offset + 7) & ~7;
+    }
+
+    /**
+     * De-duplicated UTF-8 strings, e.g. resource names shared by many words are stored once.
+     */
+    private static final class StringTable {
+        final Map<String, Integer> indices = new HashMap<>();
+        final List<Integer> offsets = new ArrayList<>();
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+        int add(String value) {
+            Integer index = indices.get(value);
+            if (index == null) {
+                index = offsets.size();
+                offsets.add(data.size());
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                data.write(bytes, 0, bytes.length);
+                indices.put(value, index);
+            }
+            return index;
+        }
+    }
+}
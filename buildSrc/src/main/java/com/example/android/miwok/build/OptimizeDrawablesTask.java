@@ -0,0 +1,282 @@
+package com.example.android.miwok.build;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Re-encodes the drawables into a resource directory, keeping only the densities asked for, see
+ * {@link DrawableOptimizer}, and writes a report of the bytes saved and the bitmap memory of each
+ * image. Fails if an image decodes to more than the budget on a device of any density, with the
+ * image shown at the height of the dimension given, as in a list item.
+ * Runs offline; cwebp is used if it is installed.
+ */
+public class OptimizeDrawablesTask extends DefaultTask {
+
+    private File mSourceDir;
+    private File mOutputDir;
+    private File mReportFile;
+    private File mDimensFile;
+    private String mDimenName = "list_item_height";
+    private List<String> mDensities = DrawableOptimizer.getDensities();
+    private long mMaxDecodedBytes = Long.MAX_VALUE;
+    private int mMinSdkVersion = 1;
+    private String mCwebp = "cwebp";
+    private int mWebpQuality;
+
+    @InputDirectory
+    public File getSourceDir() {
+        return mSourceDir;
+    }
+
+    public void setSourceDir(File sourceDir) {
+        mSourceDir = sourceDir;
+    }
+
+    @OutputDirectory
+    public File getOutputDir() {
+        return mOutputDir;
+    }
+
+    public void setOutputDir(File outputDir) {
+        mOutputDir = outputDir;
+    }
+
+    @OutputFile
+    public File getReportFile() {
+        return mReportFile;
+    }
+
+    public void setReportFile(File reportFile) {
+        mReportFile = reportFile;
+    }
+
+    @InputFile
+    public File getDimensFile() {
+        return mDimensFile;
+    }
+
+    public void setDimensFile(File dimensFile) {
+        mDimensFile = dimensFile;
+    }
+
+    @Input
+    public String getDimenName() {
+        return mDimenName;
+    }
+
+    public void setDimenName(String dimenName) {
+        mDimenName = dimenName;
+    }
+
+    @Input
+    public List<String> getDensities() {
+        return mDensities;
+    }
+
+    public void setDensities(List<String> densities) {
+        mDensities = new ArrayList<>(densities);
+    }
+
+    @Input
+    public long getMaxDecodedBytes() {
+        return mMaxDecodedBytes;
+    }
+
+    public void setMaxDecodedBytes(long maxDecodedBytes) {
+        mMaxDecodedBytes = maxDecodedBytes;
+    }
+
+    @Input
+    public int getMinSdkVersion() {
+        return mMinSdkVersion;
+    }
+
+    public void setMinSdkVersion(int minSdkVersion) {
+        mMinSdkVersion = minSdkVersion;
+    }
+
+    @Input
+    public String getCwebp() {
+        return mCwebp;
+    }
+
+    public void setCwebp(String cwebp) {
+        mCwebp = cwebp;
+    }
+
+    @Input
+    public int getWebpQuality() {
+        return mWebpQuality;
+    }
+
+    public void setWebpQuality(int webpQuality) {
+        mWebpQuality = webpQuality;
+    }
+
+    @TaskAction
+    public void optimize() {
+        for (String density : mDensities) {
+            if (DrawableOptimizer.getDpi(density) == 0) {
+                throw new GradleException("Unknown density " + density + ", expected one of "
+                        + DrawableOptimizer.getDensities());
+            }
+        }
+        int itemDp = readDimenDp();
+
+        //An image may change format, so a stale file of the same resource name must not remain.
+        delete(mOutputDir);
+        mOutputDir.mkdirs();
+
+        boolean cwebp = DrawableOptimizer.isAvailable(mCwebp);
+        if (!cwebp) {
+            getLogger().warn("{} not found, images are only written as PNG", mCwebp);
+        } else if (mMinSdkVersion < DrawableOptimizer.WEBP_ALPHA_MIN_SDK) {
+            getLogger().warn("minSdkVersion {} cannot decode lossless or translucent WebP, "
+                    + "such images stay PNG", mMinSdkVersion);
+        }
+        DrawableOptimizer optimizer = new DrawableOptimizer(cwebp ? mCwebp : null,
+                mMinSdkVersion, mWebpQuality);
+
+        File[] directories = mSourceDir.listFiles();
+        if (directories == null) {
+            directories = new File[0];
+        }
+        Arrays.sort(directories);
+        List<DrawableOptimizer.Image> images = new ArrayList<>();
+        long sourceBytes = 0;
+        long outputBytes = 0;
+        int count = 0;
+        List<String> overBudget = new ArrayList<>();
+        mReportFile.getParentFile().mkdirs();
+        try (PrintWriter report = new PrintWriter(mReportFile, StandardCharsets.UTF_8.name())) {
+            report.println(DrawableOptimizer.Image.getHeader());
+            for (File directory : directories) {
+                if (!directory.isDirectory()) {
+                    continue;
+                }
+                String density = DrawableOptimizer.getDensity(directory);
+                boolean kept = density == null || mDensities.contains(density);
+                for (File file : DrawableOptimizer.listFiles(directory)) {
+                    sourceBytes += file.length();
+                    if (!kept) {
+                        String name = file.getName();
+                        int dot = name.indexOf('.');
+                        report.printf(Locale.ROOT, "%-28s %-8s %-8s %9s %9d %9d %9d%n",
+                                dot < 0 ? name : name.substring(0, dot), density, "dropped",
+                                "-", file.length(), 0, file.length());
+                        continue;
+                    }
+                    DrawableOptimizer.Image image = optimizer.process(file,
+                            density != null ? density : "any",
+                            new File(mOutputDir, directory.getName()));
+                    report.println(image);
+                    outputBytes += image.getOutputBytes();
+                    count++;
+                    if (density != null && image.getWidth() > 0) {
+                        images.add(image);
+                    }
+                }
+            }
+            report.printf(Locale.ROOT, "%d drawables, %d bytes in, %d bytes out, %d bytes saved%n",
+                    count, sourceBytes, outputBytes, sourceBytes - outputBytes);
+
+            //Memory of each image per device density, the largest over all densities.
+            report.println();
+            report.printf(Locale.ROOT, "%-28s %-8s %12s %12s %12s%n", "image", "worst on",
+                    "decoded", "at " + itemDp + "dp", "budget");
+            for (Map.Entry<String, Map<String, DrawableOptimizer.Image>> entry
+                    : DrawableOptimizer.groupByName(images).entrySet()) {
+                List<String> available = new ArrayList<>(entry.getValue().keySet());
+                long worstDecoded = 0;
+                long worstRow = 0;
+                String worstDevice = null;
+                for (String device : DrawableOptimizer.getDensities()) {
+                    DrawableOptimizer.Image image = entry.getValue()
+                            .get(DrawableOptimizer.pickDensity(available, device));
+                    int deviceDpi = DrawableOptimizer.getDpi(device);
+                    long decoded = DrawableOptimizer.getDecodedBytes(image.getWidth(),
+                            image.getHeight(), DrawableOptimizer.getDpi(image.getDensity()),
+                            deviceDpi);
+                    if (decoded > worstDecoded) {
+                        worstDecoded = decoded;
+                        worstDevice = device;
+                    }
+                    worstRow = Math.max(worstRow, DrawableOptimizer.getRowBytes(image.getWidth(),
+                            image.getHeight(), itemDp, deviceDpi));
+                }
+                boolean over = Math.max(worstDecoded, worstRow) > mMaxDecodedBytes;
+                report.printf(Locale.ROOT, "%-28s %-8s %12d %12d %12s%n", entry.getKey(),
+                        worstDevice, worstDecoded, worstRow, over ? "OVER" : "ok");
+                if (over) {
+                    overBudget.add(entry.getKey() + " (" + Math.max(worstDecoded, worstRow)
+                            + " bytes on " + worstDevice + ")");
+                }
+            }
+        } catch (IOException e) {
+            throw new GradleException("Unable to optimize drawables: " + e.getMessage(), e);
+        }
+        if (!overBudget.isEmpty()) {
+            throw new GradleException("Images decode to more than " + mMaxDecodedBytes
+                    + " bytes: " + overBudget + ", see " + mReportFile);
+        }
+        getLogger().lifecycle("Optimized {} drawables, {} bytes saved, see {}", count,
+                sourceBytes - outputBytes, mReportFile);
+    }
+
+    /**
+     * Return the value in dp of the dimension named {@link #getDimenName()}.
+     */
+    private int readDimenDp() {
+        try {
+            NodeList dimens = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                    .parse(mDimensFile).getElementsByTagName("dimen");
+            for (int i = 0; i < dimens.getLength(); i++) {
+                Element dimen = (Element) dimens.item(i);
+                if (mDimenName.equals(dimen.getAttribute("name"))) {
+                    String value = dimen.getTextContent().trim();
+                    if (value.endsWith("dip") || value.endsWith("dp")) {
+                        return Math.round(Float.parseFloat(
+                                value.substring(0, value.lastIndexOf('d'))));
+                    }
+                    throw new GradleException("Dimension " + mDimenName + " is " + value
+                            + ", not in dp");
+                }
+            }
+        } catch (IOException | SAXException | ParserConfigurationException
+                | NumberFormatException e) {
+            throw new GradleException("Unable to read " + mDimensFile + ": " + e.getMessage(), e);
+        }
+        throw new GradleException("No dimension " + mDimenName + " in " + mDimensFile);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.android.miwok.build;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes a vocabulary pack file installed by the app's {@code PackInstaller}.
+ *
+ * <p>The pack source directory holds:
+ * <pre>
+ * categories.csv   key,title,color of each category, color as #RRGGBB
+ * words.csv        the words, as for {@link LexiconCompiler}, image and audio being file names
+ * media/           the image and audio files named in words.csv
+ * </pre>
+ * The pack is the manifest followed by the compiled lexicon and the media files, each split in
+ * chunks whose SHA-256 are listed in the manifest. Media files are streamed, never read whole.
+ */
+public final class PackWriter {
+
+    private static final int MAGIC = 0x4D50414B; // "MPAK"
+    private static final int VERSION = 1;
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private static final String LEXICON_FILE = "lexicon.lex";
+
+    private PackWriter() {
+    }
+
+    /**
+     * Write the pack of the given source directory to {@code out}.
+     *
+     * @param id is the unique id of the pack, lowercase letters, digits, - and _.
+     * @param version is the version of the pack's content.
+     * @return the number of media files in the pack.
+     */
+    public static int write(File sourceDir, String id, int version, int chunkSize,
+                            OutputStream out) throws IOException {
+        ByteArrayOutputStream lexicon = new ByteArrayOutputStream();
+        File wordsFile = new File(sourceDir, "words.csv");
+        try (Reader words = reader(wordsFile)) {
+            LexiconCompiler.compile(words, lexicon);
+        } catch (IOException e) {
+            //Name the file the line numbers refer to.
+            throw new IOException(wordsFile + ": " + e.getMessage(), e);
+        }
+        byte[] lexiconBytes = lexicon.toByteArray();
+
+        File mediaDir = new File(sourceDir, "media");
+        List<File> media = new ArrayList<>();
+        for (String name : readMediaNames(wordsFile)) {
+            File file = new File(mediaDir, name);
+            if (!file.isFile()) {
+                throw new IOException("Missing media file " + file);
+            }
+            media.add(file);
+        }
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"id\":").append(quote(id))
+                .append(",\"version\":").append(version)
+                .append(",\"chunkSize\":").append(chunkSize)
+                .append(",\"categories\":[");
+        List<String[]> categories = readCategories(new File(sourceDir, "categories.csv"));
+        for (int i = 0; i < categories.size(); i++) {
+            String[] category = categories.get(i);
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"key\":").append(quote(category[0]))
+                    .append(",\"title\":").append(quote(category[1]))
+                    .append(",\"color\":").append(quote(category[2])).append('}');
+        }
+        json.append("],\"files\":[");
+        appendFile(json, LEXICON_FILE, lexiconBytes.length,
+                new ByteArrayInputStream(lexiconBytes), chunkSize);
+        for (File file : media) {
+            json.append(',');
+            try (InputStream in = new FileInputStream(file)) {
+                appendFile(json, file.getName(), file.length(), in, chunkSize);
+            }
+        }
+        json.append("]}");
+        byte[] manifest = json.toString().getBytes(StandardCharsets.UTF_8);
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(manifest.length);
+        data.write(manifest);
+        data.write(lexiconBytes);
+        byte[] buffer = new byte[chunkSize];
+        for (File file : media) {
+            try (InputStream in = new FileInputStream(file)) {
+                int count;
+                while ((count = in.read(buffer)) != -1) {
+                    data.write(buffer, 0, count);
+                }
+            }
+        }
+        data.flush();
+        return media.size();
+    }
+
+    //Append the manifest entry of a file, hashing it chunk by chunk.
+    private static void appendFile(StringBuilder json, String name, long size, InputStream in,
+                                   int chunkSize) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        json.append("{\"name\":").append(quote(name))
+                .append(",\"size\":").append(size)
+                .append(",\"chunks\":[");
+        byte[] buffer = new byte[chunkSize];
+        long remaining = size;
+        boolean first = true;
+        while (remaining > 0) {
+            int length = (int) Math.min(chunkSize, remaining);
+            int read = 0;
+            while (read < length) {
+                int count = in.read(buffer, read, length - read);
+                if (count == -1) {
+                    throw new IOException(name + " changed while being packed");
+                }
+                read += count;
+            }
+            digest.update(buffer, 0, length);
+            json.append(first ? "" : ",").append('"').append(toHex(digest.digest())).append('"');
+            first = false;
+            remaining -= length;
+        }
+        json.append("]}");
+    }
+
+    //Return the image and audio file names of the words, in order of first use.
+    private static Set<String> readMediaNames(File words) throws IOException {
+        Set<String> names = new LinkedHashSet<>();
+        try (BufferedReader reader = new BufferedReader(reader(words))) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                List<String> fields = LexiconCompiler.parseCsvLine(line);
+                for (int i = 3; i < fields.size(); i++) {
+                    if (!fields.get(i).isEmpty()) {
+                        names.add(fields.get(i));
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    private static List<String[]> readCategories(File categories) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(reader(categories))) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                List<String> fields = LexiconCompiler.parseCsvLine(line);
+                if (fields.size() != 3) {
+                    throw new IOException(categories + ": expected key,title,color in " + line);
+                }
+                rows.add(fields.toArray(new String[3]));
+            }
+        }
+        return rows;
+    }
+
+    private static Reader reader(File file) throws IOException {
+        return new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16))
+                    .append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
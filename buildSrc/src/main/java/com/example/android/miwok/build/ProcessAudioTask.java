@@ -0,0 +1,111 @@
+package com.example.android.miwok.build;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Trims, normalizes and transcodes the word clips into a raw resource directory, see
+ * {@link AudioPipeline}, and writes a report of the bytes saved and the decode time per clip.
+ * Runs offline; ffmpeg is used if it is installed.
+ */
+public class ProcessAudioTask extends DefaultTask {
+
+    private File mSourceDir;
+    private File mOutputDir;
+    private File mReportFile;
+    private String mFfmpeg = "ffmpeg";
+    private int mPcmMaxMillis = AudioPipeline.DEFAULT_PCM_MAX_MILLIS;
+
+    @InputDirectory
+    public File getSourceDir() {
+        return mSourceDir;
+    }
+
+    public void setSourceDir(File sourceDir) {
+        mSourceDir = sourceDir;
+    }
+
+    @OutputDirectory
+    public File getOutputDir() {
+        return mOutputDir;
+    }
+
+    public void setOutputDir(File outputDir) {
+        mOutputDir = outputDir;
+    }
+
+    @OutputFile
+    public File getReportFile() {
+        return mReportFile;
+    }
+
+    public void setReportFile(File reportFile) {
+        mReportFile = reportFile;
+    }
+
+    @Input
+    public String getFfmpeg() {
+        return mFfmpeg;
+    }
+
+    public void setFfmpeg(String ffmpeg) {
+        mFfmpeg = ffmpeg;
+    }
+
+    @Input
+    public int getPcmMaxMillis() {
+        return mPcmMaxMillis;
+    }
+
+    public void setPcmMaxMillis(int pcmMaxMillis) {
+        mPcmMaxMillis = pcmMaxMillis;
+    }
+
+    @TaskAction
+    public void process() {
+        //A clip may change format, so a stale file of the same resource name must not remain.
+        File[] stale = mOutputDir.listFiles();
+        if (stale != null) {
+            for (File file : stale) {
+                file.delete();
+            }
+        }
+
+        boolean ffmpeg = AudioPipeline.isAvailable(mFfmpeg);
+        if (!ffmpeg) {
+            getLogger().warn("{} not found, only WAV clips are processed, others are copied",
+                    mFfmpeg);
+        }
+        AudioPipeline pipeline = new AudioPipeline(ffmpeg ? mFfmpeg : null, mPcmMaxMillis);
+        List<File> clips = AudioPipeline.listClips(mSourceDir);
+        long sourceBytes = 0;
+        long outputBytes = 0;
+        mReportFile.getParentFile().mkdirs();
+        try (PrintWriter report = new PrintWriter(mReportFile, StandardCharsets.UTF_8.name())) {
+            report.println(AudioPipeline.Clip.getHeader());
+            for (File clip : clips) {
+                AudioPipeline.Clip result = pipeline.process(clip, mOutputDir);
+                report.println(result);
+                sourceBytes += result.getSourceBytes();
+                outputBytes += result.getOutputBytes();
+            }
+            report.printf("%d clips, %d bytes in, %d bytes out, %d bytes saved%n",
+                    clips.size(), sourceBytes, outputBytes, sourceBytes - outputBytes);
+        } catch (IOException e) {
+            throw new GradleException("Unable to process audio clips: " + e.getMessage(), e);
+        }
+        getLogger().lifecycle("Processed {} clips, {} bytes saved, see {}", clips.size(),
+                sourceBytes - outputBytes, mReportFile);
+    }
+}